@@ -0,0 +1,91 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.test.scripts.ScriptRunner;
+
+/**
+ * Measures {@link ScriptRunner#readConsoleLines(Path)}, which is used to read the console output of a server for
+ * failure messages and assertions.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ConsoleReadBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int lines;
+
+    private Path dir;
+    private Path consoleFile;
+
+    @Setup(Level.Trial)
+    public void createConsoleFile() throws IOException {
+        dir = FileTrees.createTempDir("console-read");
+        consoleFile = dir.resolve("console.log");
+        // The console output file is written with the default encoding
+        try (BufferedWriter writer = Files.newBufferedWriter(consoleFile, Charset.defaultCharset())) {
+            for (int i = 0; i < lines; i++) {
+                writer.write(String.format("12:%02d:%02d,%03d INFO  [org.jboss.as.server] (Controller Boot Thread) WFLYSRV%04d: Line %d of the console output",
+                        (i / 3600) % 60, (i / 60) % 60, i % 1000, i % 10000, i));
+                writer.newLine();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteConsoleFile() throws IOException {
+        FileTrees.delete(dir);
+    }
+
+    @Benchmark
+    public List<String> readConsoleLines() throws IOException {
+        return ScriptRunner.readConsoleLines(consoleFile);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import org.wildfly.test.util.Directories;
+
+/**
+ * Generates file trees which are shaped like a server distribution, a few levels of directories each with a small
+ * number of files of mixed sizes.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class FileTrees {
+
+    private static final int FILES_PER_DIR = 8;
+    private static final int DIRS_PER_DIR = 6;
+    private static final int MIN_FILE_SIZE = 512;
+    private static final int MAX_FILE_SIZE = 8 * 1024;
+
+    private FileTrees() {
+    }
+
+    /**
+     * Creates a new temporary directory for a benchmark.
+     *
+     * @param name the prefix of the directory name
+     *
+     * @return the directory
+     *
+     * @throws IOException if the directory could not be created
+     */
+    static Path createTempDir(final String name) throws IOException {
+        final String tmpDir = System.getProperty("tmp.dir");
+        if (tmpDir == null) {
+            return Files.createTempDirectory(name);
+        }
+        final Path dir = Paths.get(tmpDir);
+        Files.createDirectories(dir);
+        return Files.createTempDirectory(dir, name);
+    }
+
+    /**
+     * Generates a tree with the number of files. The same count always generates the same tree.
+     *
+     * @param root  the root directory of the tree
+     * @param files the number of files to create
+     *
+     * @return the root directory
+     *
+     * @throws IOException if an error occurs creating the tree
+     */
+    static Path generate(final Path root, final int files) throws IOException {
+        final Random random = new Random(files);
+        final byte[] content = new byte[MAX_FILE_SIZE];
+        random.nextBytes(content);
+        for (int i = 0; i < files; i++) {
+            final Path dir = root.resolve(directoryFor(i / FILES_PER_DIR));
+            Files.createDirectories(dir);
+            final int size = MIN_FILE_SIZE + random.nextInt(MAX_FILE_SIZE - MIN_FILE_SIZE);
+            try (OutputStream out = Files.newOutputStream(dir.resolve("file-" + i + ".jar"))) {
+                out.write(content, 0, size);
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Deletes the directory if it exists.
+     *
+     * @param dir the directory to delete
+     *
+     * @throws IOException if an error occurs deleting the directory
+     */
+    static void delete(final Path dir) throws IOException {
+        if (dir != null && Files.exists(dir)) {
+            Directories.recursiveDelete(dir);
+        }
+    }
+
+    private static String directoryFor(final int index) {
+        // Spread the directories over a tree DIRS_PER_DIR wide, e.g. modules/d1/d4/d2
+        final StringBuilder result = new StringBuilder("modules");
+        int remaining = index;
+        do {
+            result.append("/d").append(remaining % DIRS_PER_DIR);
+            remaining /= DIRS_PER_DIR;
+        } while (remaining > 0);
+        return result.toString();
+    }
+}
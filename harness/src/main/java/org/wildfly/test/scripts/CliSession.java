@@ -0,0 +1,235 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.scripts;
+
+import static org.wildfly.test.util.Environment.NEW_LINE;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.wildfly.core.launcher.ProcessHelper;
+import org.wildfly.test.util.Environment;
+import org.wildfly.test.util.ServerHelper;
+
+/**
+ * A {@code jboss-cli} process which stays running and accepts commands over its standard input. After each command
+ * an {@code echo} command with a unique marker is sent. The output of the command is every line up to the marker
+ * which allows the output of each command to be returned without polling a console file. Output preceding the
+ * marker of an earlier command, e.g. one which timed out, is discarded.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class CliSession implements Closeable {
+
+    private static final long DEFAULT_TIMEOUT = 30L;
+
+    // Marks the end of the output stream
+    private static final String EOF = UUID.randomUUID().toString();
+
+    private final Process process;
+    private final BufferedWriter writer;
+    private final BlockingQueue<String> lines;
+    private final List<String> transcript;
+    private final String markerPrefix;
+    private int commandCount;
+
+    private CliSession(final Process process) {
+        this.process = process;
+        final Charset charset = Charset.defaultCharset();
+        writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), charset));
+        lines = new LinkedBlockingQueue<>();
+        transcript = Collections.synchronizedList(new ArrayList<String>());
+        markerPrefix = "cli-session-" + UUID.randomUUID() + "-";
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), charset))) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        transcript.add(line);
+                        lines.add(line);
+                    }
+                } catch (IOException e) {
+                    ScriptRunner.LOGGER.debug("Error reading the CLI output", e);
+                } finally {
+                    lines.add(EOF);
+                }
+            }
+        }, "cli-session-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Starts a new CLI session. The arguments should include {@code -c} if the session should connect to a server.
+     *
+     * @param wildflyHome the WildFly home directory
+     * @param args        the arguments to pass to the {@code jboss-cli} script
+     *
+     * @return the session
+     *
+     * @throws IOException if the process fails to start
+     */
+    public static CliSession start(final Path wildflyHome, final String... args) throws IOException {
+        Environment.validateWildFlyHome(wildflyHome);
+        final String scriptName = Scripts.scriptName("jboss-cli");
+        final ProcessBuilder processBuilder = ScriptRunner.createProcessBuilder(wildflyHome, scriptName, false,
+                Arrays.asList(args));
+        final Process p = processBuilder.start();
+        ProcessHelper.addShutdownHook(p);
+        return new CliSession(p);
+    }
+
+    /**
+     * Executes a command waiting up to 30 seconds for the output.
+     *
+     * @param command the command to execute
+     *
+     * @return the output lines of the command
+     *
+     * @throws IOException if the CLI exits or the timeout is reached before the output is complete
+     */
+    public List<String> execute(final String command) throws IOException, InterruptedException {
+        return execute(command, DEFAULT_TIMEOUT, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Executes a command and returns the output lines of the command.
+     *
+     * @param command the command to execute
+     * @param timeout the maximum time to wait for the output
+     * @param unit    the unit for the timeout
+     *
+     * @return the output lines of the command
+     *
+     * @throws IOException if the CLI exits or the timeout is reached before the output is complete
+     */
+    public synchronized List<String> execute(final String command, final long timeout, final TimeUnit unit) throws IOException, InterruptedException {
+        final String echoPrefix = "echo " + markerPrefix;
+        writer.write(command);
+        writer.newLine();
+        writer.write(echoPrefix + (++commandCount));
+        writer.newLine();
+        writer.flush();
+        final List<String> result = new ArrayList<>();
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            final String line = lines.poll(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (line == null) {
+                throw new IOException(createMessage(String.format("No output for '%s' within %d %s", command, timeout, unit), result));
+            }
+            if (line == EOF) {
+                // Leave the marker in the queue so further calls fail quickly
+                lines.add(EOF);
+                throw new IOException(createMessage(String.format("The CLI exited while executing '%s'", command), result));
+            }
+            final int markerNumber = parseMarker(line);
+            if (markerNumber == commandCount) {
+                break;
+            }
+            if (markerNumber > 0) {
+                // A late marker from a command which timed out, the lines read so far belong to that command
+                result.clear();
+                continue;
+            }
+            // The input may be echoed back, e.g. with a prompt, so ignore the echo commands
+            if (!line.contains(echoPrefix)) {
+                result.add(line);
+            }
+        }
+        ScriptRunner.LOGGER.tracef("Command '%s' output: %s", command, result);
+        return result;
+    }
+
+    /**
+     * Returns every line the CLI has written so far.
+     *
+     * @return the output of the session
+     */
+    public List<String> getTranscript() {
+        synchronized (transcript) {
+            return new ArrayList<>(transcript);
+        }
+    }
+
+    public Process getProcess() {
+        return process;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!ProcessHelper.processHasDied(process)) {
+                try {
+                    writer.write("quit");
+                    writer.newLine();
+                    writer.flush();
+                } catch (IOException ignore) {
+                }
+                ServerHelper.waitForProcessExit(process, 5L, TimeUnit.SECONDS);
+            }
+            ProcessHelper.destroyProcess(process);
+        } catch (InterruptedException ignore) {
+        }
+    }
+
+    /**
+     * Returns the command number of the marker if the line is exactly a marker written by this session.
+     *
+     * @param line the line to check
+     *
+     * @return the command number or {@code -1} if the line is not a marker
+     */
+    private int parseMarker(final String line) {
+        final String value = line.trim();
+        if (value.length() > markerPrefix.length() && value.startsWith(markerPrefix)) {
+            try {
+                return Integer.parseInt(value.substring(markerPrefix.length()));
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        return -1;
+    }
+
+    private static String createMessage(final String msg, final List<String> lines) {
+        final StringBuilder result = new StringBuilder(msg).append(':').append(NEW_LINE);
+        for (String line : lines) {
+            result.append('\t').append(line).append(NEW_LINE);
+        }
+        return result.toString();
+    }
+}
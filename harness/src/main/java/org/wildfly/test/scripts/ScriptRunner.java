@@ -32,21 +32,26 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jboss.logging.Logger;
 import org.wildfly.core.launcher.ProcessHelper;
 import org.wildfly.test.util.Environment;
+import org.wildfly.test.util.ShellTrace;
 
 /**
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
-class ScriptRunner implements Closeable {
+public class ScriptRunner implements Closeable {
     static final Logger LOGGER = Logger.getLogger(ScriptRunner.class.getPackage().getName());
 
     private final Path wildflyHome;
     private final String scriptName;
+    private final Map<String, String> env = new ConcurrentHashMap<>();
     private Path consolePath;
     private Process currentProcess;
+    private volatile boolean shellTrace;
 
     protected ScriptRunner(final Path wildflyHome, final String scriptName) {
         this.wildflyHome = wildflyHome;
@@ -58,6 +63,42 @@ class ScriptRunner implements Closeable {
         return new ScriptRunner(wildflyHome, scriptName);
     }
 
+    /**
+     * Sets an environment variable for the script. The variable is used the next time the script is started.
+     *
+     * @param name  the name of the environment variable
+     * @param value the value or {@code null} to remove a previously set variable
+     *
+     * @return this runner
+     */
+    public ScriptRunner setEnvironmentVariable(final String name, final String value) {
+        if (value == null) {
+            env.remove(name);
+        } else {
+            env.put(name, value);
+        }
+        return this;
+    }
+
+    /**
+     * Enables or disables tracing of the script. A traced script is sourced by {@code bash} with {@code set -x} and the
+     * trace is written to the console output. The tracing is used the next time the script is started.
+     *
+     * @param shellTrace {@code true} to trace the script
+     *
+     * @return this runner
+     *
+     * @throws UnsupportedOperationException if tracing is enabled on Windows
+     * @see #readShellTrace()
+     */
+    public ScriptRunner setShellTrace(final boolean shellTrace) {
+        if (shellTrace && Environment.isWindows()) {
+            throw new UnsupportedOperationException("Tracing of scripts is not supported on Windows");
+        }
+        this.shellTrace = shellTrace;
+        return this;
+    }
+
     public final Process start(final String... args) throws IOException {
         return start(Arrays.asList(args));
     }
@@ -67,9 +108,38 @@ class ScriptRunner implements Closeable {
             throw new IllegalStateException("Script already started and close() was not invoked.");
         }
         consolePath = createConsolePath();
+        final ProcessBuilder processBuilder = createProcessBuilder(wildflyHome, scriptName, shellTrace, args)
+                .redirectOutput(consolePath.toFile());
+        processBuilder.environment().putAll(env);
+        final Process p = processBuilder.start();
+        ProcessHelper.addShutdownHook(p);
+        currentProcess = p;
+        return p;
+    }
+
+    /**
+     * Creates a process builder for a script in the {@code bin} directory. The error stream is redirected to the
+     * output stream and the {@linkplain Environment#ENV environment} for scripts is set.
+     *
+     * @param wildflyHome the WildFly home directory
+     * @param scriptName  the file name of the script
+     * @param shellTrace  {@code true} if the script should be traced
+     * @param args        the arguments to pass to the script
+     *
+     * @return the process builder
+     */
+    static ProcessBuilder createProcessBuilder(final Path wildflyHome, final String scriptName, final boolean shellTrace,
+                                               final Collection<String> args) {
         final Path scriptPath = wildflyHome.resolve("bin").resolve(scriptName).normalize();
         final List<String> cmd = new ArrayList<>();
-        if (Environment.isWindows()) {
+        if (shellTrace) {
+            // Bash ignores PS4 from the environment when run as root, set it before sourcing the script with the
+            // script path as $0
+            cmd.add("bash");
+            cmd.add("-c");
+            cmd.add("PS4='" + ShellTrace.PS4 + "'; set -x; . \"$0\" \"$@\"");
+            cmd.add(scriptPath.toString());
+        } else if (Environment.isWindows()) {
             cmd.add("\"" + scriptPath + "\"");
         } else {
             cmd.add(scriptPath.toString());
@@ -78,19 +148,40 @@ class ScriptRunner implements Closeable {
         LOGGER.debugf("Starting with command: %s", cmd);
         final ProcessBuilder processBuilder = new ProcessBuilder(cmd)
                 .directory(wildflyHome.toFile())
-                .redirectErrorStream(true)
-                .redirectOutput(consolePath.toFile());
+                .redirectErrorStream(true);
         processBuilder.environment().putAll(Environment.ENV);
-        final Process p = processBuilder.start();
-        ProcessHelper.addShutdownHook(p);
-        currentProcess = p;
-        return p;
+        return processBuilder;
     }
 
     public List<String> readConsoleLines() throws IOException {
         if (currentProcess == null || (consolePath != null && Files.notExists(consolePath))) {
             return Collections.emptyList();
         }
+        return readConsoleLines(consolePath);
+    }
+
+    /**
+     * Reads the trace of the script from the console output. The script must have been started with
+     * {@linkplain #setShellTrace(boolean) tracing} enabled.
+     *
+     * @return the trace of the script
+     *
+     * @throws IOException if an error occurs reading the console output
+     */
+    public ShellTrace readShellTrace() throws IOException {
+        return ShellTrace.parse(readConsoleLines());
+    }
+
+    /**
+     * Reads the lines of a console output file.
+     *
+     * @param consolePath the path to the console output file
+     *
+     * @return the lines in the file
+     *
+     * @throws IOException if an error occurs reading the file
+     */
+    public static List<String> readConsoleLines(final Path consolePath) throws IOException {
         // Underlying redirect uses FileOutputStream which uses the default encoding
         return Files.readAllLines(consolePath, Charset.defaultCharset());
     }
@@ -105,6 +196,15 @@ class ScriptRunner implements Closeable {
         }
     }
 
+    /**
+     * Returns the WildFly home directory the script is run from.
+     *
+     * @return the WildFly home directory
+     */
+    public Path getWildFlyHome() {
+        return wildflyHome;
+    }
+
     protected Path createConsolePath() throws IOException {
         return Files.createTempFile(getTempDir(), stripSuffix(scriptName), ".log");
     }
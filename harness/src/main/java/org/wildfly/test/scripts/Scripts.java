@@ -27,11 +27,11 @@ import org.wildfly.test.util.Environment;
 /**
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
-class Scripts {
-    static final String DOMAIN_SCRIPT = scriptName("domain");
-    static final String STANDALONE_SCRIPT = scriptName("standalone");
+public class Scripts {
+    public static final String DOMAIN_SCRIPT = scriptName("domain");
+    public static final String STANDALONE_SCRIPT = scriptName("standalone");
 
-    static String scriptName(final String prefix) {
+    public static String scriptName(final String prefix) {
         if (Environment.isWindows()) {
             return prefix + ".bat";
         }
@@ -0,0 +1,351 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.scripts;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.helpers.domain.DomainClient;
+import org.jboss.as.controller.client.helpers.domain.ServerIdentity;
+import org.jboss.as.controller.client.helpers.domain.ServerStatus;
+import org.wildfly.test.util.BootTimeline;
+import org.wildfly.test.util.BootWatchdog;
+import org.wildfly.test.util.Environment;
+import org.wildfly.test.util.FlightRecording;
+import org.wildfly.test.util.JvmProcesses;
+import org.wildfly.test.util.ServerHelper;
+
+/**
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public abstract class ServerScriptRunner extends ScriptRunner implements Closeable {
+    private static final String JAVA_OPTS = "JAVA_OPTS";
+
+    private final String confFileName;
+
+    private ServerScriptRunner(final Path wildflyHome, final String scriptName) {
+        super(wildflyHome, scriptName);
+        confFileName = confFileName(scriptName);
+        final String dir = System.getProperty("wildfly.test.jfr.dir");
+        if (dir != null && !dir.isEmpty()) {
+            setFlightRecordingDir(Paths.get(dir));
+        }
+    }
+
+    public static ServerScriptRunner of(final Path wildflyHome, final ServerType serverType) throws IOException {
+        return (serverType == ServerType.DOMAIN ? createDomain(wildflyHome, null) : createStandalone(wildflyHome, null));
+    }
+
+    public static ServerScriptRunner of(final Path wildflyHome, final ServerType serverType, final String consoleOutputName) throws IOException {
+        return (serverType == ServerType.DOMAIN ? createDomain(wildflyHome, consoleOutputName) : createStandalone(wildflyHome, consoleOutputName));
+    }
+
+    public static ServerScriptRunner createStandalone(final Path wildflyHome, final String consoleOutputName) throws IOException {
+        return createStandalone(wildflyHome, consoleOutputName, Environment.PORT);
+    }
+
+    /**
+     * Creates a runner for a standalone server which listens on a management port other than the
+     * {@linkplain Environment#PORT default}, e.g. when started with a port offset.
+     *
+     * @param wildflyHome       the WildFly home directory
+     * @param consoleOutputName the name of the console output file or {@code null} to use a temporary file
+     * @param managementPort    the management port the server listens on
+     *
+     * @return the runner
+     *
+     * @throws IOException if the home directory is invalid or the client could not be created
+     */
+    public static ServerScriptRunner createStandalone(final Path wildflyHome, final String consoleOutputName, final int managementPort) throws IOException {
+        return createStandalone(wildflyHome, consoleOutputName, Environment.HOSTNAME, managementPort);
+    }
+
+    /**
+     * Creates a runner for a standalone server which listens on a management address and port other than the
+     * {@linkplain Environment#HOSTNAME default}, e.g. when started with {@code -bmanagement}.
+     *
+     * @param wildflyHome       the WildFly home directory
+     * @param consoleOutputName the name of the console output file or {@code null} to use a temporary file
+     * @param managementHost    the host the management interface is bound to
+     * @param managementPort    the management port the server listens on
+     *
+     * @return the runner
+     *
+     * @throws IOException if the home directory is invalid or the client could not be created
+     */
+    public static ServerScriptRunner createStandalone(final Path wildflyHome, final String consoleOutputName,
+                                                      final String managementHost, final int managementPort) throws IOException {
+        Environment.validateWildFlyHome(wildflyHome);
+        final ModelControllerClient client = ServerHelper.createClientConnection(managementHost, managementPort);
+        return new ServerScriptRunner(wildflyHome, Scripts.STANDALONE_SCRIPT) {
+            @Override
+            public void shutdown() throws IOException {
+                ServerHelper.shutdownStandalone(client);
+                this.isShutdown = true;
+            }
+
+            @Override
+            public void waitForStart(final Process process) throws IOException, InterruptedException {
+                final BootWatchdog watchdog = BootWatchdog.start(getWildFlyHome(), getStartupTimeout());
+                try {
+                    ServerHelper.waitForStandalone(process, client, getStartupTimeout());
+                } catch (RuntimeException e) {
+                    throw watchdog.attachSummary(e);
+                } finally {
+                    watchdog.close();
+                }
+                dumpFlightRecordings();
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    client.close();
+                }
+            }
+
+            @Override
+            protected Path createConsolePath() throws IOException {
+                if (consoleOutputName == null) {
+                    return super.createConsolePath();
+                }
+                return getTempDir().resolve(consoleOutputName + ".log");
+            }
+        };
+    }
+
+    public static ServerScriptRunner createDomain(final Path wildflyHome, final String consoleOutputName) throws IOException {
+        Environment.validateWildFlyHome(wildflyHome);
+        final DomainClient client = DomainClient.Factory.create(ServerHelper.createClientConnection());
+        final Map<ServerIdentity, ServerStatus> servers = new ConcurrentHashMap<>();
+        return new ServerScriptRunner(wildflyHome, Scripts.DOMAIN_SCRIPT) {
+            @Override
+            public void shutdown() throws IOException {
+                ServerHelper.shutdownDomain(client, servers);
+                this.isShutdown = true;
+            }
+
+            @Override
+            public void waitForStart(final Process process) throws IOException, InterruptedException {
+                final BootWatchdog watchdog = BootWatchdog.start(getWildFlyHome(), getStartupTimeout());
+                try {
+                    ServerHelper.waitForDomain(process, client, getStartupTimeout());
+                } catch (RuntimeException e) {
+                    throw watchdog.attachSummary(e);
+                } finally {
+                    watchdog.close();
+                }
+                dumpFlightRecordings();
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    client.close();
+                }
+            }
+
+            @Override
+            protected Path createConsolePath() throws IOException {
+                if (consoleOutputName == null) {
+                    return super.createConsolePath();
+                }
+                return getTempDir().resolve(consoleOutputName + ".log");
+            }
+        };
+    }
+
+    protected volatile boolean isShutdown = false;
+    private volatile long startupTimeout = ServerHelper.DEFAULT_STARTUP_TIMEOUT;
+    private volatile Path flightRecordingDir;
+    private final List<FlightRecording> flightRecordings = new CopyOnWriteArrayList<>();
+
+    /**
+     * Sets the time, in seconds, to wait for the server to start in {@link #waitForStart(Process)}.
+     *
+     * @param startupTimeout the startup timeout in seconds
+     *
+     * @return this runner
+     */
+    public ServerScriptRunner setStartupTimeout(final long startupTimeout) {
+        this.startupTimeout = startupTimeout;
+        return this;
+    }
+
+    public long getStartupTimeout() {
+        return startupTimeout;
+    }
+
+    /**
+     * Records the boot of the server JVMs with Flight Recorder. The recording is started with the JVM and is dumped, with
+     * a summary of the recording, to the directory once {@link #waitForStart(Process)} has seen the server running.
+     * In a domain the process controller and host controller are recorded, the servers are started by the host
+     * controller with the JVM options of the host configuration and are not recorded.
+     * <p/>
+     * The recording is enabled for all runners if the {@code wildfly.test.jfr.dir} system property is set. The option is
+     * appended to the {@code JAVA_OPTS} of the {@code .conf} file of the script. {@code JAVA_TOOL_OPTIONS} is not used
+     * as every JVM would start a recording, including the {@code java -version} checks of the scripts which would
+     * inflate the boot time.
+     *
+     * @param dir the directory for the recordings or {@code null} to not record the boot
+     *
+     * @return this runner
+     *
+     * @see FlightRecording
+     */
+    public ServerScriptRunner setFlightRecordingDir(final Path dir) {
+        flightRecordingDir = dir;
+        if (dir == null) {
+            setEnvironmentVariable(JAVA_OPTS, null);
+        } else {
+            final String javaOpts = readJavaOpts(getWildFlyHome().resolve("bin").resolve(confFileName));
+            setEnvironmentVariable(JAVA_OPTS, (javaOpts.isEmpty() ? "" : javaOpts + " ") + FlightRecording.startOption());
+        }
+        return this;
+    }
+
+    /**
+     * Returns the flight recordings dumped by the last {@link #waitForStart(Process)}.
+     *
+     * @return the recordings or an empty list if the boot was not recorded
+     */
+    public List<FlightRecording> getFlightRecordings() {
+        return Collections.unmodifiableList(flightRecordings);
+    }
+
+    /**
+     * Returns the {@code JAVA_OPTS} the {@code .conf} file of the script for the server type uses, e.g. to launch the
+     * server with the same JVM options as the script.
+     *
+     * @param wildflyHome the WildFly home directory
+     * @param serverType  the type of the server
+     *
+     * @return the JVM options or an empty string if none are set
+     */
+    public static String readJavaOpts(final Path wildflyHome, final ServerType serverType) {
+        final String scriptName = (serverType == ServerType.DOMAIN ? Scripts.DOMAIN_SCRIPT : Scripts.STANDALONE_SCRIPT);
+        return readJavaOpts(wildflyHome.resolve("bin").resolve(confFileName(scriptName)));
+    }
+
+    private static String confFileName(final String scriptName) {
+        return scriptName.substring(0, scriptName.lastIndexOf('.')) + (Environment.isWindows() ? ".conf.bat" : ".conf");
+    }
+
+    /**
+     * Returns the {@code JAVA_OPTS} the {@code .conf} file uses. The file only sets its defaults if {@code JAVA_OPTS}
+     * is not already set, so overriding the variable would otherwise drop the defaults.
+     */
+    private static String readJavaOpts(final Path confFile) {
+        final String[] cmd;
+        if (Environment.isWindows()) {
+            cmd = new String[] {"cmd", "/c", "call \"" + confFile + "\" >nul 2>&1 & set JAVA_OPTS"};
+        } else {
+            cmd = new String[] {"bash", "-c", ". \"$1\" >/dev/null 2>&1; echo \"JAVA_OPTS=$JAVA_OPTS\"", "bash", confFile.toString()};
+        }
+        try {
+            for (String line : JvmProcesses.execute(30L, TimeUnit.SECONDS, cmd)) {
+                if (line.startsWith(JAVA_OPTS + "=")) {
+                    return line.substring(JAVA_OPTS.length() + 1).trim();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.debugf(e, "Failed to execute %s", confFile);
+        }
+        LOGGER.warnf("Could not read the JAVA_OPTS of %s, the server JVMs will not use the default options", confFile);
+        final String current = System.getenv(JAVA_OPTS);
+        return (current == null ? "" : current.trim());
+    }
+
+    void dumpFlightRecordings() {
+        flightRecordings.clear();
+        final Path dir = flightRecordingDir;
+        if (dir != null) {
+            flightRecordings.addAll(FlightRecording.dump(getWildFlyHome(), dir));
+        }
+    }
+
+    /**
+     * Parses the boot timelines from the console output of the current process.
+     *
+     * @return the timelines keyed by the process name
+     *
+     * @throws IOException if the console output could not be read
+     * @see BootTimeline#parse(java.util.List)
+     */
+    public Map<String, BootTimeline> readBootTimelines() throws IOException {
+        return BootTimeline.parse(readConsoleLines());
+    }
+
+    public Process startAndWait() throws IOException, InterruptedException {
+        return startAndWait(Collections.<String>emptyList());
+    }
+
+    public Process startAndWait(final String... args) throws IOException, InterruptedException {
+        return startAndWait(Arrays.asList(args));
+    }
+
+    public Process startAndWait(final Collection<String> args) throws IOException, InterruptedException {
+        final Process process = start(args);
+        waitForStart(process);
+        return process;
+    }
+
+    /**
+     * Waits for a server started with {@link #start(Collection)} to be running. This allows the process to be
+     * monitored, e.g. sampled, while the server boots.
+     *
+     * @param process the process returned when the server was started
+     *
+     * @throws IOException          if an error occurs communicating with the server
+     * @throws InterruptedException if interrupted while waiting for the server
+     */
+    public abstract void waitForStart(Process process) throws IOException, InterruptedException;
+
+    public abstract void shutdown() throws IOException;
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!isShutdown) {
+                shutdown();
+            }
+        } finally {
+            super.close();
+        }
+    }
+}
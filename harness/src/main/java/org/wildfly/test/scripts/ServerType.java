@@ -27,17 +27,17 @@ import java.util.Locale;
 /**
 * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
 */
-enum ServerType {
+public enum ServerType {
     DOMAIN("Domain"),
     STANDALONE("Standalone"),;
     /**
      * A displayable name for the server type
      */
-    final String name;
+    public final String name;
     /**
      * The name of the server type in lower case
      */
-    final String type;
+    public final String type;
 
     ServerType(final String name) {
         this.name = name;
@@ -0,0 +1,342 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A timeline of a server boot parsed from the log messages of the server. The timeline can be parsed from a
+ * {@code server.log}, a {@code host-controller.log} or the console output of a standalone server or a domain. The
+ * console output of a domain contains the messages of each process prefixed with the process name, e.g.
+ * {@code [Host Controller]}, which results in a timeline for each process.
+ * <p/>
+ * The boot is broken down into the following phases:
+ * <ul>
+ * <li>{@code jvm} the JVM start until jboss-modules logs its version</li>
+ * <li>{@code modules} jboss-modules until the server logs it is starting</li>
+ * <li>{@code controller} the controller boot until the first subsystem is activated</li>
+ * <li>{@code subsystems} the first until the last subsystem activation</li>
+ * <li>{@code services} the last subsystem activation until the server reports it has started</li>
+ * </ul>
+ * The JVM start time is derived from the time reported in the started message, which is measured from the start of the
+ * JVM. Message ids of both the {@code JBAS} and {@code WFLY} prefixes are recognized so timelines are comparable across
+ * versions.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class BootTimeline {
+
+    /**
+     * The process name used for log messages not prefixed with a process name
+     */
+    public static final String DEFAULT_PROCESS = "Server";
+
+    public static final String JVM = "jvm";
+    public static final String MODULES = "modules";
+    public static final String CONTROLLER = "controller";
+    public static final String SUBSYSTEMS = "subsystems";
+    public static final String SERVICES = "services";
+
+    private static final Pattern ANSI_ESCAPE = Pattern.compile("\u001B\\[[;\\d]*m");
+    private static final Pattern PROCESS_PREFIX = Pattern.compile("^\\[([^\\]]+)\\] (.*)$");
+    private static final Pattern LOG_LINE = Pattern.compile("^(?:\\d{4}-\\d{2}-\\d{2} )?(\\d{2}):(\\d{2}):(\\d{2}),(\\d{3}) +\\w+ +\\[([^\\]]+)\\] \\([^)]*\\) (.*)$");
+    private static final Pattern MODULES_MESSAGE = Pattern.compile("^JBoss Modules version");
+    private static final Pattern STARTING_MESSAGE = Pattern.compile("^(?:JBAS015899|WFLYSRV0049):");
+    private static final Pattern SUBSYSTEM_MESSAGE = Pattern.compile("^(?:\\w+: )?(?:Activating|Initializing|Initialising) (.+?) (?:[Ss]ubsystem|[Ee]xtension)");
+    private static final Pattern STARTED_MESSAGE = Pattern.compile("started (?:\\(with errors\\) )?in (\\d+)ms - Started (\\d+) of (\\d+) services(?: \\((\\d+) services? (?:are|is) )?");
+
+    private final String process;
+    private final List<Event> events;
+    private long firstMessage = -1L;
+    private long modules = -1L;
+    private long starting = -1L;
+    private long started = -1L;
+    private long reportedBootMillis = -1L;
+    private int servicesStarted = -1;
+    private int servicesTotal = -1;
+    private int servicesPassive = 0;
+
+    private BootTimeline(final String process) {
+        this.process = process;
+        events = new ArrayList<>();
+    }
+
+    /**
+     * Reads the timeline from a log file, e.g. {@code standalone/log/server.log}. Only the last boot in the file is
+     * used.
+     *
+     * @param logFile the log file
+     *
+     * @return the timeline
+     *
+     * @throws IOException if the file could not be read
+     */
+    public static BootTimeline read(final Path logFile) throws IOException {
+        final Map<String, BootTimeline> timelines = parse(Files.readAllLines(logFile, StandardCharsets.UTF_8));
+        final BootTimeline result = timelines.get(DEFAULT_PROCESS);
+        return (result == null ? new BootTimeline(DEFAULT_PROCESS) : result);
+    }
+
+    /**
+     * Parses the timelines from the log lines. Lines prefixed with a process name, as in the console output of a
+     * domain, are added to the timeline of the process. Other lines are added to the {@link #DEFAULT_PROCESS}
+     * timeline. If a log contains more than one boot only the last boot is used.
+     *
+     * @param lines the log lines
+     *
+     * @return the timelines keyed by the process name in the order the processes first logged a message
+     */
+    public static Map<String, BootTimeline> parse(final List<String> lines) {
+        final Map<String, BootTimeline> result = new LinkedHashMap<>();
+        final Map<String, Long> lastTimes = new LinkedHashMap<>();
+        for (String line : lines) {
+            String process = DEFAULT_PROCESS;
+            // The console handler may color the level
+            String message = ANSI_ESCAPE.matcher(line).replaceAll("");
+            final Matcher prefixMatcher = PROCESS_PREFIX.matcher(message);
+            if (prefixMatcher.matches()) {
+                process = prefixMatcher.group(1);
+                message = prefixMatcher.group(2);
+            }
+            final Matcher matcher = LOG_LINE.matcher(message);
+            if (!matcher.matches()) {
+                continue;
+            }
+            long time = TimeUnit.HOURS.toMillis(Long.parseLong(matcher.group(1))) +
+                    TimeUnit.MINUTES.toMillis(Long.parseLong(matcher.group(2))) +
+                    TimeUnit.SECONDS.toMillis(Long.parseLong(matcher.group(3))) +
+                    Long.parseLong(matcher.group(4));
+            // The time of day wraps at midnight
+            final Long lastTime = lastTimes.get(process);
+            if (lastTime != null) {
+                while (time < lastTime) {
+                    time += TimeUnit.DAYS.toMillis(1L);
+                }
+            }
+            lastTimes.put(process, time);
+            final String text = matcher.group(6);
+            BootTimeline timeline = result.get(process);
+            // A new boot in the same log starts a new timeline
+            if (timeline == null || (timeline.modules >= 0L && MODULES_MESSAGE.matcher(text).find())) {
+                timeline = new BootTimeline(process);
+                result.put(process, timeline);
+            }
+            timeline.add(time, matcher.group(5), text);
+        }
+        return result;
+    }
+
+    private void add(final long time, final String category, final String text) {
+        if (firstMessage < 0L) {
+            firstMessage = time;
+        }
+        if (modules < 0L && MODULES_MESSAGE.matcher(text).find()) {
+            modules = time;
+            events.add(new Event(time, MODULES, text));
+            return;
+        }
+        if (starting < 0L && STARTING_MESSAGE.matcher(text).find()) {
+            starting = time;
+            events.add(new Event(time, CONTROLLER, text));
+            return;
+        }
+        Matcher matcher = SUBSYSTEM_MESSAGE.matcher(text);
+        if (started < 0L && matcher.find()) {
+            events.add(new Event(time, SUBSYSTEMS, matcher.group(1) + " (" + category + ")"));
+            return;
+        }
+        matcher = STARTED_MESSAGE.matcher(text);
+        if (started < 0L && matcher.find()) {
+            started = time;
+            reportedBootMillis = Long.parseLong(matcher.group(1));
+            servicesStarted = Integer.parseInt(matcher.group(2));
+            servicesTotal = Integer.parseInt(matcher.group(3));
+            if (matcher.group(4) != null) {
+                servicesPassive = Integer.parseInt(matcher.group(4));
+            }
+            events.add(new Event(time, SERVICES, text));
+        }
+    }
+
+    /**
+     * The name of the process the timeline is for.
+     *
+     * @return the process name
+     */
+    public String getProcess() {
+        return process;
+    }
+
+    /**
+     * Indicates whether the started message was found.
+     *
+     * @return {@code true} if the server reported it has started
+     */
+    public boolean isStarted() {
+        return started >= 0L;
+    }
+
+    /**
+     * The boot time the server reported in the started message.
+     *
+     * @return the boot time in milliseconds or {@code -1} if the server has not started
+     */
+    public long getReportedBootMillis() {
+        return reportedBootMillis;
+    }
+
+    /**
+     * The number of services started as reported in the started message.
+     *
+     * @return the number of started services or {@code -1} if the server has not started
+     */
+    public int getServicesStarted() {
+        return servicesStarted;
+    }
+
+    /**
+     * The total number of services as reported in the started message.
+     *
+     * @return the total number of services or {@code -1} if the server has not started
+     */
+    public int getServicesTotal() {
+        return servicesTotal;
+    }
+
+    /**
+     * The number of lazy, passive or on-demand services as reported in the started message.
+     *
+     * @return the number of lazy, passive or on-demand services
+     */
+    public int getServicesPassive() {
+        return servicesPassive;
+    }
+
+    /**
+     * The events of the timeline, relative to the {@linkplain #getStart() start}, in the order they were logged.
+     *
+     * @return the events
+     */
+    public List<Event> getEvents() {
+        return Collections.unmodifiableList(events);
+    }
+
+    /**
+     * The time of the boot start. This is the JVM start if the server has started, otherwise the time of the first
+     * message.
+     *
+     * @return the time of day in milliseconds
+     */
+    public long getStart() {
+        return (started >= 0L ? started - reportedBootMillis : firstMessage);
+    }
+
+    /**
+     * Returns the duration of each phase found in the log. A phase is only included if the messages for both the
+     * start and the end of the phase were found.
+     *
+     * @return the duration in milliseconds of each phase keyed by the phase name in boot order
+     */
+    public Map<String, Long> getPhases() {
+        long firstSubsystem = -1L;
+        long lastSubsystem = -1L;
+        for (Event event : events) {
+            if (SUBSYSTEMS.equals(event.phase)) {
+                if (firstSubsystem < 0L) {
+                    firstSubsystem = event.time;
+                }
+                lastSubsystem = event.time;
+            }
+        }
+        final Map<String, Long> result = new LinkedHashMap<>();
+        addPhase(result, JVM, (started >= 0L ? getStart() : -1L), modules);
+        addPhase(result, MODULES, modules, starting);
+        addPhase(result, CONTROLLER, starting, firstSubsystem);
+        addPhase(result, SUBSYSTEMS, firstSubsystem, lastSubsystem);
+        addPhase(result, SERVICES, (lastSubsystem < 0L ? starting : lastSubsystem), started);
+        return result;
+    }
+
+    private static void addPhase(final Map<String, Long> phases, final String name, final long start, final long end) {
+        if (start >= 0L && end >= 0L) {
+            phases.put(name, end - start);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder(process).append(' ').append(getPhases());
+        if (isStarted()) {
+            result.append(" started in ").append(reportedBootMillis).append("ms - ")
+                    .append(servicesStarted).append(" of ").append(servicesTotal).append(" services (")
+                    .append(servicesPassive).append(" passive)");
+        }
+        return result.toString();
+    }
+
+    /**
+     * A boot message of interest.
+     */
+    public class Event {
+        private final long time;
+        /**
+         * The phase the event ends
+         */
+        public final String phase;
+        /**
+         * The description of the event, the subsystem name for subsystem activations otherwise the message
+         */
+        public final String description;
+
+        Event(final long time, final String phase, final String description) {
+            this.time = time;
+            this.phase = phase;
+            this.description = description;
+        }
+
+        /**
+         * The time of the event relative to the start of the boot.
+         *
+         * @return the offset in milliseconds
+         */
+        public long getOffset() {
+            return time - getStart();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("+%dms %s", getOffset(), description);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.util;
+
+import static org.wildfly.test.util.Environment.NEW_LINE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Takes thread dumps of the server JVMs when a boot takes longer than expected. Once a fraction of the startup timeout
+ * has passed the JVMs running from the WildFly home directory are dumped with {@code jstack} at an interval. The
+ * frames threads are blocked, waiting or running in are counted and the most frequent frames are summarized.
+ * <p/>
+ * Threads which are idle, e.g. a thread pool thread waiting for a task, are ignored.
+ * <p/>
+ * The following system properties can be used to configure the watchdog:
+ * <ul>
+ * <li>{@code wildfly.test.watchdog} whether or not the watchdog is enabled, defaults to {@code true}</li>
+ * <li>{@code wildfly.test.watchdog.fraction} the fraction of the startup timeout after which thread dumps are taken,
+ * defaults to {@code 0.5}</li>
+ * <li>{@code wildfly.test.watchdog.interval} the interval between thread dumps in milliseconds, defaults to
+ * {@code 2000}</li>
+ * <li>{@code wildfly.test.watchdog.top} the number of frames in the summary, defaults to {@code 10}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class BootWatchdog implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(BootWatchdog.class);
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("wildfly.test.watchdog", "true"));
+    private static final double FRACTION = Double.parseDouble(System.getProperty("wildfly.test.watchdog.fraction", "0.5"));
+    private static final long INTERVAL = Long.getLong("wildfly.test.watchdog.interval", 2000L);
+    private static final int TOP = Integer.getInteger("wildfly.test.watchdog.top", 10);
+
+    // Frames which indicate a thread is idle
+    private static final String[] IDLE_FRAMES = {
+            "ThreadPoolExecutor.getTask",
+            "ScheduledThreadPoolExecutor$DelayedWorkQueue.take",
+            "ForkJoinPool.awaitWork",
+            "ReferenceQueue.remove",
+            "Reference.waitForReferencePendingList",
+            "Reference$ReferenceHandler.run",
+            "EPoll",
+            "KQueue",
+            "WindowsSelectorImpl",
+            "PollSelectorImpl",
+            "ServerSocketChannelImpl.accept",
+            "PlainSocketImpl.socketAccept",
+            "ProcessImpl.waitFor",
+            "UNIXProcess.waitFor",
+            "ProcessHandleImpl.waitForProcessExit",
+    };
+
+    private final Path wildflyHome;
+    private final ScheduledExecutorService service;
+    private final Map<String, Integer> frameCounts;
+    private int dumps;
+    private int threads;
+
+    private BootWatchdog(final Path wildflyHome) {
+        this.wildflyHome = wildflyHome;
+        service = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "boot-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        frameCounts = new HashMap<>();
+    }
+
+    /**
+     * Starts watching a server boot.
+     *
+     * @param wildflyHome    the WildFly home directory of the server
+     * @param startupTimeout the startup timeout in seconds
+     *
+     * @return the watchdog
+     */
+    public static BootWatchdog start(final Path wildflyHome, final long startupTimeout) {
+        final BootWatchdog watchdog = new BootWatchdog(wildflyHome);
+        if (ENABLED) {
+            final long delay = (long) (TimeUnit.SECONDS.toMillis(startupTimeout) * FRACTION);
+            watchdog.service.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        watchdog.sample();
+                    } catch (RuntimeException e) {
+                        LOGGER.debug("Failed to sample the thread dumps", e);
+                    }
+                }
+            }, delay, INTERVAL, TimeUnit.MILLISECONDS);
+        }
+        return watchdog;
+    }
+
+    /**
+     * Adds the summary to the failure message of the exception if any thread dumps were taken.
+     *
+     * @param e the failure
+     *
+     * @return a new exception with the summary or the exception if there is no summary
+     */
+    public RuntimeException attachSummary(final RuntimeException e) {
+        close();
+        final String summary = getSummary();
+        if (summary == null) {
+            return e;
+        }
+        return new RuntimeException(e.getMessage() + NEW_LINE + summary, e);
+    }
+
+    /**
+     * Returns a summary of the most frequent frames.
+     *
+     * @return the summary or {@code null} if no thread dumps were taken
+     */
+    public synchronized String getSummary() {
+        if (dumps == 0) {
+            return null;
+        }
+        final List<Map.Entry<String, Integer>> entries = new ArrayList<>(frameCounts.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+            @Override
+            public int compare(final Map.Entry<String, Integer> o1, final Map.Entry<String, Integer> o2) {
+                return o2.getValue().compareTo(o1.getValue());
+            }
+        });
+        final StringBuilder result = new StringBuilder()
+                .append(String.format("Most frequent frames of %d busy threads in %d thread dumps:", threads, dumps))
+                .append(NEW_LINE);
+        for (Map.Entry<String, Integer> entry : entries.subList(0, Math.min(TOP, entries.size()))) {
+            result.append(String.format("%6d  %s", entry.getValue(), entry.getKey())).append(NEW_LINE);
+        }
+        return result.toString();
+    }
+
+    @Override
+    public void close() {
+        service.shutdownNow();
+    }
+
+    private void sample() {
+        final List<JvmProcesses.JvmProcess> processes = JvmProcesses.find(wildflyHome);
+        final String jstack = JvmProcesses.findTool("jstack").toString();
+        for (JvmProcesses.JvmProcess process : processes) {
+            try {
+                final List<String> lines = JvmProcesses.execute(30L, TimeUnit.SECONDS, jstack, Long.toString(process.pid));
+                synchronized (this) {
+                    parse(process.role, lines);
+                }
+            } catch (IOException e) {
+                LOGGER.debugf(e, "Failed to take a thread dump of %s", process);
+            }
+        }
+        synchronized (this) {
+            if (!processes.isEmpty()) {
+                dumps++;
+            }
+        }
+    }
+
+    private void parse(final String role, final List<String> lines) {
+        String state = null;
+        final List<String> frames = new ArrayList<>();
+        for (String line : lines) {
+            final String trimmed = line.trim();
+            if (line.startsWith("\"")) {
+                add(role, state, frames);
+                state = null;
+                frames.clear();
+            } else if (trimmed.startsWith("java.lang.Thread.State:")) {
+                state = trimmed.substring("java.lang.Thread.State:".length()).trim();
+                final int space = state.indexOf(' ');
+                if (space > 0) {
+                    state = state.substring(0, space);
+                }
+            } else if (trimmed.startsWith("at ")) {
+                frames.add(trimmed.substring(3));
+            }
+        }
+        add(role, state, frames);
+    }
+
+    private void add(final String role, final String state, final List<String> frames) {
+        if (state == null || frames.isEmpty() || isIdle(frames)) {
+            return;
+        }
+        String frame = frames.get(0);
+        if (!"RUNNABLE".equals(state) && !"BLOCKED".equals(state)) {
+            // A waiting thread is summarized by the first frame outside of the JDK, the code which is waiting
+            for (String f : frames) {
+                if (!f.startsWith("java.") && !f.startsWith("sun.") && !f.startsWith("jdk.") && !f.startsWith("com.sun.")) {
+                    frame = f;
+                    break;
+                }
+            }
+        }
+        final String key = String.format("[%s] %s %s", role, state, frame);
+        final Integer count = frameCounts.get(key);
+        frameCounts.put(key, (count == null ? 1 : count + 1));
+        threads++;
+    }
+
+    private static boolean isIdle(final List<String> frames) {
+        for (String frame : frames) {
+            for (String idle : IDLE_FRAMES) {
+                if (frame.contains(idle)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -61,6 +61,24 @@ public class Directories {
         return target;
     }
 
+    /**
+     * Replaces the target directory with a copy of the source directory. If the target exists it is deleted first.
+     *
+     * @param source the directory to copy
+     * @param target the directory to replace
+     *
+     * @return the target directory
+     *
+     * @throws IOException if an error occurs deleting or copying the directories
+     */
+    public static Path replace(final Path source, final Path target) throws IOException {
+        if (Files.exists(target)) {
+            recursiveDelete(target);
+        }
+        Files.createDirectories(target);
+        return copy(source, target);
+    }
+
     public static void recursiveDelete(final Path dir) throws IOException {
         Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
             @Override
@@ -76,4 +94,53 @@ public class Directories {
             }
         });
     }
+
+    /**
+     * Calculates the total size, in bytes, of the regular files in the directory tree. If the directory does not
+     * exist {@code 0} is returned.
+     *
+     * @param dir the directory to calculate the size of
+     *
+     * @return the size of all the files in the directory tree
+     *
+     * @throws IOException if an error occurs walking the tree
+     */
+    public static long size(final Path dir) throws IOException {
+        if (Files.notExists(dir)) {
+            return 0L;
+        }
+        final long[] size = {0L};
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                size[0] += attrs.size();
+                return CONTINUE;
+            }
+        });
+        return size[0];
+    }
+
+    /**
+     * Counts the regular files in the directory tree. If the directory does not exist {@code 0} is returned.
+     *
+     * @param dir the directory to count the files in
+     *
+     * @return the number of files in the directory tree
+     *
+     * @throws IOException if an error occurs walking the tree
+     */
+    public static int countFiles(final Path dir) throws IOException {
+        if (Files.notExists(dir)) {
+            return 0;
+        }
+        final int[] count = {0};
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                count[0]++;
+                return CONTINUE;
+            }
+        });
+        return count[0];
+    }
 }
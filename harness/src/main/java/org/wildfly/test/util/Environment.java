@@ -46,10 +46,16 @@ public class Environment {
      * The default WildFly home directory specified by the {@code wildfly.dist} system property.
      * <p/>
      * Note that the {@code wildfly.dist} will not match the path specified here. The WildFly distribution is copied to
-     * a temporary directory to keep the environment clean.
+     * a temporary directory to keep the environment clean. If the {@code wildfly.test.minimal.dist} system property is
+     * {@code true} the copy is {@linkplain MinimalDistribution trimmed} to the required modules.
      * }
      */
     public static final Path WILDFLY_HOME;
+    /**
+     * Indicates whether the {@linkplain #WILDFLY_HOME WildFly home} is trimmed to the required modules, specified by
+     * the {@code wildfly.test.minimal.dist} system property.
+     */
+    public static final boolean MINIMAL_DIST = Boolean.getBoolean("wildfly.test.minimal.dist");
     /**
      * The host name specified by the {@code wildfly.hostname} system property or {@code localhost} by default.
      */
@@ -93,26 +99,21 @@ public class Environment {
         validateWildFlyHome(wildflyHome);
         // Copy the dist into the temp directory
         WILDFLY_HOME = TMP_DIR.resolve("wildfly");
-        if (Files.exists(WILDFLY_HOME)) {
-            try {
-                Directories.recursiveDelete(WILDFLY_HOME);
-            } catch (IOException e) {
-                logger.debugf(e, "Could not create the temp directory: %s", TMP_DIR);
-                throw new RuntimeException("Could not create the temp directory: " + WILDFLY_HOME, e);
-            }
-        }
         try {
-            Files.createDirectories(WILDFLY_HOME);
-        } catch (IOException e) {
-            logger.debugf(e, "Could not create the temp directory: %s", TMP_DIR);
-            throw new RuntimeException("Could not create the temp directory: " + WILDFLY_HOME, e);
-        }
-        try {
-            Directories.copy(wildflyHome, WILDFLY_HOME);
+            Directories.replace(wildflyHome, WILDFLY_HOME);
         } catch (IOException e) {
             logger.debug("Failed to copy WildFly Dist", e);
             throw new RuntimeException("Failed to copy WildFly Dist", e);
         }
+        // Optionally remove the modules the scripts and configurations do not need
+        if (MINIMAL_DIST) {
+            try {
+                MinimalDistribution.trim(WILDFLY_HOME);
+            } catch (IOException e) {
+                logger.debug("Failed to trim WildFly Dist", e);
+                throw new RuntimeException("Failed to trim WildFly Dist", e);
+            }
+        }
 
         String port = System.getProperty("wildfly.port", "9990");
         try {
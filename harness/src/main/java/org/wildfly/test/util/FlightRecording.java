@@ -0,0 +1,416 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.util;
+
+import static org.wildfly.test.util.Environment.NEW_LINE;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jboss.logging.Logger;
+import org.wildfly.core.launcher.ProcessHelper;
+
+/**
+ * A Flight Recorder recording of a server boot. The recording is started with the {@linkplain #startOption() start
+ * option} on the server JVMs and dumped with {@code jcmd} once the server is running. The recording is summarized with
+ * the {@code jfr} tool into the methods most often on CPU, the allocation hot spots, the lock contention and the class
+ * loading time.
+ * <p/>
+ * The {@code jfr} tool of the JDK running the tests is used, which must be JDK 17 or later. Allocations are only
+ * available from the {@code jdk.ObjectAllocationSample} event which requires the server to run on JDK 16 or later, on
+ * older JDKs the allocation section of the summary is marked as unsupported.
+ * <p/>
+ * The following system properties can be used to configure the recording:
+ * <ul>
+ * <li>{@code wildfly.test.jfr.options} the value of the {@code -XX:StartFlightRecording} option, defaults to the
+ * {@code profile} settings with class loading events enabled</li>
+ * <li>{@code wildfly.test.jfr.top} the number of entries in each section of the summary, defaults to {@code 20}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class FlightRecording {
+    private static final Logger LOGGER = Logger.getLogger(FlightRecording.class);
+
+    private static final String RECORDING_NAME = "wildfly-boot";
+    private static final String OPTIONS = System.getProperty("wildfly.test.jfr.options",
+            "settings=profile,+jdk.ClassLoad#enabled=true,+jdk.ClassLoad#threshold=0ms");
+    private static final int TOP = Integer.getInteger("wildfly.test.jfr.top", 20);
+
+    private static final String EVENTS = "jdk.ExecutionSample,jdk.ObjectAllocationSample,jdk.JavaMonitorEnter,jdk.ThreadPark,jdk.ClassLoad";
+    private static final Pattern EVENT_START = Pattern.compile("^(jdk\\.\\w+) \\{$");
+    private static final Pattern FIELD = Pattern.compile("^  (\\w+) = (.*)$");
+    private static final Pattern QUANTITY = Pattern.compile("^([\\d.,]+) (\\w+)");
+    private static final Pattern LINE_NUMBER = Pattern.compile(" line: \\d+$");
+    private static final Pattern CLASS_LOADER = Pattern.compile("\\(classLoader = ([^)]+)\\)");
+
+    private final String process;
+    private final Path recording;
+    private final Map<String, Double> cpuSamples;
+    private final Map<String, Double> allocations;
+    private final Map<String, Double> contention;
+    private final Map<String, Double> classLoading;
+    private int executionSamples;
+    private int classesLoaded;
+    private boolean allocationSampleSupported;
+
+    private FlightRecording(final String process, final Path recording) {
+        this.process = process;
+        this.recording = recording;
+        cpuSamples = new HashMap<>();
+        allocations = new HashMap<>();
+        contention = new HashMap<>();
+        classLoading = new HashMap<>();
+    }
+
+    /**
+     * Returns the JVM option which starts the recording.
+     *
+     * @return the JVM option
+     */
+    public static String startOption() {
+        return "-XX:StartFlightRecording=name=" + RECORDING_NAME + "," + OPTIONS;
+    }
+
+    /**
+     * Stops the recordings of the JVMs running from the WildFly home directory and writes a summary of each recording
+     * next to the recording. Failures are logged and the recording is skipped.
+     *
+     * @param wildflyHome the WildFly home directory of the server
+     * @param dir         the directory to write the recordings to
+     *
+     * @return the analyzed recordings
+     */
+    public static List<FlightRecording> dump(final Path wildflyHome, final Path dir) {
+        final List<FlightRecording> result = new ArrayList<>();
+        final String jcmd = JvmProcesses.findTool("jcmd").toString();
+        for (JvmProcesses.JvmProcess process : JvmProcesses.find(wildflyHome)) {
+            // In a domain the servers are started by the host controller without the option
+            if (!process.arguments.contains("-XX:StartFlightRecording")) {
+                LOGGER.debugf("Skipping %s which was not started with a flight recording", process);
+                continue;
+            }
+            final String name = process.role.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-") + "-" + process.pid;
+            final Path file = dir.resolve(name + ".jfr").toAbsolutePath();
+            try {
+                Files.createDirectories(dir);
+                final List<String> output = JvmProcesses.execute(60L, TimeUnit.SECONDS, jcmd, Long.toString(process.pid),
+                        "JFR.stop", "name=" + RECORDING_NAME, "filename=" + file);
+                if (Files.notExists(file)) {
+                    LOGGER.warnf("Failed to dump the flight recording of %s: %s", process, output);
+                    continue;
+                }
+                final FlightRecording recording = new FlightRecording(process.role, file);
+                recording.analyze();
+                final Path summary = dir.resolve(name + "-summary.txt");
+                Files.write(summary, recording.getSummary().getBytes(StandardCharsets.UTF_8));
+                LOGGER.infof("Flight recording of %s written to %s, summary in %s", process, file, summary);
+                result.add(recording);
+            } catch (IOException e) {
+                LOGGER.warnf(e, "Failed to analyze the flight recording of %s", process);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The process the recording is of, e.g. {@code Standalone} or {@code Server:server-one}.
+     *
+     * @return the process name
+     */
+    public String getProcess() {
+        return process;
+    }
+
+    /**
+     * The path to the recording.
+     *
+     * @return the recording
+     */
+    public Path getRecording() {
+        return recording;
+    }
+
+    /**
+     * The number of execution samples of each top frame.
+     *
+     * @return the samples keyed by method
+     */
+    public Map<String, Double> getCpuSamples() {
+        return Collections.unmodifiableMap(cpuSamples);
+    }
+
+    /**
+     * The estimated bytes allocated keyed by the allocated type and the allocating method.
+     *
+     * @return the bytes allocated
+     */
+    public Map<String, Double> getAllocations() {
+        return Collections.unmodifiableMap(allocations);
+    }
+
+    /**
+     * The milliseconds threads were blocked entering a monitor or parked keyed by the lock type and the first
+     * non-JDK method. Only the events over the threshold of the recording settings are included.
+     *
+     * @return the contention in milliseconds
+     */
+    public Map<String, Double> getContention() {
+        return Collections.unmodifiableMap(contention);
+    }
+
+    /**
+     * The milliseconds spent loading classes keyed by class loader. The time of a class load includes the time
+     * loading the classes it requires.
+     *
+     * @return the class loading time in milliseconds
+     */
+    public Map<String, Double> getClassLoading() {
+        return Collections.unmodifiableMap(classLoading);
+    }
+
+    /**
+     * Returns a summary of the recording.
+     *
+     * @return the summary
+     */
+    public String getSummary() {
+        final StringBuilder result = new StringBuilder();
+        result.append("Flight recording of ").append(process).append(": ").append(recording).append(NEW_LINE);
+        appendSection(result, String.format("Top CPU methods (%d execution samples)", executionSamples), cpuSamples, "samples");
+        if (allocationSampleSupported) {
+            appendSection(result, "Allocation hot spots", allocations, "bytes");
+        } else {
+            result.append(NEW_LINE).append("Allocation hot spots:").append(NEW_LINE)
+                    .append("    unsupported, the JVM of the server does not have the jdk.ObjectAllocationSample event").append(NEW_LINE);
+        }
+        appendSection(result, "Lock contention", contention, "ms");
+        appendSection(result, String.format("Class loading (%d classes)", classesLoaded), classLoading, "ms");
+        return result.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getSummary();
+    }
+
+    private void analyze() throws IOException {
+        final String jfr = JvmProcesses.findTool("jfr").toString();
+        // The event types of the recording are those of the JVM which recorded it
+        for (String line : JvmProcesses.execute(5L, TimeUnit.MINUTES, jfr, "metadata", recording.toString())) {
+            if (line.contains("\"jdk.ObjectAllocationSample\"")) {
+                allocationSampleSupported = true;
+                break;
+            }
+        }
+        final Path output = Files.createTempFile(recording.getParent(), "jfr-print", ".txt");
+        try {
+            final Process p = new ProcessBuilder(jfr, "print", "--stack-depth", "8",
+                    "--events", EVENTS, recording.toString())
+                    .redirectErrorStream(true)
+                    .redirectOutput(output.toFile())
+                    .start();
+            try {
+                if (!ServerHelper.waitForProcessExit(p, 5L, TimeUnit.MINUTES)) {
+                    ProcessHelper.destroyProcess(p);
+                    throw new IOException("Timed out printing " + recording);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted printing " + recording, e);
+            }
+            // The jfr tool writes with the default encoding
+            try (BufferedReader reader = Files.newBufferedReader(output, Charset.defaultCharset())) {
+                parse(reader);
+            }
+        } finally {
+            Files.deleteIfExists(output);
+        }
+    }
+
+    private void parse(final BufferedReader reader) throws IOException {
+        String event = null;
+        final Map<String, String> fields = new HashMap<>();
+        final List<String> frames = new ArrayList<>();
+        boolean inStackTrace = false;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (event == null) {
+                final Matcher matcher = EVENT_START.matcher(line);
+                if (matcher.matches()) {
+                    event = matcher.group(1);
+                    fields.clear();
+                    frames.clear();
+                }
+            } else if ("}".equals(line)) {
+                addEvent(event, fields, frames);
+                event = null;
+            } else if (inStackTrace) {
+                if ("  ]".equals(line)) {
+                    inStackTrace = false;
+                } else if (!"...".equals(line.trim())) {
+                    frames.add(LINE_NUMBER.matcher(line.trim()).replaceAll(""));
+                }
+            } else {
+                final Matcher matcher = FIELD.matcher(line);
+                if (matcher.matches()) {
+                    if ("stackTrace".equals(matcher.group(1))) {
+                        inStackTrace = "[".equals(matcher.group(2));
+                    } else {
+                        fields.put(matcher.group(1), matcher.group(2));
+                    }
+                }
+            }
+        }
+    }
+
+    private void addEvent(final String event, final Map<String, String> fields, final List<String> frames) {
+        final String topFrame = (frames.isEmpty() ? "<no stack trace>" : frames.get(0));
+        switch (event) {
+            case "jdk.ExecutionSample":
+                executionSamples++;
+                add(cpuSamples, topFrame, 1d);
+                break;
+            case "jdk.ObjectAllocationSample":
+                add(allocations, typeName(fields.get("objectClass")) + " in " + topFrame, bytes(fields.get("weight")));
+                break;
+            case "jdk.JavaMonitorEnter":
+                add(contention, "monitor " + typeName(fields.get("monitorClass")) + " in " + callerFrame(frames), millis(fields.get("duration")));
+                break;
+            case "jdk.ThreadPark":
+                add(contention, "park " + typeName(fields.get("parkedClass")) + " in " + callerFrame(frames), millis(fields.get("duration")));
+                break;
+            case "jdk.ClassLoad":
+                classesLoaded++;
+                final String loadedClass = fields.get("loadedClass");
+                final Matcher matcher = CLASS_LOADER.matcher(loadedClass == null ? "" : loadedClass);
+                add(classLoading, (matcher.find() ? matcher.group(1) : "unknown"), millis(fields.get("duration")));
+                break;
+        }
+    }
+
+    private static void add(final Map<String, Double> map, final String key, final double value) {
+        final Double current = map.get(key);
+        map.put(key, (current == null ? value : current + value));
+    }
+
+    private static void appendSection(final StringBuilder sb, final String title, final Map<String, Double> values, final String unit) {
+        sb.append(NEW_LINE).append(title).append(':').append(NEW_LINE);
+        if (values.isEmpty()) {
+            sb.append("    none recorded").append(NEW_LINE);
+            return;
+        }
+        final List<Map.Entry<String, Double>> entries = new ArrayList<>(values.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Double>>() {
+            @Override
+            public int compare(final Map.Entry<String, Double> o1, final Map.Entry<String, Double> o2) {
+                return o2.getValue().compareTo(o1.getValue());
+            }
+        });
+        for (Map.Entry<String, Double> entry : entries.subList(0, Math.min(TOP, entries.size()))) {
+            sb.append(String.format("%14.1f %-7s %s", entry.getValue(), unit, entry.getKey())).append(NEW_LINE);
+        }
+    }
+
+    /**
+     * Returns the first frame outside of the JDK, which is the code waiting on the lock.
+     */
+    private static String callerFrame(final List<String> frames) {
+        for (String frame : frames) {
+            if (!frame.startsWith("java.") && !frame.startsWith("sun.") && !frame.startsWith("jdk.")) {
+                return frame;
+            }
+        }
+        return (frames.isEmpty() ? "<no stack trace>" : frames.get(0));
+    }
+
+    private static String typeName(final String value) {
+        if (value == null || "N/A".equals(value) || "null".equals(value)) {
+            return "<none>";
+        }
+        final int index = value.indexOf(" (classLoader");
+        return (index > 0 ? value.substring(0, index) : value);
+    }
+
+    private static double millis(final String value) {
+        final double result = quantity(value);
+        switch (unit(value)) {
+            case "ns":
+                return result / 1000000d;
+            case "us":
+                return result / 1000d;
+            case "s":
+                return result * 1000d;
+            case "min":
+                return result * 60000d;
+            case "h":
+                return result * 3600000d;
+            default:
+                return result;
+        }
+    }
+
+    private static double bytes(final String value) {
+        final double result = quantity(value);
+        switch (unit(value)) {
+            case "kB":
+                return result * 1024d;
+            case "MB":
+                return result * 1024d * 1024d;
+            case "GB":
+                return result * 1024d * 1024d * 1024d;
+            default:
+                return result;
+        }
+    }
+
+    private static double quantity(final String value) {
+        final Matcher matcher = QUANTITY.matcher(value == null ? "" : value.trim());
+        if (matcher.find()) {
+            try {
+                return Double.parseDouble(matcher.group(1).replace(",", ""));
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        return 0d;
+    }
+
+    private static String unit(final String value) {
+        final Matcher matcher = QUANTITY.matcher(value == null ? "" : value.trim());
+        return (matcher.find() ? matcher.group(2) : "");
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jboss.logging.Logger;
+import org.wildfly.core.launcher.ProcessHelper;
+
+/**
+ * Locates the JVMs of a running server with the JDK tools. The server scripts start the JVMs as children of a shell so
+ * the {@link Process} returned when starting a script is not the server JVM.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class JvmProcesses {
+    private static final Logger LOGGER = Logger.getLogger(JvmProcesses.class);
+
+    // The process type marker the scripts and the process controller add to the command line, e.g. -D[Standalone]
+    private static final Pattern ROLE_PATTERN = Pattern.compile("-D\\[([^\\]]+)\\]");
+
+    private JvmProcesses() {
+    }
+
+    /**
+     * Finds the JVMs running from the WildFly home directory. The JVMs are found with {@code jps} so a JDK is
+     * required.
+     *
+     * @param wildflyHome the WildFly home directory of the server
+     *
+     * @return the running JVMs, an empty list if none are found or {@code jps} is not available
+     */
+    public static List<JvmProcess> find(final Path wildflyHome) {
+        final String homeProperty = "-Djboss.home.dir=" + wildflyHome.toAbsolutePath().normalize();
+        final List<JvmProcess> result = new ArrayList<>();
+        try {
+            for (String line : execute(10L, TimeUnit.SECONDS, findTool("jps").toString(), "-v")) {
+                if (!line.contains(homeProperty)) {
+                    continue;
+                }
+                final int space = line.indexOf(' ');
+                if (space <= 0) {
+                    continue;
+                }
+                final long pid;
+                try {
+                    pid = Long.parseLong(line.substring(0, space));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                final Matcher matcher = ROLE_PATTERN.matcher(line);
+                result.add(new JvmProcess(pid, matcher.find() ? matcher.group(1) : "Unknown", line.substring(space + 1)));
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Failed to find the JVM processes", e);
+        }
+        return result;
+    }
+
+    /**
+     * Locates a JDK tool. The tool is searched for in the {@code bin} directory of the {@code java.home} and its
+     * parent, which is where the tool is for a JRE in a JDK. If the tool is not found the name of the tool is
+     * returned and it is expected to be on the path.
+     *
+     * @param name the name of the tool, e.g. {@code jstack}
+     *
+     * @return the path to the tool
+     */
+    public static Path findTool(final String name) {
+        // Environment is not used as it requires the WildFly distribution to be initialized
+        final boolean windows = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("win");
+        final String fileName = (windows ? name + ".exe" : name);
+        final Path javaHome = Paths.get(System.getProperty("java.home"));
+        for (Path dir : Arrays.asList(javaHome.resolve("bin"), javaHome.getParent().resolve("bin"))) {
+            final Path tool = dir.resolve(fileName);
+            if (Files.isExecutable(tool)) {
+                return tool;
+            }
+        }
+        return Paths.get(fileName);
+    }
+
+    /**
+     * Executes a command and returns the output of the command. If the command does not complete within the timeout
+     * the command is destroyed and the output so far is returned.
+     *
+     * @param timeout the maximum time to wait for the command
+     * @param unit    the unit for the timeout
+     * @param cmd     the command
+     *
+     * @return the output, standard out and standard error, of the command
+     *
+     * @throws IOException if the command could not be executed
+     */
+    public static List<String> execute(final long timeout, final TimeUnit unit, final String... cmd) throws IOException {
+        final Process process = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        final List<String> lines = new ArrayList<>();
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(), Charset.defaultCharset()))) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        synchronized (lines) {
+                            lines.add(line);
+                        }
+                    }
+                } catch (IOException e) {
+                    LOGGER.tracef(e, "Error reading the output of %s", Arrays.toString(cmd));
+                }
+            }
+        }, "jvm-tool-reader");
+        reader.setDaemon(true);
+        reader.start();
+        try {
+            if (!ServerHelper.waitForProcessExit(process, timeout, unit)) {
+                LOGGER.debugf("Command %s did not complete within %d %s", Arrays.toString(cmd), timeout, unit);
+                ProcessHelper.destroyProcess(process);
+            }
+            reader.join(unit.toMillis(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lines) {
+            return new ArrayList<>(lines);
+        }
+    }
+
+    /**
+     * A running JVM.
+     */
+    public static class JvmProcess {
+        /**
+         * The process id
+         */
+        public final long pid;
+        /**
+         * The role of the process, e.g. {@code Standalone}, {@code Host Controller} or {@code Server:server-one}
+         */
+        public final String role;
+        /**
+         * The main class and arguments of the process as reported by {@code jps -v}
+         */
+        public final String arguments;
+
+        JvmProcess(final long pid, final String role, final String arguments) {
+            this.pid = pid;
+            this.role = role;
+            this.arguments = arguments;
+        }
+
+        @Override
+        public String toString() {
+            return role + " (" + pid + ")";
+        }
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.jboss.logging.Logger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Trims a WildFly distribution to the modules required to run the scripts with the configurations of the
+ * distribution.
+ * <p/>
+ * The required modules are the closure of the module dependency graph, built from the {@code module.xml} files, of
+ * the following root modules:
+ * <ul>
+ * <li>the entry modules of the standalone, domain, CLI and add-user scripts and the log manager jboss-modules
+ * installs</li>
+ * <li>every module referenced with a {@code module} attribute, e.g. an extension or a custom handler, in the XML
+ * files of the {@code standalone/configuration} and {@code domain/configuration} directories</li>
+ * <li>the modules listed in the comma delimited {@code wildfly.test.minimal.modules} system property</li>
+ * </ul>
+ * Optional dependencies are included if the module exists. Modules are resolved in the order jboss-modules searches the
+ * module roots, see {@code modules/layers.conf}. Every copy of a module which is not required is deleted.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class MinimalDistribution {
+    private static final Logger LOGGER = Logger.getLogger(MinimalDistribution.class);
+
+    private static final String DEFAULT_SLOT = "main";
+
+    private static final List<String> BOOT_MODULES = Arrays.asList(
+            "org.jboss.as.standalone",
+            "org.jboss.as.process-controller",
+            "org.jboss.as.host-controller",
+            "org.jboss.as.server",
+            "org.jboss.as.cli",
+            "org.jboss.as.domain-add-user",
+            "org.jboss.logmanager",
+            // Loaded by name by the management interfaces
+            "org.jboss.as.domain-http-error-context",
+            "org.jboss.as.console"
+    );
+
+    private MinimalDistribution() {
+    }
+
+    /**
+     * Copies the distribution and trims the copy.
+     *
+     * @param source the WildFly home directory to copy
+     * @param target the directory to copy to, any previous copy is deleted
+     *
+     * @return the target directory
+     *
+     * @throws IOException if an error occurs copying or trimming the distribution
+     */
+    public static Path create(final Path source, final Path target) throws IOException {
+        Directories.replace(source, target);
+        trim(target);
+        return target;
+    }
+
+    /**
+     * Deletes the modules not required by the distribution.
+     *
+     * @param wildflyHome the WildFly home directory to trim
+     *
+     * @return the identifiers, {@code name:slot}, of the deleted modules
+     *
+     * @throws IOException if an error occurs reading or deleting the modules
+     */
+    public static Set<String> trim(final Path wildflyHome) throws IOException {
+        final Map<String, ModuleDescription> modules = findModules(wildflyHome.resolve("modules"));
+        final Set<String> required = requiredModules(wildflyHome, modules);
+        final Set<String> removed = new TreeSet<>();
+        long removedBytes = 0L;
+        for (ModuleDescription module : modules.values()) {
+            if (!required.contains(module.id)) {
+                final List<Path> dirs = new ArrayList<>(module.copies);
+                dirs.add(0, module.dir);
+                for (Path dir : dirs) {
+                    removedBytes += Directories.size(dir);
+                    Directories.recursiveDelete(dir);
+                    deleteEmptyParents(dir.getParent(), wildflyHome.resolve("modules"));
+                }
+                removed.add(module.id);
+            }
+        }
+        LOGGER.infof("Removed %d of %d modules (%d MB) from %s", removed.size(), modules.size(), removedBytes / (1024L * 1024L), wildflyHome);
+        LOGGER.debugf("Removed modules: %s", removed);
+        return removed;
+    }
+
+    /**
+     * Computes the modules required by the distribution.
+     *
+     * @param wildflyHome the WildFly home directory
+     *
+     * @return the identifiers, {@code name:slot}, of the required modules
+     *
+     * @throws IOException if an error occurs reading the module descriptors or the configuration files
+     */
+    public static Set<String> requiredModules(final Path wildflyHome) throws IOException {
+        return requiredModules(wildflyHome, findModules(wildflyHome.resolve("modules")));
+    }
+
+    /**
+     * Counts the modules, including module aliases, of the distribution.
+     *
+     * @param wildflyHome the WildFly home directory
+     *
+     * @return the number of modules
+     *
+     * @throws IOException if an error occurs reading the module descriptors
+     */
+    public static int countModules(final Path wildflyHome) throws IOException {
+        return findModules(wildflyHome.resolve("modules")).size();
+    }
+
+    private static Set<String> requiredModules(final Path wildflyHome, final Map<String, ModuleDescription> modules) throws IOException {
+        final Deque<String> queue = new ArrayDeque<>();
+        for (String name : BOOT_MODULES) {
+            queue.add(id(name, null));
+        }
+        for (String dir : Arrays.asList("standalone", "domain")) {
+            final Path configDir = wildflyHome.resolve(dir).resolve("configuration");
+            if (Files.isDirectory(configDir)) {
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(configDir, "*.xml")) {
+                    for (Path config : stream) {
+                        collectModuleAttributes(parse(config).getDocumentElement(), queue);
+                    }
+                }
+            }
+        }
+        for (String name : System.getProperty("wildfly.test.minimal.modules", "").split(",")) {
+            if (!name.trim().isEmpty()) {
+                queue.add(id(name.trim(), null));
+            }
+        }
+        final Set<String> result = new LinkedHashSet<>();
+        while (!queue.isEmpty()) {
+            final String id = queue.poll();
+            final ModuleDescription module = modules.get(id);
+            if (module == null) {
+                // Optional modules, e.g. the console, may not exist in every distribution
+                LOGGER.debugf("Module %s was not found", id);
+                continue;
+            }
+            if (result.add(id)) {
+                queue.addAll(module.dependencies);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the modules in the order jboss-modules searches the module roots. The first copy of a module found is the
+     * one jboss-modules loads, any other copies are kept with it so they are deleted with it.
+     */
+    private static Map<String, ModuleDescription> findModules(final Path modulesDir) throws IOException {
+        final Map<String, ModuleDescription> result = new HashMap<>();
+        final Path systemDir = modulesDir.resolve("system");
+        for (final Path root : moduleRoots(modulesDir)) {
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+                    // The layers, add-ons and overlays are separate roots
+                    if (dir.equals(systemDir) || ".overlays".equals(String.valueOf(dir.getFileName()))) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                    if ("module.xml".equals(file.getFileName().toString())) {
+                        final ModuleDescription module = ModuleDescription.read(file);
+                        if (module != null) {
+                            final ModuleDescription first = result.get(module.id);
+                            if (first == null) {
+                                result.put(module.id, module);
+                            } else {
+                                first.copies.add(module.dir);
+                            }
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Returns the module roots in the order jboss-modules searches them: the {@code modules} directory itself, the
+     * layers listed in {@code modules/layers.conf} followed by the {@code base} layer, each preceded by its active
+     * overlays, and last the add-ons.
+     */
+    private static List<Path> moduleRoots(final Path modulesDir) throws IOException {
+        final List<String> layers = new ArrayList<>();
+        final Path layersConf = modulesDir.resolve("layers.conf");
+        if (Files.exists(layersConf)) {
+            final Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(layersConf)) {
+                properties.load(in);
+            }
+            for (String layer : properties.getProperty("layers", "").split(",")) {
+                if (!layer.trim().isEmpty()) {
+                    layers.add(layer.trim());
+                }
+            }
+        }
+        if (!layers.contains("base")) {
+            layers.add("base");
+        }
+        final List<Path> result = new ArrayList<>();
+        result.add(modulesDir);
+        for (String layer : layers) {
+            addRootWithOverlays(result, modulesDir.resolve("system").resolve("layers").resolve(layer));
+        }
+        final Path addOnsDir = modulesDir.resolve("system").resolve("add-ons");
+        if (Files.isDirectory(addOnsDir)) {
+            final List<Path> addOns = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(addOnsDir)) {
+                for (Path addOn : stream) {
+                    if (Files.isDirectory(addOn)) {
+                        addOns.add(addOn);
+                    }
+                }
+            }
+            Collections.sort(addOns);
+            for (Path addOn : addOns) {
+                addRootWithOverlays(result, addOn);
+            }
+        }
+        return result;
+    }
+
+    private static void addRootWithOverlays(final List<Path> roots, final Path root) throws IOException {
+        final Path overlaysDir = root.resolve(".overlays");
+        final Path activeOverlays = overlaysDir.resolve(".overlays");
+        if (Files.exists(activeOverlays)) {
+            for (String overlay : Files.readAllLines(activeOverlays, StandardCharsets.UTF_8)) {
+                if (!overlay.trim().isEmpty()) {
+                    roots.add(overlaysDir.resolve(overlay.trim()));
+                }
+            }
+        }
+        roots.add(root);
+    }
+
+    private static void collectModuleAttributes(final Element element, final Deque<String> queue) {
+        final String module = element.getAttribute("module");
+        if (!module.isEmpty() && !module.contains("${")) {
+            final String slot = element.getAttribute("slot");
+            queue.add(id(module, slot));
+        }
+        final NodeList children = element.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            final Node child = children.item(i);
+            if (child instanceof Element) {
+                collectModuleAttributes((Element) child, queue);
+            }
+        }
+    }
+
+    private static void deleteEmptyParents(final Path dir, final Path modulesDir) throws IOException {
+        Path current = dir;
+        while (current != null && current.startsWith(modulesDir) && !current.equals(modulesDir) && Files.isDirectory(current)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(current)) {
+                if (stream.iterator().hasNext()) {
+                    return;
+                }
+            }
+            Files.delete(current);
+            current = current.getParent();
+        }
+    }
+
+    private static Document parse(final Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            final DocumentBuilder builder = factory.newDocumentBuilder();
+            return builder.parse(in);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Failed to parse " + file, e);
+        }
+    }
+
+    private static String id(final String name, final String slot) {
+        return name + ":" + (slot == null || slot.isEmpty() ? DEFAULT_SLOT : slot);
+    }
+
+    /**
+     * A module, or module alias, and its dependencies.
+     */
+    private static class ModuleDescription {
+        final String id;
+        final Path dir;
+        final List<String> dependencies;
+        // Copies of the module in roots searched later, which jboss-modules does not load
+        final List<Path> copies;
+
+        private ModuleDescription(final String id, final Path dir) {
+            this.id = id;
+            this.dir = dir;
+            dependencies = new ArrayList<>();
+            copies = new ArrayList<>();
+        }
+
+        static ModuleDescription read(final Path moduleXml) throws IOException {
+            final Element root = parse(moduleXml).getDocumentElement();
+            final String name = root.getAttribute("name");
+            if (name.isEmpty()) {
+                return null;
+            }
+            final ModuleDescription result = new ModuleDescription(id(name, root.getAttribute("slot")), moduleXml.getParent());
+            if ("module-alias".equals(root.getTagName())) {
+                result.dependencies.add(id(root.getAttribute("target-name"), root.getAttribute("target-slot")));
+                return result;
+            }
+            final NodeList dependencies = root.getElementsByTagName("dependencies");
+            for (int i = 0; i < dependencies.getLength(); i++) {
+                final NodeList children = dependencies.item(i).getChildNodes();
+                for (int j = 0; j < children.getLength(); j++) {
+                    final Node child = children.item(j);
+                    if (child instanceof Element && "module".equals(((Element) child).getTagName())) {
+                        final Element dependency = (Element) child;
+                        result.dependencies.add(id(dependency.getAttribute("name"), dependency.getAttribute("slot")));
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -45,6 +45,10 @@ import org.wildfly.core.launcher.ProcessHelper;
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
 public class ServerHelper {
+    /**
+     * The default time, in seconds, to wait for a server to start.
+     */
+    public static final long DEFAULT_STARTUP_TIMEOUT = 30L;
     public static final ModelNode EMPTY_ADDRESS = new ModelNode().setEmptyList();
     private static final Logger LOGGER = Logger.getLogger(ServerHelper.class);
 
@@ -53,13 +57,35 @@ public class ServerHelper {
     }
 
     public static ModelControllerClient createClientConnection() throws UnknownHostException {
-        return ModelControllerClient.Factory.create(Environment.HOSTNAME, Environment.PORT);
+        return createClientConnection(Environment.PORT);
+    }
+
+    public static ModelControllerClient createClientConnection(final int port) throws UnknownHostException {
+        return createClientConnection(Environment.HOSTNAME, port);
+    }
+
+    /**
+     * Creates a client for a server whose management interface is bound to an address other than the
+     * {@linkplain Environment#HOSTNAME default host}, e.g. when started with {@code -bmanagement}.
+     *
+     * @param host the host the management interface is bound to
+     * @param port the management port
+     *
+     * @return the client
+     *
+     * @throws UnknownHostException if the host could not be resolved
+     */
+    public static ModelControllerClient createClientConnection(final String host, final int port) throws UnknownHostException {
+        return ModelControllerClient.Factory.create(host, port);
     }
 
 
     public static Map<ServerIdentity, ServerStatus> waitForDomain(final Process process, final DomainClient client) throws InterruptedException, IOException {
+        return waitForDomain(process, client, DEFAULT_STARTUP_TIMEOUT);
+    }
+
+    public static Map<ServerIdentity, ServerStatus> waitForDomain(final Process process, final DomainClient client, final long startupTimeout) throws InterruptedException, IOException {
         final Map<ServerIdentity, ServerStatus> servers = new HashMap<>();
-        long startupTimeout = 30;
         long timeout = startupTimeout * 1000;
         boolean serverAvailable = false;
         long sleep = 1000;
@@ -77,7 +103,7 @@ public class ServerHelper {
             }
         }
         if (!serverAvailable) {
-            throw new RuntimeException("Server was not started within 30s");
+            throw new RuntimeException(String.format("Server was not started within %ds", startupTimeout));
         }
         return servers;
     }
@@ -87,7 +113,6 @@ public class ServerHelper {
     }
 
     public static void shutdownDomain(final DomainClient client, final Map<ServerIdentity, ServerStatus> servers) {
-        final ModelNode address = new ModelNode().setEmptyList().add("host", "master");
         try {
             // First shutdown the servers
             ModelNode op = Operations.createOperation("stop-servers");
@@ -95,7 +120,18 @@ public class ServerHelper {
             // Wait for a moment so they servers can shut down
             TimeUnit.SECONDS.sleep(3L);
             if (Operations.isSuccessfulOutcome(response)) {
-                op = Operations.createOperation("shutdown", address);
+                // Shutdown any slave host controllers before the domain controller
+                final String localHostName = getLocalHostName(client);
+                for (String hostName : client.getHostControllerNames()) {
+                    if (!hostName.equals(localHostName)) {
+                        op = Operations.createOperation("shutdown", new ModelNode().setEmptyList().add("host", hostName));
+                        response = client.execute(op);
+                        if (!Operations.isSuccessfulOutcome(response)) {
+                            LOGGER.debugf("Failed to execute %s: %s", op, Operations.getFailureDescription(response));
+                        }
+                    }
+                }
+                op = Operations.createOperation("shutdown", new ModelNode().setEmptyList().add("host", localHostName));
                 response = client.execute(op);
                 if (Operations.isSuccessfulOutcome(response)) {
                     // Wait until the process has died
@@ -121,6 +157,27 @@ public class ServerHelper {
         }
     }
 
+    /**
+     * Returns the name of the host controller the client is connected to, which is the domain controller. If the name
+     * cannot be determined {@code master} is returned.
+     *
+     * @param client the client connected to the domain controller
+     *
+     * @return the name of the local host controller
+     */
+    public static String getLocalHostName(final ModelControllerClient client) {
+        try {
+            final ModelNode response = client.execute(Operations.createReadAttributeOperation(EMPTY_ADDRESS, "local-host-name"));
+            if (Operations.isSuccessfulOutcome(response)) {
+                return Operations.readResult(response).asString();
+            }
+            LOGGER.debugf("Failed to determine the local host name: %s", Operations.getFailureDescription(response));
+        } catch (IOException e) {
+            LOGGER.trace("Error determining the local host name", e);
+        }
+        return "master";
+    }
+
     public static void waitForStandalone(final Process process) throws InterruptedException, IOException {
         try (final ModelControllerClient client = createClientConnection()) {
             waitForStandalone(process, client);
@@ -128,7 +185,10 @@ public class ServerHelper {
     }
 
     public static void waitForStandalone(final Process process, final ModelControllerClient client) throws InterruptedException, IOException {
-        long startupTimeout = 30;
+        waitForStandalone(process, client, DEFAULT_STARTUP_TIMEOUT);
+    }
+
+    public static void waitForStandalone(final Process process, final ModelControllerClient client, final long startupTimeout) throws InterruptedException, IOException {
         long timeout = startupTimeout * 1000;
         boolean serverAvailable = false;
         long sleep = 1000;
@@ -146,7 +206,7 @@ public class ServerHelper {
             }
         }
         if (!serverAvailable) {
-            throw new RuntimeException("Server was not started within 30s");
+            throw new RuntimeException(String.format("Server was not started within %ds", startupTimeout));
         }
     }
 
@@ -205,6 +265,28 @@ public class ServerHelper {
         }
     }
 
+    /**
+     * Waits for the process to exit.
+     *
+     * @param process the process to wait for
+     * @param timeout the maximum time to wait
+     * @param unit    the unit for the timeout
+     *
+     * @return {@code true} if the process exited, otherwise {@code false} if the timeout was reached first
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static boolean waitForProcessExit(final Process process, final long timeout, final TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!ProcessHelper.processHasDied(process)) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(20L);
+        }
+        return true;
+    }
+
     private static boolean isDomainRunning(final DomainClient client, final Map<ServerIdentity, ServerStatus> servers, boolean shutdown) {
         try {
             final Map<ServerIdentity, ServerStatus> statuses = client.getServerStatuses();
@@ -0,0 +1,306 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The trace of a shell script run with {@code bash -x} and the {@linkplain #PS4 trace prompt} of this class. Each
+ * traced command is prefixed with the wall clock time, in microseconds, and the script file and line. The time of a
+ * command is the time until the next traced command.
+ * <p/>
+ * The script has handed over to the JVM when the first command referencing {@code jboss-modules.jar} is traced. The
+ * commands traced after that, e.g. waiting for the JVM, are not part of the script overhead and are not included in
+ * the {@linkplain #getSteps() steps}.
+ * <p/>
+ * Note that the {@code EPOCHREALTIME} variable used for the time stamps requires bash 5.0 or higher. Older versions
+ * leave the time stamp empty and the trace will not contain any commands.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ShellTrace {
+
+    /**
+     * The prompt for the {@code PS4} environment variable. Bash repeats the first character for each level of
+     * indirection, e.g. a command substitution.
+     */
+    public static final String PS4 = "+|trace|${EPOCHREALTIME}|${BASH_SOURCE##*/}:${LINENO}| ";
+
+    public static final String CONF = "conf";
+    public static final String JAVA_VERSION = "java-version";
+    public static final String HOME = "home";
+    public static final String JAVA_OPTS = "java-opts";
+    public static final String OTHER = "other";
+
+    private static final Pattern TRACE_LINE = Pattern.compile("^(\\++)\\|trace\\|(\\d+)[.,](\\d{6})\\|([^|]*)\\| ?(.*)$");
+    private static final String JVM_MARKER = "jboss-modules.jar";
+
+    private final List<Step> steps;
+    private final long startMicros;
+    private final long execMicros;
+
+    private ShellTrace(final List<Step> steps, final long startMicros, final long execMicros) {
+        this.steps = steps;
+        this.startMicros = startMicros;
+        this.execMicros = execMicros;
+    }
+
+    /**
+     * Parses the trace from the output of a script. Lines which are not traced commands are ignored.
+     *
+     * @param lines the output lines of the script
+     *
+     * @return the trace
+     */
+    public static ShellTrace parse(final List<String> lines) {
+        final List<Step> steps = new ArrayList<>();
+        long startMicros = -1L;
+        long execMicros = -1L;
+        Step previous = null;
+        for (String line : lines) {
+            final Matcher matcher = TRACE_LINE.matcher(line);
+            if (!matcher.matches()) {
+                continue;
+            }
+            final long micros = Long.parseLong(matcher.group(2)) * 1000000L + Long.parseLong(matcher.group(3));
+            if (previous != null) {
+                previous.micros = micros - previous.timestamp;
+            }
+            if (startMicros < 0L) {
+                startMicros = micros;
+            }
+            final String command = matcher.group(5);
+            if (command.contains(JVM_MARKER)) {
+                execMicros = micros;
+                break;
+            }
+            // Commands without a source file are the commands of the tracing wrapper
+            final String location = matcher.group(4);
+            if (location.startsWith(":")) {
+                previous = null;
+                continue;
+            }
+            previous = new Step(micros, matcher.group(1).length(), location, command);
+            steps.add(previous);
+        }
+        // Sourced files are traced one level deeper than the sourcing script, the lowest depth of each file is the depth
+        // of the commands of the file itself
+        final Map<String, Integer> baseDepths = new LinkedHashMap<>();
+        final Map<String, String> categories = new LinkedHashMap<>();
+        for (Step step : steps) {
+            final String file = step.getFile();
+            final Integer baseDepth = baseDepths.get(file);
+            if (baseDepth == null || step.depth < baseDepth) {
+                baseDepths.put(file, step.depth);
+            }
+            final String category = categories.get(step.location);
+            if (category == null || OTHER.equals(category)) {
+                categories.put(step.location, categorize(step));
+            }
+        }
+        // All commands of a line, e.g. a pipeline, have the same category
+        for (Step step : steps) {
+            step.subshell = step.depth > baseDepths.get(step.getFile());
+            step.category = categories.get(step.location);
+        }
+        return new ShellTrace(Collections.unmodifiableList(steps), startMicros, execMicros);
+    }
+
+    /**
+     * Returns the wall clock time, in microseconds since the epoch, of the first traced command.
+     *
+     * @return the time of the first command or {@code -1} if no commands were traced
+     */
+    public long getStartMicros() {
+        return startMicros;
+    }
+
+    /**
+     * Returns the wall clock time, in microseconds since the epoch, the script launched the JVM.
+     *
+     * @return the time the JVM was launched or {@code -1} if the launch was not traced
+     */
+    public long getExecMicros() {
+        return execMicros;
+    }
+
+    /**
+     * Indicates whether the launch of the JVM was traced.
+     *
+     * @return {@code true} if the JVM launch was found in the trace
+     */
+    public boolean isComplete() {
+        return execMicros >= 0L;
+    }
+
+    /**
+     * Returns the time, in milliseconds, from the first traced command until the JVM was launched.
+     *
+     * @return the time spent in the script or {@code -1} if the JVM launch was not traced
+     */
+    public double getScriptMillis() {
+        return (isComplete() ? (execMicros - startMicros) / 1000d : -1d);
+    }
+
+    /**
+     * Returns the commands executed before the JVM was launched in the order they were executed.
+     *
+     * @return the steps of the script
+     */
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Returns the total time, in milliseconds, of each category of steps.
+     *
+     * @return the time of each {@linkplain Step#getCategory() category}
+     */
+    public Map<String, Double> getCategoryMillis() {
+        final Map<String, Double> result = new LinkedHashMap<>();
+        for (String category : new String[] {HOME, CONF, JAVA_VERSION, JAVA_OPTS, OTHER}) {
+            result.put(category, 0d);
+        }
+        for (Step step : steps) {
+            result.put(step.category, result.get(step.category) + step.getMillis());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of commands executed in a subshell, e.g. a command substitution. Each subshell requires a fork
+     * of the shell.
+     *
+     * @return the number of commands executed in a subshell
+     */
+    public int getSubshellCommands() {
+        int result = 0;
+        for (Step step : steps) {
+            if (step.subshell) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private static String categorize(final Step step) {
+        final String location = step.location;
+        final String command = step.command;
+        if (location.contains(".conf")) {
+            return CONF;
+        }
+        if (command.contains("-version")) {
+            return JAVA_VERSION;
+        }
+        if (command.contains("JBOSS_HOME") || command.contains("_BASE_DIR") || command.contains("dirname") ||
+                command.contains("readlink") || command.startsWith("cd ") || command.equals("pwd")) {
+            return HOME;
+        }
+        if (command.contains("JAVA_OPTS")) {
+            return JAVA_OPTS;
+        }
+        return OTHER;
+    }
+
+    /**
+     * A traced command.
+     */
+    public static class Step {
+        private final long timestamp;
+        private final int depth;
+        /**
+         * The script file and line of the command, e.g. {@code standalone.sh:42}
+         */
+        public final String location;
+        /**
+         * The command as expanded by the shell
+         */
+        public final String command;
+        private long micros;
+        private boolean subshell;
+        private String category;
+
+        private Step(final long timestamp, final int depth, final String location, final String command) {
+            this.timestamp = timestamp;
+            this.depth = depth;
+            this.location = location;
+            this.command = command;
+        }
+
+        /**
+         * Returns the name of the script file of the command.
+         *
+         * @return the script file
+         */
+        public String getFile() {
+            final int index = location.lastIndexOf(':');
+            return (index < 0 ? location : location.substring(0, index));
+        }
+
+        /**
+         * Returns the time, in milliseconds, until the next traced command.
+         *
+         * @return the time of the command
+         */
+        public double getMillis() {
+            return micros / 1000d;
+        }
+
+        /**
+         * Returns the category of the command:
+         * <ul>
+         * <li>{@code conf} commands of the sourced {@code .conf} file</li>
+         * <li>{@code java-version} checks of the java version</li>
+         * <li>{@code home} resolving the home and base directories</li>
+         * <li>{@code java-opts} building the JVM options</li>
+         * <li>{@code other} any other command</li>
+         * </ul>
+         * All commands on the same line of a script have the same category.
+         *
+         * @return the category of the command
+         */
+        public String getCategory() {
+            return category;
+        }
+
+        /**
+         * Indicates whether the command was executed in a subshell, e.g. a command substitution.
+         *
+         * @return {@code true} if the command was executed in a subshell
+         */
+        public boolean isSubshell() {
+            return subshell;
+        }
+
+        @Override
+        public String toString() {
+            return location + " " + command;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Working copies of a WildFly home directory which are renamed to the name of each variant rather than copied. A copy
+ * is only made when no idle working copy is available, so the number of copies is the number of variants in use at
+ * the same time rather than the number of variants.
+ * <p/>
+ * When a variant is released the mutable directories, {@code configuration}, {@code data}, {@code log} and {@code tmp}
+ * of the standalone and domain directories and the servers of the domain, are reset from a snapshot taken of the source
+ * when the workspace was created. Any other change made to the working copy is kept for the next variant.
+ * <p/>
+ * The variants are created in a single parent directory so renaming a working copy is a move on the same file system.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class VariantWorkspace implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(VariantWorkspace.class);
+
+    private static final String SNAPSHOT_DIR = ".snapshot";
+    private static final List<String> MUTABLE_DIRS = Arrays.asList(
+            "standalone/data",
+            "standalone/log",
+            "standalone/tmp",
+            "domain/data",
+            "domain/log",
+            "domain/tmp",
+            "domain/servers",
+            // The server writes to the configuration, e.g. logging.properties and the configuration history, on boot
+            "standalone/configuration",
+            "domain/configuration"
+    );
+
+    private final Path source;
+    private final Path parent;
+    private final Path snapshot;
+    private final Deque<Path> idle = new ArrayDeque<>();
+    private final List<Path> inUse = new ArrayList<>();
+    private int copies;
+    private int moves;
+
+    private VariantWorkspace(final Path source, final Path parent, final Path snapshot) {
+        this.source = source;
+        this.parent = parent;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Creates a workspace for variants of the source directory. Any previous content of the parent directory is
+     * deleted.
+     *
+     * @param source the WildFly home directory to create the variants from
+     * @param parent the directory the variants are created in
+     *
+     * @return the workspace
+     *
+     * @throws IOException if an error occurs creating the snapshot of the mutable directories
+     */
+    public static VariantWorkspace create(final Path source, final Path parent) throws IOException {
+        if (Files.exists(parent)) {
+            Directories.recursiveDelete(parent);
+        }
+        final Path snapshot = parent.resolve(SNAPSHOT_DIR);
+        Files.createDirectories(snapshot);
+        for (String dir : MUTABLE_DIRS) {
+            final Path mutableDir = source.resolve(dir);
+            if (Files.isDirectory(mutableDir)) {
+                final Path target = snapshot.resolve(dir);
+                Files.createDirectories(target);
+                Directories.copy(mutableDir, target);
+            }
+        }
+        return new VariantWorkspace(source, parent, snapshot);
+    }
+
+    /**
+     * Returns a working copy with the name of the variant. An idle working copy is renamed if available, otherwise a
+     * new copy of the source is made.
+     *
+     * @param name the name of the variant
+     *
+     * @return the path to the working copy
+     *
+     * @throws IOException if an error occurs moving or copying the working copy
+     */
+    public synchronized Path acquire(final String name) throws IOException {
+        final Path target = parent.resolve(name).normalize();
+        if (inUse.contains(target)) {
+            throw new IllegalStateException("The variant " + name + " is already in use");
+        }
+        Path workingCopy = (idle.remove(target) ? target : idle.pollFirst());
+        if (workingCopy == null) {
+            Directories.replace(source, target);
+            copies++;
+        } else if (!workingCopy.equals(target)) {
+            if (Files.exists(target)) {
+                Directories.recursiveDelete(target);
+            }
+            try {
+                Files.move(workingCopy, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                LOGGER.debugf(e, "Could not rename %s to %s, copying it instead", workingCopy, target);
+                Files.move(workingCopy, target);
+            }
+            moves++;
+        }
+        inUse.add(target);
+        return target;
+    }
+
+    /**
+     * Releases a working copy so it can be renamed to the next variant. The mutable directories are reset from the
+     * snapshot. If the reset fails the working copy is deleted.
+     *
+     * @param workingCopy the working copy returned from {@link #acquire(String)}
+     */
+    public synchronized void release(final Path workingCopy) {
+        if (workingCopy == null || !inUse.remove(workingCopy)) {
+            return;
+        }
+        try {
+            reset(workingCopy);
+            idle.addLast(workingCopy);
+        } catch (IOException e) {
+            LOGGER.debugf(e, "Failed to reset %s, the working copy is discarded", workingCopy);
+            deleteQuietly(workingCopy);
+        }
+    }
+
+    /**
+     * Returns the number of copies of the source which were made.
+     *
+     * @return the number of copies
+     */
+    public synchronized int getCopies() {
+        return copies;
+    }
+
+    /**
+     * Returns the number of times a working copy was renamed to a variant.
+     *
+     * @return the number of renames
+     */
+    public synchronized int getMoves() {
+        return moves;
+    }
+
+    /**
+     * Deletes the working copies and the snapshot.
+     */
+    @Override
+    public synchronized void close() {
+        LOGGER.debugf("Created %d working copies and %d renames in %s", copies, moves, parent);
+        for (Path workingCopy : idle) {
+            deleteQuietly(workingCopy);
+        }
+        for (Path workingCopy : inUse) {
+            deleteQuietly(workingCopy);
+        }
+        idle.clear();
+        inUse.clear();
+        deleteQuietly(snapshot);
+    }
+
+    private void reset(final Path workingCopy) throws IOException {
+        for (String dir : MUTABLE_DIRS) {
+            final Path mutableDir = workingCopy.resolve(dir);
+            if (Files.exists(mutableDir)) {
+                Directories.recursiveDelete(mutableDir);
+            }
+            final Path snapshotDir = snapshot.resolve(dir);
+            if (Files.exists(snapshotDir)) {
+                Files.createDirectories(mutableDir);
+                Directories.copy(snapshotDir, mutableDir);
+            }
+        }
+    }
+
+    private static void deleteQuietly(final Path path) {
+        if (Files.exists(path)) {
+            try {
+                Directories.recursiveDelete(path);
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helpers for reading benchmark configuration from system properties.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class BenchmarkProperties {
+
+    private BenchmarkProperties() {
+    }
+
+    /**
+     * Reads a comma delimited list of integers from a system property.
+     *
+     * @param key          the system property key
+     * @param defaultValue the default comma delimited value
+     *
+     * @return the values
+     */
+    public static int[] getIntegers(final String key, final String defaultValue) {
+        final List<String> values = getStrings(key, defaultValue);
+        final int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            try {
+                result[i] = Integer.parseInt(values.get(i));
+            } catch (NumberFormatException e) {
+                throw new RuntimeException(String.format("Invalid value for %s: %s", key, values.get(i)), e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads a comma delimited list of values from a system property. Empty values are ignored.
+     *
+     * @param key          the system property key
+     * @param defaultValue the default comma delimited value
+     *
+     * @return the values
+     */
+    public static List<String> getStrings(final String key, final String defaultValue) {
+        final List<String> result = new ArrayList<>();
+        for (String value : System.getProperty(key, defaultValue).split(",")) {
+            final String trimmed = value.trim();
+            if (!trimmed.isEmpty()) {
+                result.add(trimmed);
+            }
+        }
+        return result;
+    }
+
+    public static double getDouble(final String key, final double defaultValue) {
+        final String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException(String.format("Invalid value for %s: %s", key, value), e);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import static org.wildfly.test.util.Environment.NEW_LINE;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.as.controller.client.helpers.domain.DomainClient;
+import org.jboss.as.controller.client.helpers.domain.ServerStatus;
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.wildfly.core.launcher.ProcessHelper;
+import org.wildfly.test.scripts.ServerScriptRunner;
+import org.wildfly.test.util.Directories;
+import org.wildfly.test.util.Environment;
+import org.wildfly.test.util.ServerHelper;
+
+/**
+ * Common helpers for the benchmarks.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    /**
+     * Starts the server and waits for it to be running. If the server process dies the test fails with the console
+     * output of the server.
+     *
+     * @param runner the runner to start the server with
+     * @param args   the arguments for the script
+     *
+     * @return the process
+     *
+     * @throws IOException          if an error occurs starting the server
+     * @throws InterruptedException if interrupted while waiting for the server
+     */
+    public static Process startAndWait(final ServerScriptRunner runner, final String... args) throws IOException, InterruptedException {
+        return startAndWait(runner, Arrays.asList(args));
+    }
+
+    /**
+     * Starts the server and waits for it to be running. If the server process dies the test fails with the console
+     * output of the server.
+     *
+     * @param runner the runner to start the server with
+     * @param args   the arguments for the script
+     *
+     * @return the process
+     *
+     * @throws IOException          if an error occurs starting the server
+     * @throws InterruptedException if interrupted while waiting for the server
+     */
+    public static Process startAndWait(final ServerScriptRunner runner, final Collection<String> args) throws IOException, InterruptedException {
+        return waitForStart(runner, runner.start(args));
+    }
+
+    /**
+     * Waits for a server started with {@link ServerScriptRunner#start(Collection)} to be running. If the server process
+     * dies the test fails with the console output of the server.
+     *
+     * @param runner  the runner the server was started with
+     * @param process the process of the server
+     *
+     * @return the process
+     *
+     * @throws IOException          if an error occurs waiting for the server
+     * @throws InterruptedException if interrupted while waiting for the server
+     */
+    public static Process waitForStart(final ServerScriptRunner runner, final Process process) throws IOException, InterruptedException {
+        runner.waitForStart(process);
+        if (ProcessHelper.processHasDied(process)) {
+            final StringBuilder msg = new StringBuilder("Server failed to start:").append(NEW_LINE);
+            for (String line : runner.readConsoleLines()) {
+                msg.append(line).append(NEW_LINE);
+            }
+            Assert.fail(msg.toString());
+        }
+        return process;
+    }
+
+    /**
+     * Shuts down the server and waits for the process to exit. If the process does not exit within 60 seconds the test
+     * fails with the console output of the server.
+     *
+     * @param runner  the runner the server was started with
+     * @param process the process of the server
+     *
+     * @throws IOException          if an error occurs shutting down the server
+     * @throws InterruptedException if interrupted while waiting for the process to exit
+     */
+    public static void shutdown(final ServerScriptRunner runner, final Process process) throws IOException, InterruptedException {
+        runner.shutdown();
+        if (!ServerHelper.waitForProcessExit(process, 60L, TimeUnit.SECONDS)) {
+            final StringBuilder msg = new StringBuilder("Server did not exit within 60 seconds of shutdown:").append(NEW_LINE);
+            for (String line : runner.readConsoleLines()) {
+                msg.append(line).append(NEW_LINE);
+            }
+            Assert.fail(msg.toString());
+        }
+    }
+
+    /**
+     * Shuts down the domain the default client connects to and measures the time until every process has exited. The
+     * servers are stopped first, then the slave host controllers and last the domain controller.
+     * {@link ServerHelper#shutdownDomain(DomainClient, Map)} is not used as it sleeps for a fixed time after stopping
+     * the servers.
+     *
+     * @param processes the processes of the domain, e.g. the process of each host controller script
+     * @param timeout   the maximum time to wait for the domain to shut down in seconds
+     *
+     * @return the time, in milliseconds, from stopping the servers until every process exited
+     *
+     * @throws IOException          if an error occurs communicating with the domain controller
+     * @throws InterruptedException if interrupted while waiting for the domain to shut down
+     */
+    public static double shutdownDomain(final Collection<Process> processes, final long timeout) throws IOException, InterruptedException {
+        try (final DomainClient client = DomainClient.Factory.create(ServerHelper.createClientConnection())) {
+            final long start = System.nanoTime();
+            final long deadline = start + TimeUnit.SECONDS.toNanos(timeout);
+            executeForSuccess(client, Operations.createOperation("stop-servers"));
+            while (hasRunningServers(client)) {
+                if (System.nanoTime() - deadline >= 0) {
+                    Assert.fail(String.format("The servers did not stop within %d seconds of stop-servers", timeout));
+                }
+                TimeUnit.MILLISECONDS.sleep(20L);
+            }
+            final String localHostName = ServerHelper.getLocalHostName(client);
+            for (String hostName : client.getHostControllerNames()) {
+                if (!hostName.equals(localHostName)) {
+                    executeForSuccess(client, Operations.createOperation("shutdown", new ModelNode().setEmptyList().add("host", hostName)));
+                }
+            }
+            try {
+                executeForSuccess(client, Operations.createOperation("shutdown", new ModelNode().setEmptyList().add("host", localHostName)));
+            } catch (IOException ignore) {
+                // The connection may be closed before the response is received
+            }
+            for (Process process : processes) {
+                if (!ServerHelper.waitForProcessExit(process, Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    Assert.fail(String.format("The domain did not exit within %d seconds of shutdown", timeout));
+                }
+            }
+            return elapsedMillis(start);
+        }
+    }
+
+    /**
+     * Copies the {@linkplain Environment#WILDFLY_HOME WildFly home} into a new directory in the
+     * {@linkplain Environment#TMP_DIR temporary directory}. Any previous copy is deleted first.
+     *
+     * @param name the name of the directory
+     *
+     * @return the path to the copy
+     *
+     * @throws IOException if an error occurs copying the directory
+     */
+    public static Path copyWildFlyHome(final String name) throws IOException {
+        return Directories.replace(Environment.WILDFLY_HOME, Environment.TMP_DIR.resolve(name));
+    }
+
+    /**
+     * Deletes the directory ignoring any errors.
+     *
+     * @param dir the directory to delete
+     */
+    public static void deleteQuietly(final Path dir) {
+        if (dir != null && Files.exists(dir)) {
+            try {
+                Directories.recursiveDelete(dir);
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Creates a new array with the values appended to the leading values, e.g. to prefix report columns.
+     *
+     * @param values the values to append
+     * @param first  the leading values
+     *
+     * @return a new array containing the leading values followed by the values
+     */
+    public static String[] prepend(final String[] values, final String... first) {
+        final String[] result = Arrays.copyOf(first, first.length + values.length);
+        System.arraycopy(values, 0, result, first.length, values.length);
+        return result;
+    }
+
+    public static double elapsedMillis(final long startNanos) {
+        return (System.nanoTime() - startNanos) / 1000000d;
+    }
+
+    private static boolean hasRunningServers(final DomainClient client) {
+        for (ServerStatus status : client.getServerStatuses().values()) {
+            if (status == ServerStatus.STARTED || status == ServerStatus.STARTING || status == ServerStatus.STOPPING) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void executeForSuccess(final DomainClient client, final ModelNode op) throws IOException {
+        final ModelNode result = client.execute(op);
+        if (!Operations.isSuccessfulOutcome(result)) {
+            Assert.fail(String.format("Failed to execute %s: %s", op, Operations.getFailureDescription(result)));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.test.scripts.ServerScriptRunner;
+import org.wildfly.test.scripts.ServerType;
+import org.wildfly.test.util.BootTimeline;
+
+/**
+ * Breaks the boot of the standalone and domain servers down into phases parsed from the console output of the server.
+ * The server is booted from a number of paths so the phases of path variants can be compared. For a domain each
+ * process which logged boot messages, e.g. the host controller and each server, has its own phases.
+ * <p/>
+ * The reports include the {@code wildfly.core.version} system property, which the {@code perf} profile sets to
+ * {@code version.org.wildfly.core}, so reports from different versions can be compared.
+ * <p/>
+ * The following system properties can be used to configure the benchmark:
+ * <ul>
+ * <li>{@code wildfly.perf.phases.runs} the number of boots for each path, defaults to {@code 5}</li>
+ * <li>{@code wildfly.perf.phases.paths} a comma delimited list of directory names the server is booted from, defaults to
+ * {@code wildfly,wildfly with spaces}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class BootPhaseBenchmark {
+
+    private final int runs = Integer.getInteger("wildfly.perf.phases.runs", 5);
+    private final List<String> paths = BenchmarkProperties.getStrings("wildfly.perf.phases.paths", "wildfly,wildfly with spaces");
+
+    @Test
+    public void testStandalonePhases() throws Exception {
+        phases(ServerType.STANDALONE);
+    }
+
+    @Test
+    public void testDomainPhases() throws Exception {
+        phases(ServerType.DOMAIN);
+    }
+
+    private void phases(final ServerType serverType) throws Exception {
+        final String version = System.getProperty("wildfly.core.version", "unknown");
+        final Report report = Report.create("boot-phases-" + serverType.type, "wildfly-core", "path", "process", "phase",
+                "runs", "p50-ms", "min-ms", "max-ms");
+        final Report eventsReport = Report.create("boot-phases-" + serverType.type + "-events", "wildfly-core", "path",
+                "process", "offset-ms", "phase", "event");
+        for (String pathName : paths) {
+            // Values of each process and phase in boot order
+            final Map<String, Map<String, List<Double>>> values = new LinkedHashMap<>();
+            Map<String, BootTimeline> lastTimelines = null;
+            final Path wildflyHome = Benchmarks.copyWildFlyHome("boot-phases-" + serverType.type + "/" + pathName);
+            try {
+                for (int i = 0; i < runs; i++) {
+                    try (final ServerScriptRunner runner = ServerScriptRunner.of(wildflyHome, serverType, "boot-phases-" + serverType.type)) {
+                        final Process process = Benchmarks.startAndWait(runner);
+                        Benchmarks.shutdown(runner, process);
+                        lastTimelines = runner.readBootTimelines();
+                    }
+                    for (BootTimeline timeline : lastTimelines.values()) {
+                        Map<String, List<Double>> processValues = values.get(timeline.getProcess());
+                        if (processValues == null) {
+                            processValues = new LinkedHashMap<>();
+                            values.put(timeline.getProcess(), processValues);
+                        }
+                        for (Map.Entry<String, Long> phase : timeline.getPhases().entrySet()) {
+                            add(processValues, phase.getKey(), phase.getValue());
+                        }
+                        if (timeline.isStarted()) {
+                            add(processValues, "reported-boot", timeline.getReportedBootMillis());
+                            add(processValues, "services-started", timeline.getServicesStarted());
+                            add(processValues, "services-total", timeline.getServicesTotal());
+                            add(processValues, "services-passive", timeline.getServicesPassive());
+                        }
+                    }
+                }
+            } finally {
+                Benchmarks.deleteQuietly(wildflyHome);
+            }
+            Assert.assertFalse(String.format("No boot messages were found in the console output of %s", serverType.name), values.isEmpty());
+            for (Map.Entry<String, Map<String, List<Double>>> process : values.entrySet()) {
+                for (Map.Entry<String, List<Double>> phase : process.getValue().entrySet()) {
+                    final double[] samples = Statistics.toArray(phase.getValue());
+                    report.addRow(version, pathName, process.getKey(), phase.getKey(), samples.length, Statistics.median(samples),
+                            Statistics.min(samples), Statistics.max(samples));
+                }
+            }
+            // The events of the last run show where in the boot each subsystem was activated
+            for (BootTimeline timeline : lastTimelines.values()) {
+                for (BootTimeline.Event event : timeline.getEvents()) {
+                    eventsReport.addRow(version, pathName, timeline.getProcess(), event.getOffset(), event.phase, event.description);
+                }
+            }
+        }
+        report.addNote("Phases: jvm=JVM start to jboss-modules, modules=jboss-modules to server starting, " +
+                "controller=server starting to first subsystem, subsystems=first to last subsystem activation, " +
+                "services=last subsystem activation to started");
+        report.write();
+        eventsReport.write();
+    }
+
+    private static void add(final Map<String, List<Double>> values, final String key, final double value) {
+        List<Double> list = values.get(key);
+        if (list == null) {
+            list = new ArrayList<>();
+            values.put(key, list);
+        }
+        list.add(value);
+    }
+}
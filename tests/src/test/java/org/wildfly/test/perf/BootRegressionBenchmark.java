@@ -0,0 +1,220 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import static org.wildfly.test.util.Environment.NEW_LINE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import org.jboss.logging.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.test.scripts.ServerScriptRunner;
+import org.wildfly.test.scripts.ServerType;
+
+/**
+ * Boots the standalone and domain servers a number of times and compares the boot times to a stored baseline. The
+ * build fails if the boot times are significantly slower, per a one-sided Mann-Whitney U test, and the median or 90th
+ * percentile regressed beyond the threshold.
+ * <p/>
+ * Baselines are stored as {@code boot-standalone.properties} and {@code boot-domain.properties} in the baseline
+ * directory. If no baseline exists the current run is only reported, marked as not gated. A baseline is never stored
+ * implicitly, it must be recorded with {@code wildfly.perf.baseline.update}.
+ * <p/>
+ * The following system properties can be used to configure the gate:
+ * <ul>
+ * <li>{@code wildfly.perf.baseline.dir} the directory for the baselines, the {@code perf} profile sets this to
+ * {@code src/test/perf-baseline}, otherwise defaults to {@code ${user.home}/.extended-wildfly-tests/perf-baseline}</li>
+ * <li>{@code wildfly.perf.baseline.update} if {@code true} the current run replaces the baseline instead of being
+ * compared to it, defaults to {@code false}</li>
+ * <li>{@code wildfly.perf.boot.runs} the number of measured boots, defaults to {@code 30}</li>
+ * <li>{@code wildfly.perf.boot.warmup} the number of boots before measuring, defaults to {@code 3}</li>
+ * <li>{@code wildfly.perf.boot.alpha} the significance level, defaults to {@code 0.05}</li>
+ * <li>{@code wildfly.perf.boot.p50.threshold} the allowed relative increase of the median, defaults to {@code 0.1}</li>
+ * <li>{@code wildfly.perf.boot.p90.threshold} the allowed relative increase of the 90th percentile, defaults to
+ * {@code 0.15}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class BootRegressionBenchmark {
+
+    private static final Logger LOGGER = Logger.getLogger(BootRegressionBenchmark.class);
+
+    private static final String SAMPLES_KEY = "boot-ms";
+
+    private final int runs = Integer.getInteger("wildfly.perf.boot.runs", 30);
+    private final int warmup = Integer.getInteger("wildfly.perf.boot.warmup", 3);
+    private final double alpha = BenchmarkProperties.getDouble("wildfly.perf.boot.alpha", 0.05d);
+    private final double p50Threshold = BenchmarkProperties.getDouble("wildfly.perf.boot.p50.threshold", 0.1d);
+    private final double p90Threshold = BenchmarkProperties.getDouble("wildfly.perf.boot.p90.threshold", 0.15d);
+    private final boolean update = Boolean.getBoolean("wildfly.perf.baseline.update");
+
+    @Test
+    public void testStandaloneBoot() throws Exception {
+        gate(ServerType.STANDALONE);
+    }
+
+    @Test
+    public void testDomainBoot() throws Exception {
+        gate(ServerType.DOMAIN);
+    }
+
+    private void gate(final ServerType serverType) throws Exception {
+        final double[] current = measure(serverType);
+        final Path baselineFile = baselineDir().resolve("boot-" + serverType.type + ".properties");
+        if (update) {
+            storeBaseline(baselineFile, current);
+            LOGGER.infof("Stored the %s boot baseline in %s", serverType.name, baselineFile);
+            return;
+        }
+        if (Files.notExists(baselineFile)) {
+            final Report report = Report.create("boot-regression-" + serverType.type, "metric", "current-ms");
+            report.addRow("p50", Statistics.median(current));
+            report.addRow("p90", Statistics.percentile(current, 90d));
+            report.addRow("mean", Statistics.mean(current));
+            report.addNote(String.format("No baseline, not gated. Run with -Dwildfly.perf.baseline.update=true to store %s",
+                    baselineFile));
+            LOGGER.warnf("No %s boot baseline found in %s, the boot time was not gated. See %s", serverType.name,
+                    baselineFile, report.write());
+            return;
+        }
+        final Properties baselineProperties = loadBaseline(baselineFile);
+        final double[] baseline = parse(baselineProperties.getProperty(SAMPLES_KEY, ""));
+        if (baseline.length == 0) {
+            Assert.fail("The baseline " + baselineFile + " does not contain any " + SAMPLES_KEY + " samples");
+        }
+
+        final double pValue = Statistics.mannWhitneyGreater(baseline, current);
+        final boolean significant = pValue < alpha;
+        final Report report = Report.create("boot-regression-" + serverType.type, "metric", "baseline-ms", "current-ms",
+                "change", "threshold", "regressed");
+        final StringBuilder failures = new StringBuilder();
+        compare(report, failures, "p50", Statistics.median(baseline), Statistics.median(current), p50Threshold, significant);
+        compare(report, failures, "p90", Statistics.percentile(baseline, 90d), Statistics.percentile(current, 90d), p90Threshold, significant);
+        report.addRow("mean", Statistics.mean(baseline), Statistics.mean(current),
+                change(Statistics.mean(baseline), Statistics.mean(current)), "-", "-");
+        report.addNote(String.format("Mann-Whitney p-value=%s (alpha=%s), baseline samples=%d, current samples=%d",
+                pValue, alpha, baseline.length, current.length));
+        report.addNote(String.format("Baseline: wildfly-core=%s, java=%s, recorded=%s",
+                baselineProperties.getProperty("wildfly.core.version"), baselineProperties.getProperty("java.version"),
+                baselineProperties.getProperty("recorded")));
+        report.addNote(String.format("Current: wildfly-core=%s, java=%s",
+                System.getProperty("wildfly.core.version", "unknown"), System.getProperty("java.version")));
+        final Path reportFile = report.write();
+        if (failures.length() > 0) {
+            Assert.fail(String.format("%s boot time regressed compared to %s (p=%s):%n%sSee %s", serverType.name,
+                    baselineFile, pValue, failures, reportFile));
+        }
+    }
+
+    private double[] measure(final ServerType serverType) throws Exception {
+        final Path wildflyHome = Benchmarks.copyWildFlyHome("boot-regression-" + serverType.type);
+        final double[] result = new double[runs];
+        try {
+            for (int i = 0; i < warmup + runs; i++) {
+                try (final ServerScriptRunner runner = ServerScriptRunner.of(wildflyHome, serverType, "boot-regression-" + serverType.type)) {
+                    final long start = System.nanoTime();
+                    final Process process = Benchmarks.startAndWait(runner);
+                    final double bootMs = Benchmarks.elapsedMillis(start);
+                    if (i >= warmup) {
+                        result[i - warmup] = bootMs;
+                    }
+                    Benchmarks.shutdown(runner, process);
+                }
+            }
+        } finally {
+            Benchmarks.deleteQuietly(wildflyHome);
+        }
+        return result;
+    }
+
+    private static void compare(final Report report, final StringBuilder failures, final String metric, final double baseline,
+                                final double current, final double threshold, final boolean significant) {
+        final double change = change(baseline, current);
+        final boolean regressed = significant && change > threshold;
+        report.addRow(metric, baseline, current, change, threshold, regressed);
+        if (regressed) {
+            failures.append(String.format("%s increased from %sms to %sms (%s%%, threshold %s%%)", metric,
+                    Report.format(baseline), Report.format(current), Report.format(change * 100d), Report.format(threshold * 100d)))
+                    .append(NEW_LINE);
+        }
+    }
+
+    private static double change(final double baseline, final double current) {
+        return (current - baseline) / baseline;
+    }
+
+    private static Path baselineDir() {
+        final String dir = System.getProperty("wildfly.perf.baseline.dir");
+        if (dir == null || dir.isEmpty()) {
+            return Paths.get(System.getProperty("user.home"), ".extended-wildfly-tests", "perf-baseline");
+        }
+        return Paths.get(dir);
+    }
+
+    private static Properties loadBaseline(final Path file) throws IOException {
+        final Properties result = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            result.load(in);
+        }
+        return result;
+    }
+
+    private static void storeBaseline(final Path file, final double[] samples) throws IOException {
+        final Properties properties = new Properties();
+        final StringBuilder value = new StringBuilder();
+        for (double sample : samples) {
+            if (value.length() > 0) {
+                value.append(',');
+            }
+            value.append(Report.format(sample));
+        }
+        properties.setProperty(SAMPLES_KEY, value.toString());
+        properties.setProperty("wildfly.core.version", System.getProperty("wildfly.core.version", "unknown"));
+        properties.setProperty("java.version", System.getProperty("java.version"));
+        properties.setProperty("recorded", String.format("%tFT%<tT", System.currentTimeMillis()));
+        Files.createDirectories(file.getParent());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            properties.store(out, "Boot time baseline in milliseconds");
+        }
+    }
+
+    private static double[] parse(final String value) {
+        if (value.trim().isEmpty()) {
+            return new double[0];
+        }
+        final String[] parts = value.split(",");
+        final double[] result = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = Double.parseDouble(parts[i].trim());
+        }
+        return result;
+    }
+}
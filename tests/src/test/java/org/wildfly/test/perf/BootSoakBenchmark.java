@@ -0,0 +1,242 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import static org.wildfly.test.util.Environment.NEW_LINE;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.logging.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.test.scripts.ServerScriptRunner;
+import org.wildfly.test.scripts.ServerType;
+import org.wildfly.test.util.Directories;
+
+/**
+ * Repeatedly starts and shuts down a server using the same home directory and checks that boot time, shutdown time,
+ * disk usage and open file descriptors do not drift from cycle to cycle.
+ * <p/>
+ * On Linux the process tree of the server, e.g. the process controller, host controller and servers of a domain, is
+ * sampled from the start of the script until it exits. The CPU time and the peak and average resident set size,
+ * threads and open file descriptors of the tree are checked for drift as well.
+ * <p/>
+ * The following system properties can be used to configure the soak:
+ * <ul>
+ * <li>{@code wildfly.perf.soak.cycles} the number of start/stop cycles, defaults to {@code 200}</li>
+ * <li>{@code wildfly.perf.soak.warmup} the number of initial cycles ignored for drift detection, defaults to {@code 5}</li>
+ * <li>{@code wildfly.perf.soak.alpha} the significance level for the drift test, defaults to {@code 0.01}</li>
+ * <li>{@code wildfly.perf.soak.min.change} the minimum relative change over the run that is considered drift,
+ * defaults to {@code 0.1}</li>
+ * <li>{@code wildfly.perf.soak.fail.on.drift} whether or not detected drift fails the test, defaults to {@code true}</li>
+ * <li>{@code wildfly.perf.soak.tree.interval} the interval in milliseconds between samples of the server process tree,
+ * defaults to {@code 250}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class BootSoakBenchmark {
+
+    private static final Logger LOGGER = Logger.getLogger(BootSoakBenchmark.class);
+
+    private static final String[] CYCLE_METRICS = {
+            "boot-ms",
+            "shutdown-ms",
+            "data-bytes",
+            "tmp-bytes",
+            "tmp-files",
+            "base-files",
+            "open-fds",
+    };
+
+    private static final String[] METRICS = Benchmarks.prepend(ProcessTreeSampler.Summary.NAMES, CYCLE_METRICS);
+
+    private final int cycles = Integer.getInteger("wildfly.perf.soak.cycles", 200);
+    private final int warmup = Integer.getInteger("wildfly.perf.soak.warmup", 5);
+    private final double alpha = BenchmarkProperties.getDouble("wildfly.perf.soak.alpha", 0.01d);
+    private final double minChange = BenchmarkProperties.getDouble("wildfly.perf.soak.min.change", 0.1d);
+    private final boolean failOnDrift = Boolean.parseBoolean(System.getProperty("wildfly.perf.soak.fail.on.drift", "true"));
+    private final long treeInterval = Long.getLong("wildfly.perf.soak.tree.interval", 250L);
+
+    @Test
+    public void testStandaloneSoak() throws Exception {
+        soak(ServerType.STANDALONE);
+    }
+
+    @Test
+    public void testDomainSoak() throws Exception {
+        soak(ServerType.DOMAIN);
+    }
+
+    private void soak(final ServerType serverType) throws Exception {
+        final Path wildflyHome = Benchmarks.copyWildFlyHome("soak-" + serverType.type);
+        final Path baseDir = wildflyHome.resolve(serverType.type);
+        final Map<String, List<Double>> samples = new LinkedHashMap<>();
+        for (String metric : METRICS) {
+            samples.put(metric, new ArrayList<Double>(cycles));
+        }
+        final Report cycleReport = Report.create("soak-" + serverType.type + "-cycles", Benchmarks.prepend(METRICS, "cycle"));
+        try {
+            for (int cycle = 0; cycle < cycles; cycle++) {
+                final double[] values = runCycle(serverType, wildflyHome, baseDir, cycle);
+                final Object[] row = new Object[values.length + 1];
+                row[0] = cycle;
+                for (int i = 0; i < values.length; i++) {
+                    samples.get(METRICS[i]).add(values[i]);
+                    row[i + 1] = values[i];
+                }
+                cycleReport.addRow(row);
+                LOGGER.debugf("%s cycle %d: %s", serverType, cycle, Arrays.toString(values));
+            }
+        } finally {
+            cycleReport.write();
+            Benchmarks.deleteQuietly(wildflyHome);
+        }
+
+        final Report driftReport = Report.create("soak-" + serverType.type + "-drift",
+                "metric", "first-median", "last-median", "slope-per-cycle", "p-value", "drift");
+        final StringBuilder failures = new StringBuilder();
+        for (Map.Entry<String, List<Double>> entry : samples.entrySet()) {
+            final List<Double> measured = entry.getValue();
+            final double[] values = Statistics.toArray(measured.subList(Math.min(warmup, measured.size()), measured.size()));
+            final int window = Math.max(1, values.length / 10);
+            final double firstMedian = Statistics.median(Arrays.copyOfRange(values, 0, window));
+            final double lastMedian = Statistics.median(Arrays.copyOfRange(values, values.length - window, values.length));
+            final Statistics.Trend trend = Statistics.trend(values);
+            final boolean drift = isDrift(trend, values.length, firstMedian);
+            driftReport.addRow(entry.getKey(), firstMedian, lastMedian, trend.slope, trend.pValue, drift);
+            if (drift) {
+                failures.append(String.format("%s drifted from %s to %s (%s per cycle, p=%s)", entry.getKey(),
+                        Report.format(firstMedian), Report.format(lastMedian), Report.format(trend.slope), trend.pValue))
+                        .append(NEW_LINE);
+            }
+        }
+        driftReport.addNote(String.format("cycles=%d, warmup=%d, alpha=%s, min-change=%s", cycles, warmup, alpha, minChange));
+        driftReport.write();
+        if (failures.length() > 0) {
+            final String msg = serverType.name + " soak detected drift:" + NEW_LINE + failures;
+            if (failOnDrift) {
+                Assert.fail(msg);
+            }
+            LOGGER.warn(msg);
+        }
+    }
+
+    private double[] runCycle(final ServerType serverType, final Path wildflyHome, final Path baseDir, final int cycle) throws Exception {
+        final double bootMs;
+        final double shutdownMs;
+        final ProcessTreeSampler.Summary tree;
+        // Use the same console file name for each cycle so hundreds of cycles do not fill the temp directory
+        try (final ServerScriptRunner runner = ServerScriptRunner.of(wildflyHome, serverType, "soak-" + serverType.type)) {
+            long start = System.nanoTime();
+            final Process process = runner.start();
+            // Sample from the start of the script so the peaks of the boot are included
+            try (final ProcessTreeSampler sampler = ProcessTreeSampler.start(process, treeInterval)) {
+                Benchmarks.waitForStart(runner, process);
+                bootMs = Benchmarks.elapsedMillis(start);
+                if (serverType == ServerType.DOMAIN) {
+                    // Avoid the fixed sleep of the runner's domain shutdown, which would hide any drift
+                    shutdownMs = Benchmarks.shutdownDomain(Collections.singletonList(process), 30L);
+                } else {
+                    start = System.nanoTime();
+                    Benchmarks.shutdown(runner, process);
+                    shutdownMs = Benchmarks.elapsedMillis(start);
+                }
+                tree = sampler.getSummary();
+            }
+        }
+        final double[] values = {
+                bootMs,
+                shutdownMs,
+                sizeOf(baseDir, "data"),
+                sizeOf(baseDir, "tmp"),
+                countFiles(baseDir, "tmp"),
+                Directories.countFiles(baseDir),
+                openFileDescriptors(),
+        };
+        final double[] result = Arrays.copyOf(values, values.length + ProcessTreeSampler.Summary.NAMES.length);
+        System.arraycopy(tree.toArray(), 0, result, values.length, ProcessTreeSampler.Summary.NAMES.length);
+        return result;
+    }
+
+    private boolean isDrift(final Statistics.Trend trend, final int count, final double firstMedian) {
+        if (trend.pValue >= alpha) {
+            return false;
+        }
+        final double change = trend.slope * (count - 1);
+        // Metrics which start at zero, e.g. the number of temporary files, drift with any significant growth
+        if (firstMedian == 0d) {
+            return change > 0d;
+        }
+        return Math.abs(change / firstMedian) >= minChange;
+    }
+
+    private static double sizeOf(final Path baseDir, final String name) throws IOException {
+        long result = Directories.size(baseDir.resolve(name));
+        for (Path server : serverDirs(baseDir)) {
+            result += Directories.size(server.resolve(name));
+        }
+        return result;
+    }
+
+    private static double countFiles(final Path baseDir, final String name) throws IOException {
+        int result = Directories.countFiles(baseDir.resolve(name));
+        for (Path server : serverDirs(baseDir)) {
+            result += Directories.countFiles(server.resolve(name));
+        }
+        return result;
+    }
+
+    private static List<Path> serverDirs(final Path baseDir) throws IOException {
+        // Domain servers have their own data and tmp directories
+        final Path serversDir = baseDir.resolve("servers");
+        final List<Path> result = new ArrayList<>();
+        if (Files.isDirectory(serversDir)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(serversDir)) {
+                for (Path path : stream) {
+                    result.add(path);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static double openFileDescriptors() {
+        final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.UnixOperatingSystemMXBean) {
+            return ((com.sun.management.UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount();
+        }
+        return Double.NaN;
+    }
+}
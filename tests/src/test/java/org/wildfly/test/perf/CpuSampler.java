@@ -0,0 +1,134 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically samples the CPU load of the whole machine. The load is a value between {@code 0.0}, idle, and
+ * {@code 1.0}, all cores busy.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class CpuSampler implements Closeable {
+    private final ScheduledExecutorService service;
+    private final List<Double> samples;
+
+    private CpuSampler() {
+        service = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "cpu-sampler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        samples = new ArrayList<>();
+    }
+
+    /**
+     * Starts sampling the CPU load.
+     *
+     * @param interval the interval between samples in milliseconds
+     *
+     * @return the sampler
+     */
+    public static CpuSampler start(final long interval) {
+        final CpuSampler sampler = new CpuSampler();
+        final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            final com.sun.management.OperatingSystemMXBean bean = (com.sun.management.OperatingSystemMXBean) os;
+            sampler.service.scheduleAtFixedRate(new Runnable() {
+                // getCpuLoad() replaces getSystemCpuLoad() but requires Java 14
+                @SuppressWarnings("deprecation")
+                @Override
+                public void run() {
+                    final double load = bean.getSystemCpuLoad();
+                    // A negative value indicates the load is not available yet
+                    if (load >= 0d) {
+                        synchronized (sampler.samples) {
+                            sampler.samples.add(load);
+                        }
+                    }
+                }
+            }, 0L, interval, TimeUnit.MILLISECONDS);
+        }
+        return sampler;
+    }
+
+    /**
+     * Returns the samples collected so far.
+     *
+     * @return the samples
+     */
+    public double[] getSamples() {
+        synchronized (samples) {
+            return Statistics.toArray(samples);
+        }
+    }
+
+    public double getMean() {
+        return Statistics.mean(getSamples());
+    }
+
+    public double getPeak() {
+        return Statistics.max(getSamples());
+    }
+
+    /**
+     * The fraction of samples at or above the load, e.g. {@code 0.95}, which can be considered saturated.
+     *
+     * @param load the load threshold
+     *
+     * @return the fraction of samples at or above the load
+     */
+    public double getFractionAbove(final double load) {
+        final double[] values = getSamples();
+        if (values.length == 0) {
+            return Double.NaN;
+        }
+        int count = 0;
+        for (double value : values) {
+            if (value >= load) {
+                count++;
+            }
+        }
+        return count / (double) values.length;
+    }
+
+    /**
+     * Stops sampling.
+     */
+    @Override
+    public void close() {
+        service.shutdownNow();
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.jboss.logging.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.test.scripts.ServerScriptRunner;
+import org.wildfly.test.scripts.ServerType;
+import org.wildfly.test.util.ServerHelper;
+
+/**
+ * Measures the latency between a deployment being written to the {@code standalone/deployments} directory and the
+ * deployment being deployed, as seen through the management client.
+ * <p/>
+ * The following system properties can be used to configure the benchmark:
+ * <ul>
+ * <li>{@code wildfly.perf.scanner.intervals} a comma delimited list of scan intervals in milliseconds, defaults to
+ * {@code 100,1000,5000}</li>
+ * <li>{@code wildfly.perf.scanner.counts} a comma delimited list of the number of deployments already in the directory,
+ * defaults to {@code 0,50,200}</li>
+ * <li>{@code wildfly.perf.scanner.samples} the number of deployments dropped for each case, defaults to
+ * {@code 10}</li>
+ * <li>{@code wildfly.perf.scanner.rate} the number of deployments dropped per second, defaults to {@code 2}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class DeploymentScannerBenchmark {
+
+    private static final Logger LOGGER = Logger.getLogger(DeploymentScannerBenchmark.class);
+    private static final long POLL_INTERVAL = 10L;
+
+    private enum Kind {
+        ARCHIVE(false, false),
+        ARCHIVE_DODEPLOY(false, true),
+        EXPLODED(true, false),
+        EXPLODED_DODEPLOY(true, true);
+
+        final boolean exploded;
+        final boolean marker;
+
+        Kind(final boolean exploded, final boolean marker) {
+            this.exploded = exploded;
+            this.marker = marker;
+        }
+    }
+
+    private final int[] intervals = BenchmarkProperties.getIntegers("wildfly.perf.scanner.intervals", "100,1000,5000");
+    private final int[] counts = BenchmarkProperties.getIntegers("wildfly.perf.scanner.counts", "0,50,200");
+    private final int samples = Integer.getInteger("wildfly.perf.scanner.samples", 10);
+    private final double rate = BenchmarkProperties.getDouble("wildfly.perf.scanner.rate", 2d);
+
+    @Test
+    public void testDetectionLatency() throws Exception {
+        final Path wildflyHome = Benchmarks.copyWildFlyHome("deployment-scanner");
+        final Path deploymentsDir = wildflyHome.resolve("standalone").resolve("deployments");
+        final Path stagingDir = wildflyHome.resolve("standalone").resolve("tmp").resolve("staging");
+        final Report report = Report.create("deployment-scanner", "kind", "scan-interval-ms", "existing-deployments",
+                "samples", "p50-ms", "p90-ms", "max-ms", "mean-ms");
+        try (final ServerScriptRunner runner = ServerScriptRunner.of(wildflyHome, ServerType.STANDALONE, "deployment-scanner")) {
+            Benchmarks.startAndWait(runner);
+            try (final ModelControllerClient client = ServerHelper.createClientConnection()) {
+                int existing = 0;
+                for (int count : counts) {
+                    // Fill the directory with deployments which stay deployed for the remaining cases
+                    if (count > existing) {
+                        final List<String> names = new ArrayList<>();
+                        for (int i = existing; i < count; i++) {
+                            final Path jar = Deployments.createJar(stagingDir, "existing-" + i + ".jar");
+                            Files.move(jar, deploymentsDir.resolve(jar.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+                            names.add(jar.getFileName().toString());
+                        }
+                        writeScannerAttribute(client, "auto-deploy-zipped", new ModelNode(true));
+                        writeScannerAttribute(client, "scan-interval", new ModelNode(Math.min(intervals[0], 1000)));
+                        waitForDeployments(client, names, TimeUnit.MINUTES.toMillis(5L));
+                        existing = count;
+                    }
+                    for (int interval : intervals) {
+                        writeScannerAttribute(client, "scan-interval", new ModelNode(interval));
+                        for (Kind kind : Kind.values()) {
+                            writeScannerAttribute(client, "auto-deploy-zipped", new ModelNode(!kind.exploded && !kind.marker));
+                            writeScannerAttribute(client, "auto-deploy-exploded", new ModelNode(kind.exploded && !kind.marker));
+                            final double[] latencies = measure(client, kind, interval, existing, deploymentsDir, stagingDir);
+                            report.addRow(kind, interval, existing, latencies.length, Statistics.median(latencies),
+                                    Statistics.percentile(latencies, 90d), Statistics.max(latencies), Statistics.mean(latencies));
+                        }
+                    }
+                }
+            }
+            runner.shutdown();
+        } finally {
+            report.addNote(String.format("Deployments dropped at %s per second, deployment state polled every %d ms.", Report.format(rate), POLL_INTERVAL));
+            report.write();
+            Benchmarks.deleteQuietly(wildflyHome);
+        }
+    }
+
+    private double[] measure(final ModelControllerClient client, final Kind kind, final int interval, final int existing,
+                             final Path deploymentsDir, final Path stagingDir) throws Exception {
+        final String prefix = String.format("%s-%d-%d", kind.name().toLowerCase(Locale.ROOT).replace('_', '-'), interval, existing);
+        final Map<String, Long> pending = new ConcurrentHashMap<>();
+        final List<String> names = new ArrayList<>(samples);
+        for (int i = 0; i < samples; i++) {
+            final String name = prefix + "-" + i + ".jar";
+            names.add(name);
+            // Create the content up front so only the move into the deployments directory is timed
+            if (kind.exploded) {
+                Deployments.createExplodedJar(stagingDir, name);
+            } else {
+                Deployments.createJar(stagingDir, name);
+            }
+        }
+        final AtomicInteger dropped = new AtomicInteger();
+        final ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor();
+        final List<Double> latencies = new ArrayList<>(samples);
+        try {
+            service.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    final int index = dropped.getAndIncrement();
+                    if (index >= names.size()) {
+                        return;
+                    }
+                    final String name = names.get(index);
+                    try {
+                        final long start = System.nanoTime();
+                        Files.move(stagingDir.resolve(name), deploymentsDir.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+                        if (kind.marker) {
+                            Files.createFile(deploymentsDir.resolve(name + ".dodeploy"));
+                        }
+                        pending.put(name, start);
+                    } catch (IOException e) {
+                        LOGGER.errorf(e, "Failed to drop deployment %s", name);
+                    }
+                }
+            }, 0L, (long) (TimeUnit.SECONDS.toMicros(1L) / rate), TimeUnit.MICROSECONDS);
+
+            final long timeout = Math.max(TimeUnit.SECONDS.toMillis(30L), interval * 10L) + (long) (samples * 1000 / rate);
+            final long deadline = System.currentTimeMillis() + timeout;
+            while (latencies.size() < samples && System.currentTimeMillis() < deadline) {
+                final Iterator<Map.Entry<String, Long>> iter = pending.entrySet().iterator();
+                while (iter.hasNext()) {
+                    final Map.Entry<String, Long> entry = iter.next();
+                    if (isDeployed(client, entry.getKey())) {
+                        latencies.add(Benchmarks.elapsedMillis(entry.getValue()));
+                        iter.remove();
+                    }
+                }
+                TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL);
+            }
+        } finally {
+            service.shutdownNow();
+        }
+        if (latencies.size() < samples) {
+            Assert.fail(String.format("Only %d of %d %s deployments were deployed with a scan interval of %dms", latencies.size(), samples, kind, interval));
+        }
+        undeploy(client, deploymentsDir, names);
+        return Statistics.toArray(latencies);
+    }
+
+    private static void undeploy(final ModelControllerClient client, final Path deploymentsDir, final List<String> names) throws Exception {
+        // Removing the content and markers lets the scanner undeploy the deployments
+        for (String name : names) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(deploymentsDir, name + "*")) {
+                for (Path path : stream) {
+                    if (Files.isDirectory(path)) {
+                        Benchmarks.deleteQuietly(path);
+                    } else {
+                        Files.deleteIfExists(path);
+                    }
+                }
+            }
+        }
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(60L);
+        Set<String> remaining = deployed(client, names);
+        while (!remaining.isEmpty() && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(100L);
+            remaining = deployed(client, names);
+        }
+        if (!remaining.isEmpty()) {
+            LOGGER.warnf("The scanner did not undeploy %s, removing them through the management client", remaining);
+            Deployments.executeForResult(client, Deployments.createUndeployOperation(remaining));
+        }
+    }
+
+    private static void waitForDeployments(final ModelControllerClient client, final List<String> names, final long timeout) throws Exception {
+        final long deadline = System.currentTimeMillis() + timeout;
+        final Set<String> pending = new HashSet<>(names);
+        while (!pending.isEmpty() && System.currentTimeMillis() < deadline) {
+            final Iterator<String> iter = pending.iterator();
+            while (iter.hasNext()) {
+                if (isDeployed(client, iter.next())) {
+                    iter.remove();
+                }
+            }
+            TimeUnit.MILLISECONDS.sleep(100L);
+        }
+        if (!pending.isEmpty()) {
+            Assert.fail("The following deployments were not deployed: " + pending);
+        }
+    }
+
+    private static Set<String> deployed(final ModelControllerClient client, final List<String> names) throws IOException {
+        final ModelNode op = Operations.createOperation("read-children-names", ServerHelper.EMPTY_ADDRESS);
+        op.get("child-type").set("deployment");
+        final Set<String> result = new HashSet<>();
+        for (ModelNode child : Deployments.executeForResult(client, op).asList()) {
+            if (names.contains(child.asString())) {
+                result.add(child.asString());
+            }
+        }
+        return result;
+    }
+
+    private static boolean isDeployed(final ModelControllerClient client, final String name) throws IOException {
+        final ModelNode response = client.execute(Operations.createReadAttributeOperation(Deployments.createAddress(name), "status"));
+        return Operations.isSuccessfulOutcome(response) && "OK".equals(Operations.readResult(response).asString());
+    }
+
+    private static void writeScannerAttribute(final ModelControllerClient client, final String name, final ModelNode value) throws IOException {
+        final ModelNode address = new ModelNode().setEmptyList();
+        address.add("subsystem", "deployment-scanner").add("scanner", "default");
+        Deployments.executeForResult(client, Operations.createWriteAttributeOperation(address, name, value));
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.OperationBuilder;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.junit.Test;
+import org.wildfly.test.scripts.ServerScriptRunner;
+import org.wildfly.test.scripts.ServerType;
+import org.wildfly.test.util.Environment;
+import org.wildfly.test.util.ServerHelper;
+
+/**
+ * Measures deploying many trivial deployments through the management client using an {@code add} and {@code deploy}
+ * operation per deployment, a single composite operation and several concurrent clients. After the deployments are
+ * deployed the server is restarted to measure the impact the deployments have on the boot time.
+ * <p/>
+ * The following system properties can be used to configure the benchmark:
+ * <ul>
+ * <li>{@code wildfly.perf.deploy.count} the number of deployments, defaults to {@code 100}</li>
+ * <li>{@code wildfly.perf.deploy.clients} the number of clients for the concurrent mode, defaults to {@code 4}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class DeploymentThroughputBenchmark {
+
+    private enum Mode {
+        PER_OPERATION,
+        COMPOSITE,
+        CONCURRENT,
+    }
+
+    private final int count = Integer.getInteger("wildfly.perf.deploy.count", 100);
+    private final int clientCount = Integer.getInteger("wildfly.perf.deploy.clients", 4);
+
+    @Test
+    public void testDeploymentThroughput() throws Exception {
+        final Path wildflyHome = Benchmarks.copyWildFlyHome("deployment-throughput");
+        final Path deploymentDir = Environment.TMP_DIR.resolve("generated-deployments");
+        try {
+            final List<Path> deployments = Deployments.createJars(deploymentDir, "throughput", count);
+            final List<String> names = new ArrayList<>(count);
+            for (Path deployment : deployments) {
+                names.add(deployment.getFileName().toString());
+            }
+            final double baselineBoot = bootTime(wildflyHome);
+            final Report report = Report.create("deployment-throughput", "mode", "deployments", "deploy-ms",
+                    "per-artifact-p50-ms", "per-artifact-p90-ms", "per-artifact-max-ms", "undeploy-ms", "boot-ms",
+                    "boot-delta-ms");
+            for (Mode mode : Mode.values()) {
+                final double deployMs;
+                final double[] latencies;
+                try (final ServerScriptRunner runner = ServerScriptRunner.of(wildflyHome, ServerType.STANDALONE, "deployment-throughput")) {
+                    Benchmarks.startAndWait(runner);
+                    final long start = System.nanoTime();
+                    latencies = deploy(mode, deployments);
+                    deployMs = Benchmarks.elapsedMillis(start);
+                    runner.shutdown();
+                }
+                // Restart with the deployments in place, then remove them for the next mode
+                final double bootMs;
+                final double undeployMs;
+                try (final ServerScriptRunner runner = ServerScriptRunner.of(wildflyHome, ServerType.STANDALONE, "deployment-throughput")) {
+                    long start = System.nanoTime();
+                    Benchmarks.startAndWait(runner);
+                    bootMs = Benchmarks.elapsedMillis(start);
+                    try (final ModelControllerClient client = ServerHelper.createClientConnection()) {
+                        start = System.nanoTime();
+                        Deployments.executeForResult(client, Deployments.createUndeployOperation(names));
+                        undeployMs = Benchmarks.elapsedMillis(start);
+                    }
+                    runner.shutdown();
+                }
+                report.addRow(mode, count, deployMs, Statistics.median(latencies), Statistics.percentile(latencies, 90d),
+                        Statistics.max(latencies), undeployMs, bootMs, bootMs - baselineBoot);
+            }
+            report.addNote(String.format("Baseline boot without deployments: %s ms", Report.format(baselineBoot)));
+            report.addNote(String.format("Concurrent mode used %d clients. Composite per-artifact latency is the total divided by the deployment count.", clientCount));
+            report.write();
+        } finally {
+            Benchmarks.deleteQuietly(deploymentDir);
+            Benchmarks.deleteQuietly(wildflyHome);
+        }
+    }
+
+    private double[] deploy(final Mode mode, final List<Path> deployments) throws Exception {
+        switch (mode) {
+            case PER_OPERATION: {
+                try (final ModelControllerClient client = ServerHelper.createClientConnection()) {
+                    return Statistics.toArray(deployEach(client, deployments));
+                }
+            }
+            case COMPOSITE: {
+                try (final ModelControllerClient client = ServerHelper.createClientConnection()) {
+                    final ModelNode composite = Operations.createCompositeOperation();
+                    final ModelNode steps = composite.get("steps");
+                    final OperationBuilder builder = OperationBuilder.create(composite, true);
+                    int index = 0;
+                    for (Path deployment : deployments) {
+                        final String name = deployment.getFileName().toString();
+                        steps.add(Deployments.createAddOperation(name, index++));
+                        steps.add(Deployments.createDeployOperation(name));
+                        builder.addFileAsAttachment(deployment.toFile());
+                    }
+                    final long start = System.nanoTime();
+                    Deployments.executeForResult(client, builder.build());
+                    final double[] result = new double[deployments.size()];
+                    final double perArtifact = Benchmarks.elapsedMillis(start) / deployments.size();
+                    for (int i = 0; i < result.length; i++) {
+                        result[i] = perArtifact;
+                    }
+                    return result;
+                }
+            }
+            case CONCURRENT: {
+                final ExecutorService service = Executors.newFixedThreadPool(clientCount);
+                try {
+                    final List<Future<List<Double>>> futures = new ArrayList<>(clientCount);
+                    for (int i = 0; i < clientCount; i++) {
+                        final List<Path> partition = new ArrayList<>();
+                        for (int j = i; j < deployments.size(); j += clientCount) {
+                            partition.add(deployments.get(j));
+                        }
+                        futures.add(service.submit(new Callable<List<Double>>() {
+                            @Override
+                            public List<Double> call() throws Exception {
+                                try (final ModelControllerClient client = ServerHelper.createClientConnection()) {
+                                    return deployEach(client, partition);
+                                }
+                            }
+                        }));
+                    }
+                    final List<Double> result = new ArrayList<>(deployments.size());
+                    for (Future<List<Double>> future : futures) {
+                        try {
+                            result.addAll(future.get());
+                        } catch (ExecutionException e) {
+                            throw new RuntimeException("Concurrent deployment failed", e.getCause());
+                        }
+                    }
+                    return Statistics.toArray(result);
+                } finally {
+                    service.shutdownNow();
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unknown mode " + mode);
+    }
+
+    private static List<Double> deployEach(final ModelControllerClient client, final List<Path> deployments) throws IOException {
+        final List<Double> result = new ArrayList<>(deployments.size());
+        for (Path deployment : deployments) {
+            final String name = deployment.getFileName().toString();
+            final long start = System.nanoTime();
+            Deployments.executeForResult(client, OperationBuilder.create(Deployments.createAddOperation(name, 0), true)
+                    .addFileAsAttachment(deployment.toFile())
+                    .build());
+            Deployments.executeForResult(client, Deployments.createDeployOperation(name));
+            result.add(Benchmarks.elapsedMillis(start));
+        }
+        return result;
+    }
+
+    private static double bootTime(final Path wildflyHome) throws Exception {
+        try (final ServerScriptRunner runner = ServerScriptRunner.of(wildflyHome, ServerType.STANDALONE, "deployment-throughput")) {
+            final long start = System.nanoTime();
+            Benchmarks.startAndWait(runner);
+            final double result = Benchmarks.elapsedMillis(start);
+            runner.shutdown();
+            return result;
+        }
+    }
+}
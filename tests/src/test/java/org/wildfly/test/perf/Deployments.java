@@ -0,0 +1,198 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import static org.jboss.as.controller.client.helpers.ClientConstants.CONTENT;
+import static org.jboss.as.controller.client.helpers.ClientConstants.DEPLOYMENT;
+import static org.jboss.as.controller.client.helpers.ClientConstants.DEPLOYMENT_DEPLOY_OPERATION;
+import static org.jboss.as.controller.client.helpers.ClientConstants.DEPLOYMENT_REMOVE_OPERATION;
+import static org.jboss.as.controller.client.helpers.ClientConstants.DEPLOYMENT_UNDEPLOY_OPERATION;
+import static org.jboss.as.controller.client.helpers.ClientConstants.INPUT_STREAM_INDEX;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.Operation;
+import org.jboss.as.controller.client.OperationBuilder;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Helpers for generating and managing trivial deployments.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class Deployments {
+
+    private Deployments() {
+    }
+
+    /**
+     * Creates the requested number of trivial JAR deployments named {@code prefix-N.jar}.
+     *
+     * @param dir    the directory to create the deployments in
+     * @param prefix the prefix for the deployment names
+     * @param count  the number of deployments to create
+     *
+     * @return the paths to the deployments
+     *
+     * @throws IOException if an error occurs creating the deployments
+     */
+    public static List<Path> createJars(final Path dir, final String prefix, final int count) throws IOException {
+        final List<Path> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(createJar(dir, prefix + "-" + i + ".jar"));
+        }
+        return result;
+    }
+
+    /**
+     * Creates a trivial JAR deployment which contains only a manifest and a properties file.
+     *
+     * @param dir  the directory to create the deployment in
+     * @param name the file name of the deployment
+     *
+     * @return the path to the deployment
+     *
+     * @throws IOException if an error occurs creating the deployment
+     */
+    public static Path createJar(final Path dir, final String name) throws IOException {
+        if (Files.notExists(dir)) {
+            Files.createDirectories(dir);
+        }
+        final Path jar = dir.resolve(name);
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        try (final JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest)) {
+            writeProperties(out, name);
+        }
+        return jar;
+    }
+
+    /**
+     * Creates a trivial exploded JAR deployment.
+     *
+     * @param dir  the directory to create the deployment in
+     * @param name the directory name of the deployment
+     *
+     * @return the path to the deployment
+     *
+     * @throws IOException if an error occurs creating the deployment
+     */
+    public static Path createExplodedJar(final Path dir, final String name) throws IOException {
+        final Path metaInf = dir.resolve(name).resolve("META-INF");
+        Files.createDirectories(metaInf);
+        Files.write(metaInf.resolve("MANIFEST.MF"), "Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(metaInf.resolve("deployment.properties"), ("name=" + name + '\n').getBytes(StandardCharsets.UTF_8));
+        return dir.resolve(name);
+    }
+
+    public static ModelNode createAddress(final String name) {
+        final ModelNode address = new ModelNode().setEmptyList();
+        address.add(DEPLOYMENT, name);
+        return address;
+    }
+
+    /**
+     * Creates an operation which adds a deployment where the content is the attached stream at the index.
+     *
+     * @param name  the name of the deployment
+     * @param index the index of the attached input stream
+     *
+     * @return the operation
+     */
+    public static ModelNode createAddOperation(final String name, final int index) {
+        final ModelNode op = Operations.createAddOperation(createAddress(name));
+        op.get(CONTENT).setEmptyList().add().get(INPUT_STREAM_INDEX).set(index);
+        return op;
+    }
+
+    public static ModelNode createDeployOperation(final String name) {
+        return Operations.createOperation(DEPLOYMENT_DEPLOY_OPERATION, createAddress(name));
+    }
+
+    /**
+     * Creates a composite operation which undeploys and removes each deployment.
+     *
+     * @param names the names of the deployments
+     *
+     * @return the operation
+     */
+    public static ModelNode createUndeployOperation(final Collection<String> names) {
+        final ModelNode composite = Operations.createCompositeOperation();
+        final ModelNode steps = composite.get("steps");
+        for (String name : names) {
+            steps.add(Operations.createOperation(DEPLOYMENT_UNDEPLOY_OPERATION, createAddress(name)));
+            steps.add(Operations.createOperation(DEPLOYMENT_REMOVE_OPERATION, createAddress(name)));
+        }
+        return composite;
+    }
+
+    /**
+     * Executes the operation and throws a {@link RuntimeException} if the operation was not successful.
+     *
+     * @param client the client to execute the operation with
+     * @param op     the operation
+     *
+     * @return the result of the operation
+     *
+     * @throws IOException if a communication error occurs
+     */
+    public static ModelNode executeForResult(final ModelControllerClient client, final ModelNode op) throws IOException {
+        return executeForResult(client, OperationBuilder.create(op).build());
+    }
+
+    /**
+     * Executes the operation and throws a {@link RuntimeException} if the operation was not successful.
+     *
+     * @param client the client to execute the operation with
+     * @param op     the operation
+     *
+     * @return the result of the operation
+     *
+     * @throws IOException if a communication error occurs
+     */
+    public static ModelNode executeForResult(final ModelControllerClient client, final Operation op) throws IOException {
+        final ModelNode result = client.execute(op);
+        if (!Operations.isSuccessfulOutcome(result)) {
+            throw new RuntimeException(String.format("Failed to execute %s: %s", op.getOperation(), Operations.getFailureDescription(result)));
+        }
+        return Operations.readResult(result);
+    }
+
+    private static void writeProperties(final JarOutputStream out, final String name) throws IOException {
+        out.putNextEntry(new JarEntry("META-INF/deployment.properties"));
+        out.write(("name=" + name + '\n').getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+    }
+}
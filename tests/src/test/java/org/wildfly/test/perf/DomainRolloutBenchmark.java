@@ -0,0 +1,313 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.as.controller.client.helpers.domain.DomainClient;
+import org.jboss.as.controller.client.helpers.domain.ServerIdentity;
+import org.jboss.as.controller.client.helpers.domain.ServerStatus;
+import org.jboss.dmr.ModelNode;
+import org.jboss.logging.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.test.scripts.ServerScriptRunner;
+import org.wildfly.test.util.ServerHelper;
+
+/**
+ * Compares strategies for restarting the servers of a server group:
+ * <ul>
+ * <li>{@code all} every server at once with the {@code restart-servers} operation of the server group</li>
+ * <li>{@code rolling} one server after the other</li>
+ * <li>{@code batches} a batch of servers at a time</li>
+ * </ul>
+ * Each batch, including a batch of one for the {@code rolling} strategy, is a composite operation of the
+ * {@code restart} operations of the servers in the batch. The next batch starts once each server of the batch is
+ * started again.
+ * <p/>
+ * The status of each server is polled while the servers restart. A server is out of service from the first poll it is
+ * not {@code STARTED} until it is {@code STARTED} again. The {@code min-in-service} is the lowest number of started
+ * servers seen during a restart.
+ * <p/>
+ * The following system properties can be used to configure the benchmark:
+ * <ul>
+ * <li>{@code wildfly.perf.rollout.servers} the number of servers in the server group, defaults to {@code 6}</li>
+ * <li>{@code wildfly.perf.rollout.batches} a comma delimited list of batch sizes, defaults to {@code 2,3}</li>
+ * <li>{@code wildfly.perf.rollout.runs} the number of restarts of each strategy, defaults to {@code 3}</li>
+ * <li>{@code wildfly.perf.rollout.port.offset} the port offset between each server, defaults to {@code 150}</li>
+ * <li>{@code wildfly.perf.rollout.poll} the interval, in milliseconds, the server statuses are polled, defaults to
+ * {@code 50}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class DomainRolloutBenchmark {
+
+    private static final Logger LOGGER = Logger.getLogger(DomainRolloutBenchmark.class);
+
+    private static final String GROUP = "main-server-group";
+
+    private final int serverCount = Integer.getInteger("wildfly.perf.rollout.servers", 6);
+    private final int[] batchSizes = BenchmarkProperties.getIntegers("wildfly.perf.rollout.batches", "2,3");
+    private final int runs = Integer.getInteger("wildfly.perf.rollout.runs", 3);
+    private final int portOffsetStep = Integer.getInteger("wildfly.perf.rollout.port.offset", 150);
+    private final long poll = Long.getLong("wildfly.perf.rollout.poll", 50L);
+
+    @Test
+    public void testRollout() throws Exception {
+        final Path wildflyHome = Benchmarks.copyWildFlyHome("domain-rollout");
+        final Report report = Report.create("domain-rollout", "strategy", "batch-size", "servers", "runs", "total-ms-p50",
+                "total-ms-max", "out-of-service-ms-p50", "out-of-service-ms-max", "server-ms-out-p50", "min-in-service");
+        try {
+            final String hostConfig = "host-rollout.xml";
+            HostConfigs.createHostConfig(wildflyHome, "host.xml", hostConfig, serverCount, GROUP, portOffsetStep);
+            try (
+                    final ServerScriptRunner runner = ServerScriptRunner.createDomain(wildflyHome, "domain-rollout");
+                    final DomainClient client = DomainClient.Factory.create(ServerHelper.createClientConnection())
+            ) {
+                final long timeout = ServerHelper.DEFAULT_STARTUP_TIMEOUT + (10L * serverCount);
+                runner.setStartupTimeout(timeout);
+                final Process process = Benchmarks.startAndWait(runner, "--host-config=" + hostConfig);
+                final List<ServerIdentity> servers = getServers(client);
+                Assert.assertEquals("Not all servers were started: " + client.getServerStatuses(), serverCount, servers.size());
+
+                // All servers at once
+                final List<Rollout> all = new ArrayList<>();
+                for (int i = 0; i < runs; i++) {
+                    ServerHelper.waitForDomain(process, client, timeout);
+                    try (final AvailabilityMonitor monitor = AvailabilityMonitor.start(client, servers, poll)) {
+                        final long start = System.nanoTime();
+                        execute(client, Operations.createOperation("restart-servers", new ModelNode().setEmptyList().add("server-group", GROUP)));
+                        monitor.awaitRestart(servers, timeout);
+                        all.add(new Rollout(Benchmarks.elapsedMillis(start), monitor));
+                    }
+                }
+                addRow(report, "all", serverCount, all);
+
+                // Rolling one at a time and in batches
+                final List<Integer> sizes = new ArrayList<>();
+                sizes.add(1);
+                for (int size : batchSizes) {
+                    if (size > 1 && size < serverCount && !sizes.contains(size)) {
+                        sizes.add(size);
+                    }
+                }
+                for (int size : sizes) {
+                    final List<Rollout> rollouts = new ArrayList<>();
+                    for (int i = 0; i < runs; i++) {
+                        ServerHelper.waitForDomain(process, client, timeout);
+                        try (final AvailabilityMonitor monitor = AvailabilityMonitor.start(client, servers, poll)) {
+                            final long start = System.nanoTime();
+                            for (int from = 0; from < servers.size(); from += size) {
+                                final List<ServerIdentity> batch = servers.subList(from, Math.min(from + size, servers.size()));
+                                execute(client, createRestartOperation(batch));
+                                monitor.awaitRestart(batch, timeout);
+                            }
+                            rollouts.add(new Rollout(Benchmarks.elapsedMillis(start), monitor));
+                        }
+                    }
+                    addRow(report, (size == 1 ? "rolling" : "batches"), size, rollouts);
+                }
+                report.addNote(String.format("servers=%d, poll=%dms", serverCount, poll));
+                report.addNote("out-of-service is the time each server was not started, server-ms-out is the sum of all servers for a restart.");
+                report.write();
+                runner.shutdown();
+            }
+        } finally {
+            Benchmarks.deleteQuietly(wildflyHome);
+        }
+    }
+
+    private static List<ServerIdentity> getServers(final DomainClient client) {
+        final List<ServerIdentity> result = new ArrayList<>();
+        for (Map.Entry<ServerIdentity, ServerStatus> entry : client.getServerStatuses().entrySet()) {
+            if (GROUP.equals(entry.getKey().getServerGroupName()) && entry.getValue() == ServerStatus.STARTED) {
+                result.add(entry.getKey());
+            }
+        }
+        Collections.sort(result, new Comparator<ServerIdentity>() {
+            @Override
+            public int compare(final ServerIdentity o1, final ServerIdentity o2) {
+                return o1.toString().compareTo(o2.toString());
+            }
+        });
+        return result;
+    }
+
+    private static ModelNode createRestartOperation(final List<ServerIdentity> batch) {
+        final ModelNode composite = Operations.createCompositeOperation();
+        final ModelNode steps = composite.get("steps");
+        for (ServerIdentity server : batch) {
+            final ModelNode address = new ModelNode().setEmptyList()
+                    .add("host", server.getHostName())
+                    .add("server-config", server.getServerName());
+            steps.add(Operations.createOperation("restart", address));
+        }
+        return composite;
+    }
+
+    private static void execute(final DomainClient client, final ModelNode op) throws Exception {
+        final ModelNode result = client.execute(op);
+        if (!Operations.isSuccessfulOutcome(result)) {
+            Assert.fail(String.format("Failed to execute %s: %s", op, Operations.getFailureDescription(result)));
+        }
+    }
+
+    private static void addRow(final Report report, final String strategy, final int batchSize, final List<Rollout> rollouts) {
+        final List<Double> totals = new ArrayList<>();
+        final List<Double> outOfService = new ArrayList<>();
+        final List<Double> serverMsOut = new ArrayList<>();
+        int minInService = Integer.MAX_VALUE;
+        for (Rollout rollout : rollouts) {
+            totals.add(rollout.totalMs);
+            double sum = 0d;
+            for (double value : rollout.outOfServiceMs) {
+                outOfService.add(value);
+                sum += value;
+            }
+            serverMsOut.add(sum);
+            minInService = Math.min(minInService, rollout.minInService);
+        }
+        final double[] total = Statistics.toArray(totals);
+        final double[] out = Statistics.toArray(outOfService);
+        report.addRow(strategy, batchSize, rollouts.isEmpty() ? 0 : rollouts.get(0).outOfServiceMs.size(), rollouts.size(),
+                Statistics.median(total), Statistics.max(total), Statistics.median(out), Statistics.max(out),
+                Statistics.median(Statistics.toArray(serverMsOut)), minInService);
+    }
+
+    private static class Rollout {
+        final double totalMs;
+        final List<Double> outOfServiceMs;
+        final int minInService;
+
+        private Rollout(final double totalMs, final AvailabilityMonitor monitor) {
+            this.totalMs = totalMs;
+            this.outOfServiceMs = monitor.getOutOfServiceMillis();
+            this.minInService = monitor.getMinInService();
+        }
+    }
+
+    /**
+     * Polls the status of the servers and records how long each server is not started.
+     */
+    private static class AvailabilityMonitor implements Runnable, Closeable {
+        private final DomainClient client;
+        private final List<ServerIdentity> servers;
+        private final ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor();
+        // The time, in nanoseconds, each server was first seen not started
+        private final Map<ServerIdentity, Long> downSince = new HashMap<>();
+        private final Map<ServerIdentity, Long> downNanos = new HashMap<>();
+        // The number of times each server was seen started again after being down
+        private final Map<ServerIdentity, Integer> restarts = new HashMap<>();
+        private int minInService;
+
+        private AvailabilityMonitor(final DomainClient client, final List<ServerIdentity> servers) {
+            this.client = client;
+            this.servers = servers;
+            this.minInService = servers.size();
+            for (ServerIdentity server : servers) {
+                downNanos.put(server, 0L);
+                restarts.put(server, 0);
+            }
+        }
+
+        static AvailabilityMonitor start(final DomainClient client, final List<ServerIdentity> servers, final long poll) {
+            final AvailabilityMonitor monitor = new AvailabilityMonitor(client, servers);
+            monitor.service.scheduleWithFixedDelay(monitor, 0L, poll, TimeUnit.MILLISECONDS);
+            return monitor;
+        }
+
+        @Override
+        public void run() {
+            final Map<ServerIdentity, ServerStatus> statuses;
+            try {
+                statuses = client.getServerStatuses();
+            } catch (RuntimeException e) {
+                LOGGER.tracef(e, "Failed to read the server statuses");
+                return;
+            }
+            final long now = System.nanoTime();
+            synchronized (this) {
+                int started = 0;
+                for (ServerIdentity server : servers) {
+                    if (statuses.get(server) == ServerStatus.STARTED) {
+                        started++;
+                        final Long since = downSince.remove(server);
+                        if (since != null) {
+                            downNanos.put(server, downNanos.get(server) + (now - since));
+                            restarts.put(server, restarts.get(server) + 1);
+                        }
+                    } else if (!downSince.containsKey(server)) {
+                        downSince.put(server, now);
+                    }
+                }
+                minInService = Math.min(minInService, started);
+                notifyAll();
+            }
+        }
+
+        /**
+         * Waits for each of the servers to have been seen down and started again.
+         */
+        synchronized void awaitRestart(final List<ServerIdentity> batch, final long timeoutSeconds) throws InterruptedException {
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            for (ServerIdentity server : batch) {
+                while (restarts.get(server) < 1) {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L) {
+                        Assert.fail(String.format("%s was not restarted within %d seconds", server.getServerName(), timeoutSeconds));
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            }
+        }
+
+        synchronized List<Double> getOutOfServiceMillis() {
+            final List<Double> result = new ArrayList<>(servers.size());
+            for (ServerIdentity server : servers) {
+                result.add(downNanos.get(server) / 1000000d);
+            }
+            return result;
+        }
+
+        synchronized int getMinInService() {
+            return minInService;
+        }
+
+        @Override
+        public void close() {
+            service.shutdownNow();
+        }
+    }
+}
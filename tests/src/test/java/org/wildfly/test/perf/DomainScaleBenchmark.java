@@ -0,0 +1,108 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+import org.jboss.as.controller.client.helpers.domain.DomainClient;
+import org.jboss.as.controller.client.helpers.domain.ServerIdentity;
+import org.jboss.as.controller.client.helpers.domain.ServerStatus;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.test.scripts.ServerScriptRunner;
+import org.wildfly.test.util.ServerHelper;
+
+/**
+ * Measures how domain startup scales with the number of servers on a single host.
+ * <p/>
+ * The following system properties can be used to configure the benchmark:
+ * <ul>
+ * <li>{@code wildfly.perf.domain.servers} a comma delimited list of the number of servers on the host, defaults to
+ * {@code 1,4,16,32}</li>
+ * <li>{@code wildfly.perf.domain.port.offset} the port offset between each server, defaults to {@code 150}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class DomainScaleBenchmark {
+
+    private final int[] serverCounts = BenchmarkProperties.getIntegers("wildfly.perf.domain.servers", "1,4,16,32");
+    private final int portOffsetStep = Integer.getInteger("wildfly.perf.domain.port.offset", 150);
+
+    @Test
+    public void testServersPerHost() throws Exception {
+        final Path wildflyHome = Benchmarks.copyWildFlyHome("domain-scale");
+        final int cores = Runtime.getRuntime().availableProcessors();
+        final Report report = Report.create("domain-scale", "servers", "cores", "boot-ms", "boot-ms-per-server",
+                "cpu-mean", "cpu-peak", "cpu-saturated", "tree-processes", "tree-cpu-ms", "tree-rss-mb",
+                "tree-rss-mb-per-server", "tree-threads", "tree-fds", "shutdown-ms");
+        try {
+            for (int count : serverCounts) {
+                final String hostConfig = "host-scale-" + count + ".xml";
+                HostConfigs.createHostConfig(wildflyHome, "host.xml", hostConfig, count, "main-server-group", portOffsetStep);
+                try (final ServerScriptRunner runner = ServerScriptRunner.createDomain(wildflyHome, "domain-scale-" + count)) {
+                    runner.setStartupTimeout(ServerHelper.DEFAULT_STARTUP_TIMEOUT + (10L * count));
+                    final double bootMs;
+                    final Process process;
+                    try (final CpuSampler cpu = CpuSampler.start(250L)) {
+                        final long start = System.nanoTime();
+                        process = runner.start("--host-config=" + hostConfig);
+                        final ProcessTreeSampler.Summary tree;
+                        try (final ProcessTreeSampler sampler = ProcessTreeSampler.start(process, 250L)) {
+                            Benchmarks.waitForStart(runner, process);
+                            bootMs = Benchmarks.elapsedMillis(start);
+                            cpu.close();
+                            sampler.sample();
+                            tree = sampler.getSummary();
+                        }
+                        assertAllStarted(count);
+                        report.addRow(count, cores, bootMs, bootMs / count, cpu.getMean(), cpu.getPeak(),
+                                cpu.getFractionAbove(0.95d), tree.processesPeak, tree.cpuMs, tree.rssMbPeak,
+                                tree.rssMbPeak / count, tree.threadsPeak, tree.fdsPeak, Benchmarks.shutdownDomain(Collections.singletonList(process), 120L));
+                    }
+                }
+            }
+            report.addNote("CPU values are the machine wide load during boot, saturated is the fraction of samples at or above 95%.");
+            report.addNote("Tree values are the script and all of its descendant processes sampled during boot, only available on Linux.");
+            report.addNote("Shutdown time is stop-servers until the servers are stopped plus the host shutdown until the process exits.");
+            report.write();
+        } finally {
+            Benchmarks.deleteQuietly(wildflyHome);
+        }
+    }
+
+    private static void assertAllStarted(final int count) throws Exception {
+        try (final DomainClient client = DomainClient.Factory.create(ServerHelper.createClientConnection())) {
+            final Map<ServerIdentity, ServerStatus> statuses = client.getServerStatuses();
+            int started = 0;
+            for (ServerStatus status : statuses.values()) {
+                if (status == ServerStatus.STARTED) {
+                    started++;
+                }
+            }
+            Assert.assertEquals("Not all servers were started: " + statuses, count, started);
+        }
+    }
+}
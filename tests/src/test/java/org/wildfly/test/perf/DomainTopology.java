@@ -0,0 +1,315 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import static org.wildfly.test.util.Environment.NEW_LINE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jboss.as.controller.client.helpers.domain.DomainClient;
+import org.jboss.as.controller.client.helpers.domain.ServerIdentity;
+import org.jboss.as.controller.client.helpers.domain.ServerStatus;
+import org.jboss.logging.Logger;
+import org.wildfly.core.launcher.ProcessHelper;
+import org.wildfly.test.scripts.ScriptRunner;
+import org.wildfly.test.scripts.Scripts;
+import org.wildfly.test.scripts.ServerScriptRunner;
+import org.wildfly.test.util.Directories;
+import org.wildfly.test.util.Environment;
+import org.wildfly.test.util.ServerHelper;
+
+/**
+ * A domain made up of a master host controller and a number of slave host controllers all running on the local
+ * machine. Each host controller runs from its own copy of the distribution.
+ * <p/>
+ * The master uses the {@code host-master.xml} configuration and the {@linkplain Environment#PORT default management
+ * port}. Each slave uses a configuration generated from {@code host-slave.xml} with a unique host name, unique
+ * management ports and servers with unique port offsets.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class DomainTopology implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(DomainTopology.class);
+
+    private static final String HOST_CONFIG = "host-topology.xml";
+    private static final String SERVER_GROUP = "main-server-group";
+    private static final String REALM = "ManagementRealm";
+    private static final String SLAVE_PASSWORD = "slave_user_password";
+    // Base64 encoded value of the slave password
+    private static final String SLAVE_SECRET = "c2xhdmVfdXNlcl9wYXNzd29yZA==";
+    private static final Pattern SECRET_PATTERN = Pattern.compile("<secret\\s+value\\s*=\\s*\"[^\"]*\"");
+    private static final int MASTER_NATIVE_PORT = 9999;
+    private static final int SLAVE_MANAGEMENT_PORT = 20000;
+
+    private final Path dir;
+    private final Path masterHome;
+    private final List<Path> slaveHomes;
+    private final int serversPerSlave;
+    private final List<ScriptRunner> slaveRunners;
+    private final List<Process> processes;
+    private ServerScriptRunner masterRunner;
+
+    private DomainTopology(final Path dir, final Path masterHome, final List<Path> slaveHomes, final int serversPerSlave) {
+        this.dir = dir;
+        this.masterHome = masterHome;
+        this.slaveHomes = slaveHomes;
+        this.serversPerSlave = serversPerSlave;
+        slaveRunners = new ArrayList<>();
+        processes = new ArrayList<>();
+    }
+
+    /**
+     * Creates the topology by copying the distribution for the master and each slave and generating the slave host
+     * configurations.
+     *
+     * @param dir             the directory to create the host directories in
+     * @param slaveCount      the number of slave host controllers
+     * @param serversPerSlave the number of auto-start servers on each slave
+     *
+     * @return the topology
+     *
+     * @throws IOException if an error occurs creating the topology
+     */
+    public static DomainTopology create(final Path dir, final int slaveCount, final int serversPerSlave) throws IOException {
+        if (Files.exists(dir)) {
+            Directories.recursiveDelete(dir);
+        }
+        Files.createDirectories(dir);
+        final Path masterHome = Directories.copy(Environment.WILDFLY_HOME, dir.resolve("master"));
+        final List<Path> slaveHomes = new ArrayList<>(slaveCount);
+        final StringBuilder users = new StringBuilder(NEW_LINE);
+        for (int i = 0; i < slaveCount; i++) {
+            final String name = slaveName(i);
+            final Path slaveHome = Directories.copy(Environment.WILDFLY_HOME, dir.resolve(name));
+            // Servers on each slave get a block of port offsets so they do not conflict with other hosts
+            final Path hostConfig = HostConfigs.createHostConfig(slaveHome, "host-slave.xml", HOST_CONFIG, name,
+                    serversPerSlave, SERVER_GROUP, (i + 1) * 1000, 150);
+            setSecret(hostConfig);
+            slaveHomes.add(slaveHome);
+            users.append(name).append('=').append(hashPassword(name)).append(NEW_LINE);
+        }
+        // The slaves authenticate with the master using the host name as the user name
+        Files.write(masterHome.resolve("domain").resolve("configuration").resolve("mgmt-users.properties"),
+                users.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        return new DomainTopology(dir, masterHome, slaveHomes, serversPerSlave);
+    }
+
+    /**
+     * Starts the master and all the slaves at the same time and waits for every slave to register with the master and
+     * every server to be started.
+     *
+     * @param timeout the maximum time to wait in seconds
+     *
+     * @return the timings of the boot
+     *
+     * @throws IOException          if an error occurs starting a host controller
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public BootResult start(final long timeout) throws IOException, InterruptedException {
+        if (masterRunner != null) {
+            throw new IllegalStateException("The topology has already been started");
+        }
+        final int slaveCount = slaveHomes.size();
+        final long launch = System.nanoTime();
+        masterRunner = ServerScriptRunner.createDomain(masterHome, "topology-master");
+        processes.add(masterRunner.start("--host-config=host-master.xml"));
+        final long[] slaveStarts = new long[slaveCount];
+        for (int i = 0; i < slaveCount; i++) {
+            final ScriptRunner runner = ScriptRunner.of(slaveHomes.get(i), Scripts.DOMAIN_SCRIPT);
+            slaveRunners.add(runner);
+            slaveStarts[i] = System.nanoTime();
+            processes.add(runner.start(
+                    "--host-config=" + HOST_CONFIG,
+                    "-Djboss.domain.master.address=127.0.0.1",
+                    "-Djboss.domain.master.port=" + MASTER_NATIVE_PORT,
+                    "-Djboss.management.native.port=" + (SLAVE_MANAGEMENT_PORT + (i * 10)),
+                    "-Djboss.management.http.port=" + (SLAVE_MANAGEMENT_PORT + (i * 10) + 1)
+            ));
+        }
+
+        final double[] registration = new double[slaveCount];
+        Arrays.fill(registration, Double.NaN);
+        double masterReady = Double.NaN;
+        final int expectedServers = slaveCount * serversPerSlave;
+        final long deadline = launch + TimeUnit.SECONDS.toNanos(timeout);
+        try (final DomainClient client = DomainClient.Factory.create(ServerHelper.createClientConnection())) {
+            while (System.nanoTime() < deadline) {
+                for (int i = 0; i < processes.size(); i++) {
+                    if (ProcessHelper.processHasDied(processes.get(i))) {
+                        throw new RuntimeException(createFailureMessage((i == 0 ? "master" : slaveName(i - 1)) + " has exited"));
+                    }
+                }
+                try {
+                    final List<String> hostNames = client.getHostControllerNames();
+                    if (Double.isNaN(masterReady)) {
+                        masterReady = Benchmarks.elapsedMillis(launch);
+                    }
+                    int registered = 0;
+                    for (int i = 0; i < slaveCount; i++) {
+                        if (Double.isNaN(registration[i]) && hostNames.contains(slaveName(i))) {
+                            registration[i] = Benchmarks.elapsedMillis(slaveStarts[i]);
+                        }
+                        if (!Double.isNaN(registration[i])) {
+                            registered++;
+                        }
+                    }
+                    if (registered == slaveCount && countStarted(client.getServerStatuses()) == expectedServers) {
+                        return new BootResult(Benchmarks.elapsedMillis(launch), masterReady, registration);
+                    }
+                } catch (Exception e) {
+                    LOGGER.tracef(e, "Domain not yet available");
+                }
+                TimeUnit.MILLISECONDS.sleep(50L);
+            }
+        }
+        throw new RuntimeException(createFailureMessage(String.format("The domain did not start within %ds", timeout)));
+    }
+
+    /**
+     * Shuts down the domain through the master and waits for every host controller process to exit, see
+     * {@link Benchmarks#shutdownDomain(java.util.Collection, long)}.
+     *
+     * @param timeout the maximum time to wait for the processes to exit in seconds
+     *
+     * @return the time, in milliseconds, it took to shut down the domain
+     *
+     * @throws IOException          if an error occurs shutting down the domain
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public double shutdown(final long timeout) throws IOException, InterruptedException {
+        return Benchmarks.shutdownDomain(processes, timeout);
+    }
+
+    public int getSlaveCount() {
+        return slaveHomes.size();
+    }
+
+    public int getServersPerSlave() {
+        return serversPerSlave;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            for (ScriptRunner runner : slaveRunners) {
+                runner.close();
+            }
+            if (masterRunner != null) {
+                masterRunner.close();
+            }
+        } finally {
+            Benchmarks.deleteQuietly(dir);
+        }
+    }
+
+    private String createFailureMessage(final String reason) throws IOException {
+        final StringBuilder msg = new StringBuilder(reason).append(NEW_LINE);
+        msg.append("master:").append(NEW_LINE);
+        for (String line : masterRunner.readConsoleLines()) {
+            msg.append(line).append(NEW_LINE);
+        }
+        for (int i = 0; i < slaveRunners.size(); i++) {
+            msg.append(slaveName(i)).append(':').append(NEW_LINE);
+            for (String line : slaveRunners.get(i).readConsoleLines()) {
+                msg.append(line).append(NEW_LINE);
+            }
+        }
+        return msg.toString();
+    }
+
+    private static int countStarted(final Map<ServerIdentity, ServerStatus> statuses) {
+        int result = 0;
+        for (ServerStatus status : statuses.values()) {
+            if (status == ServerStatus.STARTED) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private static String slaveName(final int index) {
+        return "slave-" + index;
+    }
+
+    private static void setSecret(final Path hostConfig) throws IOException {
+        final String xml = new String(Files.readAllBytes(hostConfig), StandardCharsets.UTF_8);
+        final Matcher matcher = SECRET_PATTERN.matcher(xml);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Could not find the server identity secret in " + hostConfig);
+        }
+        final String result = xml.substring(0, matcher.start()) + "<secret value=\"" + SLAVE_SECRET + "\"" + xml.substring(matcher.end());
+        Files.write(hostConfig, result.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hashPassword(final String user) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("MD5");
+            final byte[] hash = digest.digest((user + ':' + REALM + ':' + SLAVE_PASSWORD).getBytes(StandardCharsets.UTF_8));
+            final StringBuilder result = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                result.append(String.format("%02x", b & 0xff));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The timings, in milliseconds, of a domain boot.
+     */
+    public static class BootResult {
+        /**
+         * The time from launching the host controllers until every slave was registered and every server started
+         */
+        public final double domainBoot;
+        /**
+         * The time from launching the master until the master accepted management requests
+         */
+        public final double masterReady;
+        /**
+         * The time from launching each slave until it was registered with the master
+         */
+        public final double[] registration;
+
+        BootResult(final double domainBoot, final double masterReady, final double[] registration) {
+            this.domainBoot = domainBoot;
+            this.masterReady = masterReady;
+            this.registration = registration;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import org.junit.Test;
+import org.wildfly.test.util.Environment;
+
+/**
+ * Measures the boot, slave registration and coordinated shutdown of a domain with several host controllers on the
+ * local machine.
+ * <p/>
+ * The following system properties can be used to configure the benchmark:
+ * <ul>
+ * <li>{@code wildfly.perf.topology.slaves} a comma delimited list of the number of slave host controllers, defaults to
+ * {@code 1,2,4}</li>
+ * <li>{@code wildfly.perf.topology.servers} the number of servers on each slave, defaults to {@code 2}</li>
+ * <li>{@code wildfly.perf.topology.timeout} the time in seconds to wait for the domain to start, defaults to
+ * {@code 300}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class DomainTopologyBenchmark {
+
+    private final int[] slaveCounts = BenchmarkProperties.getIntegers("wildfly.perf.topology.slaves", "1,2,4");
+    private final int serversPerSlave = Integer.getInteger("wildfly.perf.topology.servers", 2);
+    private final long timeout = Long.getLong("wildfly.perf.topology.timeout", 300L);
+
+    @Test
+    public void testMultipleHostControllers() throws Exception {
+        final Report report = Report.create("domain-topology", "slaves", "servers", "domain-boot-ms", "master-ready-ms",
+                "registration-p50-ms", "registration-max-ms", "shutdown-ms");
+        try {
+            for (int slaves : slaveCounts) {
+                try (final DomainTopology topology = DomainTopology.create(Environment.TMP_DIR.resolve("domain-topology"), slaves, serversPerSlave)) {
+                    final DomainTopology.BootResult result = topology.start(timeout);
+                    final double shutdownMs = topology.shutdown(timeout);
+                    report.addRow(slaves, slaves * serversPerSlave, result.domainBoot, result.masterReady,
+                            Statistics.median(result.registration), Statistics.max(result.registration), shutdownMs);
+                }
+            }
+        } finally {
+            report.addNote("Registration is measured from the launch of each slave until the master lists the slave's host.");
+            report.write();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.util.Arrays;
+
+/**
+ * A log-linear histogram of {@code long} values, e.g. latencies in microseconds, with a relative precision of better
+ * than 1%. The histogram is not thread safe, each recording thread should use its own histogram and the results should
+ * be combined with {@link #add(Histogram)}.
+ * <p/>
+ * The {@link #recordValueWithExpectedInterval(long, long)} method corrects for coordinated omission in the same way
+ * as <a href="http://hdrhistogram.org/">HdrHistogram</a> does by back-filling the samples a stalled caller did not get
+ * a chance to send.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class Histogram {
+    private static final int LINEAR_BUCKETS = 256;
+    private static final int SUB_BUCKETS = 128;
+    private static final int SIGNIFICANT_BITS = 7;
+
+    private final long[] counts = new long[LINEAR_BUCKETS + (64 - SIGNIFICANT_BITS) * SUB_BUCKETS];
+    private long totalCount;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private double sum;
+
+    public void recordValue(final long value) {
+        recordValue(value, 1L);
+    }
+
+    /**
+     * Records the value and, if the value is larger than the expected interval, the values the caller would have
+     * recorded if it had not been blocked.
+     *
+     * @param value            the value to record
+     * @param expectedInterval the expected interval between recordings, a value of {@code 0} or less disables the
+     *                         correction
+     */
+    public void recordValueWithExpectedInterval(final long value, final long expectedInterval) {
+        recordValue(value);
+        if (expectedInterval <= 0) {
+            return;
+        }
+        for (long missing = value - expectedInterval; missing >= expectedInterval; missing -= expectedInterval) {
+            recordValue(missing);
+        }
+    }
+
+    public void add(final Histogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        if (other.totalCount > 0) {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMinValue() {
+        return totalCount == 0 ? 0L : min;
+    }
+
+    public long getMaxValue() {
+        return max;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? Double.NaN : sum / totalCount;
+    }
+
+    /**
+     * Returns the highest value equivalent to the values recorded at the percentile.
+     *
+     * @param percentile the percentile, between 0 and 100
+     *
+     * @return the value at the percentile
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (totalCount == 0) {
+            return 0L;
+        }
+        final long target = Math.max(1L, (long) Math.ceil((percentile / 100d) * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0L);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    private void recordValue(final long value, final long count) {
+        final long v = Math.max(0L, value);
+        counts[bucketIndex(v)] += count;
+        totalCount += count;
+        sum += (double) v * count;
+        min = Math.min(min, v);
+        max = Math.max(max, v);
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = (63 - Long.numberOfLeadingZeros(value)) - SIGNIFICANT_BITS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long highestEquivalentValue(final int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        final int shift = ((index - LINEAR_BUCKETS) / SUB_BUCKETS) + 1;
+        final long mantissa = ((index - LINEAR_BUCKETS) % SUB_BUCKETS) + SUB_BUCKETS;
+        return (mantissa << shift) + (1L << shift) - 1;
+    }
+}
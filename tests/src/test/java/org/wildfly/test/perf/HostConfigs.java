@@ -0,0 +1,132 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import static org.wildfly.test.util.Environment.NEW_LINE;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generates domain host configuration files from the host configurations shipped with the distribution.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class HostConfigs {
+    private static final Pattern HOST_PATTERN = Pattern.compile("<host(\\s[^>]*)?>");
+    private static final Pattern NAME_PATTERN = Pattern.compile("\\s+name\\s*=\\s*\"[^\"]*\"");
+    private static final Pattern SERVERS_PATTERN = Pattern.compile("<servers\\s*>.*?</servers>|<servers\\s*/>", Pattern.DOTALL);
+
+    private HostConfigs() {
+    }
+
+    /**
+     * Creates a host configuration in the {@code domain/configuration} directory based on an existing host
+     * configuration. The servers of the source configuration are replaced with {@code serverCount} servers named
+     * {@code server-N}, each set to auto-start and assigned a unique port offset.
+     *
+     * @param wildflyHome    the WildFly home directory
+     * @param source         the file name of the host configuration to copy, e.g. {@code host.xml}
+     * @param target         the file name of the new host configuration
+     * @param serverCount    the number of servers to create
+     * @param group          the server group the servers belong to
+     * @param portOffsetStep the difference in port offset between each server
+     *
+     * @return the path to the new host configuration
+     *
+     * @throws IOException if an error occurs reading or writing the configuration
+     */
+    public static Path createHostConfig(final Path wildflyHome, final String source, final String target, final int serverCount,
+                                        final String group, final int portOffsetStep) throws IOException {
+        return createHostConfig(wildflyHome, source, target, null, serverCount, group, 0, portOffsetStep);
+    }
+
+    /**
+     * Creates a host configuration in the {@code domain/configuration} directory based on an existing host
+     * configuration. The servers of the source configuration are replaced with {@code serverCount} servers named
+     * {@code server-N}, each set to auto-start and assigned a unique port offset.
+     *
+     * @param wildflyHome    the WildFly home directory
+     * @param source         the file name of the host configuration to copy, e.g. {@code host.xml}
+     * @param target         the file name of the new host configuration
+     * @param hostName       the name for the host or {@code null} to keep the name from the source configuration
+     * @param serverCount    the number of servers to create
+     * @param group          the server group the servers belong to
+     * @param basePortOffset the port offset of the first server
+     * @param portOffsetStep the difference in port offset between each server
+     *
+     * @return the path to the new host configuration
+     *
+     * @throws IOException if an error occurs reading or writing the configuration
+     */
+    public static Path createHostConfig(final Path wildflyHome, final String source, final String target, final String hostName,
+                                        final int serverCount, final String group, final int basePortOffset,
+                                        final int portOffsetStep) throws IOException {
+        final Path configDir = wildflyHome.resolve("domain").resolve("configuration");
+        String xml = new String(Files.readAllBytes(configDir.resolve(source)), StandardCharsets.UTF_8);
+        if (hostName != null) {
+            xml = setHostName(xml, hostName);
+        }
+        final Matcher matcher = SERVERS_PATTERN.matcher(xml);
+        final String servers = createServers(serverCount, group, basePortOffset, portOffsetStep);
+        final String result;
+        if (matcher.find()) {
+            result = xml.substring(0, matcher.start()) + servers + xml.substring(matcher.end());
+        } else {
+            // No servers element, add the servers before the closing host element
+            final int index = xml.lastIndexOf("</host>");
+            if (index < 0) {
+                throw new IllegalArgumentException("Could not find the closing host element in " + source);
+            }
+            result = xml.substring(0, index) + "    " + servers + NEW_LINE + xml.substring(index);
+        }
+        final Path file = configDir.resolve(target);
+        Files.write(file, result.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    static String setHostName(final String xml, final String hostName) {
+        final Matcher matcher = HOST_PATTERN.matcher(xml);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("Could not find the host element");
+        }
+        final String element = NAME_PATTERN.matcher(matcher.group()).replaceFirst("");
+        return xml.substring(0, matcher.start()) + "<host name=\"" + hostName + "\"" + element.substring("<host".length()) + xml.substring(matcher.end());
+    }
+
+    static String createServers(final int serverCount, final String group, final int basePortOffset, final int portOffsetStep) {
+        final StringBuilder result = new StringBuilder("<servers>").append(NEW_LINE);
+        for (int i = 0; i < serverCount; i++) {
+            result.append("        <server name=\"server-").append(i)
+                    .append("\" group=\"").append(group)
+                    .append("\" auto-start=\"true\">").append(NEW_LINE)
+                    .append("            <socket-bindings port-offset=\"").append(basePortOffset + (i * portOffsetStep)).append("\"/>").append(NEW_LINE)
+                    .append("        </server>").append(NEW_LINE);
+        }
+        return result.append("    </servers>").toString();
+    }
+}
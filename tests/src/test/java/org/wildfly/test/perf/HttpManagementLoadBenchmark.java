@@ -0,0 +1,265 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.wildfly.test.scripts.ServerScriptRunner;
+import org.wildfly.test.util.Environment;
+import org.wildfly.test.util.ServerHelper;
+
+/**
+ * Compares the HTTP management endpoint with the native management client. The same read operations are executed at
+ * the same concurrency with {@linkplain HttpManagementTarget JSON requests} over HTTP and with
+ * {@link ModelControllerClient native clients}.
+ * <p/>
+ * Each worker thread of the HTTP load reuses a kept alive connection while the native clients are shared between the
+ * worker threads. The connections to the management port are counted from {@code /proc/net/tcp} while the load runs,
+ * on other platforms the connections are not counted. The native clients are closed after each run so the counts of
+ * the HTTP runs only include HTTP connections.
+ * <p/>
+ * The following system properties can be used to configure the load:
+ * <ul>
+ * <li>{@code wildfly.perf.http.threads} a comma delimited list of worker thread counts, defaults to
+ * {@code 1,4,16,64}</li>
+ * <li>{@code wildfly.perf.http.clients} the number of native client connections, defaults to {@code 4}</li>
+ * <li>{@code wildfly.perf.http.modes} a comma delimited list of {@code CLOSED_LOOP} and/or {@code FIXED_RATE}, defaults
+ * to {@code CLOSED_LOOP}</li>
+ * <li>{@code wildfly.perf.http.rate} the total operations per second for the fixed rate mode, defaults to
+ * {@code 500}</li>
+ * <li>{@code wildfly.perf.http.warmup} the warm up time in seconds, defaults to {@code 5}</li>
+ * <li>{@code wildfly.perf.http.duration} the measured time in seconds, defaults to {@code 20}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class HttpManagementLoadBenchmark {
+
+    private static final String USER = "perf-http";
+    private static final String PASSWORD = "perf-http-password1!";
+
+    private static final String NATIVE = "native";
+    private static final String HTTP = "http";
+
+    private final int[] threadCounts = BenchmarkProperties.getIntegers("wildfly.perf.http.threads", "1,4,16,64");
+    private final int clientCount = Integer.getInteger("wildfly.perf.http.clients", 4);
+    private final List<String> modes = BenchmarkProperties.getStrings("wildfly.perf.http.modes", "CLOSED_LOOP");
+    private final double rate = BenchmarkProperties.getDouble("wildfly.perf.http.rate", 500d);
+    private final long warmup = Long.getLong("wildfly.perf.http.warmup", 5L);
+    private final long duration = Long.getLong("wildfly.perf.http.duration", 20L);
+
+    @BeforeClass
+    public static void keepAliveConnections() {
+        // Allow a kept alive connection for each worker thread
+        if (System.getProperty("http.maxConnections") == null) {
+            int max = 0;
+            for (int threads : BenchmarkProperties.getIntegers("wildfly.perf.http.threads", "1,4,16,64")) {
+                max = Math.max(max, threads);
+            }
+            System.setProperty("http.maxConnections", Integer.toString(max));
+        }
+    }
+
+    @Test
+    public void testHttpManagement() throws Exception {
+        final Path wildflyHome = Benchmarks.copyWildFlyHome("http-management");
+        try {
+            HttpManagementTarget.addUser(wildflyHome, USER, PASSWORD);
+            try (final ServerScriptRunner runner = ServerScriptRunner.createStandalone(wildflyHome, "http-management")) {
+                Benchmarks.startAndWait(runner);
+                final HttpManagementTarget httpTarget = HttpManagementTarget.create(Environment.HOSTNAME, Environment.PORT, USER, PASSWORD);
+                final ModelNode result = httpTarget.execute(Operations.createReadAttributeOperation(ServerHelper.EMPTY_ADDRESS, "server-state"));
+                Assert.assertTrue("The HTTP management endpoint failed: " + result, Operations.isSuccessfulOutcome(result));
+
+                final Report report = Report.create("http-management-load", "protocol", "mode", "threads", "connections-peak",
+                        "operations", "failures", "exceptions", "ops-per-sec", "relative-to-native", "p50-ms", "p90-ms",
+                        "p99-ms", "p99.9-ms", "max-ms");
+                for (String m : modes) {
+                    final LoadGenerator.Mode mode = LoadGenerator.Mode.valueOf(m);
+                    for (int threads : threadCounts) {
+                        // Native clients
+                        final List<ModelControllerClient> clients = new ArrayList<>(clientCount);
+                        final LoadGenerator.Result nativeResult;
+                        final int nativeConnections;
+                        try {
+                            final List<LoadGenerator.Target> targets = new ArrayList<>(clientCount);
+                            for (int i = 0; i < clientCount; i++) {
+                                final ModelControllerClient client = ServerHelper.createClientConnection();
+                                clients.add(client);
+                                targets.add(LoadGenerator.of(client));
+                            }
+                            final ConnectionCounter counter = ConnectionCounter.start(Environment.PORT);
+                            try {
+                                nativeResult = run(targets, mode, threads);
+                            } finally {
+                                nativeConnections = counter.stop();
+                            }
+                        } finally {
+                            for (ModelControllerClient client : clients) {
+                                try {
+                                    client.close();
+                                } catch (IOException ignore) {
+                                }
+                            }
+                        }
+                        addRow(report, NATIVE, nativeResult, nativeConnections, 1d);
+
+                        // HTTP, the connections are kept alive by the JDK so a single target is used by each worker
+                        final ConnectionCounter httpCounter = ConnectionCounter.start(Environment.PORT);
+                        final LoadGenerator.Result httpResult;
+                        final int httpConnections;
+                        try {
+                            httpResult = run(Collections.<LoadGenerator.Target>singletonList(httpTarget), mode, threads);
+                        } finally {
+                            httpConnections = httpCounter.stop();
+                        }
+                        addRow(report, HTTP, httpResult, httpConnections, httpResult.getThroughput() / nativeResult.getThroughput());
+                    }
+                }
+                report.addNote(String.format("native-clients=%d, fixed-rate=%s ops/sec, warmup=%ds, duration=%ds", clientCount,
+                        Report.format(rate), warmup, duration));
+                report.addNote("connections-peak is the peak of established connections to the management port, -1 if they could not be counted.");
+                report.addNote("http.maxConnections=" + System.getProperty("http.maxConnections"));
+                report.write();
+                runner.shutdown();
+            }
+        } finally {
+            Benchmarks.deleteQuietly(wildflyHome);
+        }
+    }
+
+    private LoadGenerator.Result run(final List<LoadGenerator.Target> targets, final LoadGenerator.Mode mode, final int threads) throws InterruptedException {
+        return LoadGenerator.of(targets, ManagementLoadBenchmark.createOperations())
+                .setMode(mode)
+                .setThreads(threads)
+                .setRate(rate)
+                .run(warmup, duration, TimeUnit.SECONDS);
+    }
+
+    private static void addRow(final Report report, final String protocol, final LoadGenerator.Result result,
+                               final int connections, final double relative) {
+        report.addRow(protocol, result.mode, result.threads, connections, result.getOperations(), result.getFailures(),
+                result.getExceptions(), result.getThroughput(), relative,
+                millis(result.corrected.getValueAtPercentile(50d)),
+                millis(result.corrected.getValueAtPercentile(90d)),
+                millis(result.corrected.getValueAtPercentile(99d)),
+                millis(result.corrected.getValueAtPercentile(99.9d)),
+                millis(result.corrected.getMaxValue()));
+    }
+
+    private static double millis(final long micros) {
+        return micros / 1000d;
+    }
+
+    /**
+     * Samples the number of established TCP connections to a port from {@code /proc/net/tcp} and
+     * {@code /proc/net/tcp6} and keeps the peak.
+     */
+    private static class ConnectionCounter {
+        private static final Path[] TCP_FILES = {Paths.get("/proc/net/tcp"), Paths.get("/proc/net/tcp6")};
+        private static final String ESTABLISHED = "01";
+
+        private final int port;
+        private final ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor();
+        private final AtomicInteger peak = new AtomicInteger(-1);
+
+        private ConnectionCounter(final int port) {
+            this.port = port;
+        }
+
+        static ConnectionCounter start(final int port) {
+            final ConnectionCounter counter = new ConnectionCounter(port);
+            if (Files.exists(TCP_FILES[0])) {
+                counter.service.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        final int count = counter.count();
+                        int current;
+                        while ((current = counter.peak.get()) < count) {
+                            if (counter.peak.compareAndSet(current, count)) {
+                                break;
+                            }
+                        }
+                    }
+                }, 0L, 100L, TimeUnit.MILLISECONDS);
+            }
+            return counter;
+        }
+
+        /**
+         * Stops sampling.
+         *
+         * @return the peak number of connections or {@code -1} if the connections could not be counted
+         */
+        int stop() {
+            service.shutdownNow();
+            return peak.get();
+        }
+
+        /**
+         * Counts the client side of the established connections, the remote port is the port of the server.
+         */
+        private int count() {
+            int result = 0;
+            for (Path file : TCP_FILES) {
+                if (Files.notExists(file)) {
+                    continue;
+                }
+                try {
+                    final List<String> lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+                    // The first line is the header
+                    for (String line : lines.subList(1, lines.size())) {
+                        final String[] fields = line.trim().split("\\s+");
+                        if (fields.length > 3 && ESTABLISHED.equals(fields[3])) {
+                            final String remote = fields[2];
+                            final int remotePort = Integer.parseInt(remote.substring(remote.lastIndexOf(':') + 1), 16);
+                            if (remotePort == port) {
+                                result++;
+                            }
+                        }
+                    }
+                } catch (IOException | RuntimeException ignore) {
+                    return -1;
+                }
+            }
+            return result;
+        }
+    }
+}
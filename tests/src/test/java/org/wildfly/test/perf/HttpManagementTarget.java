@@ -0,0 +1,165 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Authenticator;
+import java.net.HttpURLConnection;
+import java.net.PasswordAuthentication;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * A {@linkplain LoadGenerator.Target target} which executes operations with JSON requests to the HTTP management
+ * endpoint, {@code /management}, of a server.
+ * <p/>
+ * The requests are sent with a {@link HttpURLConnection} which keeps connections alive between requests. The number of
+ * idle connections kept alive for a server is limited by the {@code http.maxConnections} system property, which
+ * defaults to {@code 5}, and must be set before the first connection is opened.
+ * <p/>
+ * The HTTP management interface requires digest authentication. A user can be added to the management realm of a
+ * server with {@link #addUser(Path, String, String)}.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class HttpManagementTarget implements LoadGenerator.Target {
+
+    /**
+     * The realm of the HTTP management interface
+     */
+    public static final String REALM = "ManagementRealm";
+
+    private static final String JSON = "application/json";
+
+    private final URL url;
+
+    private HttpManagementTarget(final URL url) {
+        this.url = url;
+    }
+
+    /**
+     * Creates a target for the HTTP management endpoint of a server. Note that the credentials are set as the
+     * {@linkplain Authenticator#setDefault(Authenticator) default authenticator} of the JVM.
+     *
+     * @param host     the host of the server
+     * @param port     the management port of the server
+     * @param user     the management user
+     * @param password the password of the user
+     *
+     * @return the target
+     *
+     * @throws IOException if the URL of the endpoint is invalid
+     */
+    public static HttpManagementTarget create(final String host, final int port, final String user, final String password) throws IOException {
+        Authenticator.setDefault(new Authenticator() {
+            @Override
+            protected PasswordAuthentication getPasswordAuthentication() {
+                return new PasswordAuthentication(user, password.toCharArray());
+            }
+        });
+        return new HttpManagementTarget(new URL("http", host, port, "/management"));
+    }
+
+    /**
+     * Adds a user to the {@code mgmt-users.properties} of a standalone server. The server reads the file when a user
+     * authenticates, so a running server does not need to be reloaded.
+     *
+     * @param wildflyHome the WildFly home directory
+     * @param user        the name of the user
+     * @param password    the password of the user
+     *
+     * @throws IOException if an error occurs writing the file
+     */
+    public static void addUser(final Path wildflyHome, final String user, final String password) throws IOException {
+        final Path file = wildflyHome.resolve("standalone").resolve("configuration").resolve("mgmt-users.properties");
+        final String entry = System.lineSeparator() + user + "=" + hex(md5(user + ":" + REALM + ":" + password)) + System.lineSeparator();
+        Files.write(file, entry.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public ModelNode execute(final ModelNode op) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", JSON);
+        connection.setRequestProperty("Accept", JSON);
+        // The body is buffered rather than streamed so the request can be resent after the digest challenge
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(op.toJSONString(true).getBytes(StandardCharsets.UTF_8));
+        }
+        final int status = connection.getResponseCode();
+        // Failed operations are returned with an error status, the stream must be read fully for the connection to
+        // be reused
+        final InputStream in = (status >= HttpURLConnection.HTTP_BAD_REQUEST ? connection.getErrorStream() : connection.getInputStream());
+        if (in == null) {
+            throw new IOException(String.format("No response from %s, HTTP status %d", url, status));
+        }
+        final String body;
+        try {
+            body = read(in);
+        } finally {
+            in.close();
+        }
+        final String contentType = connection.getContentType();
+        if (contentType == null || !contentType.startsWith(JSON)) {
+            throw new IOException(String.format("Unexpected response from %s, HTTP status %d: %s", url, status, body));
+        }
+        return ModelNode.fromJSONString(body);
+    }
+
+    private static String read(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] md5(final String value) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(final byte[] bytes) {
+        final StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(String.format("%02x", b & 0xff));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.jboss.logging.Logger;
+
+/**
+ * Generates management operation load against one or more {@linkplain Target targets}.
+ * <p/>
+ * In {@link Mode#FIXED_RATE fixed rate} mode each operation has an intended start time and the latency is measured
+ * from that time, which includes any time the operation spent waiting behind a slow operation. In
+ * {@link Mode#CLOSED_LOOP closed loop} mode operations are issued back to back and the latencies are corrected for
+ * coordinated omission using the mean service time measured during the warm up as the expected interval, so closed
+ * loop mode requires a warm up.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class LoadGenerator {
+    private static final Logger LOGGER = Logger.getLogger(LoadGenerator.class);
+
+    /**
+     * Executes a management operation.
+     */
+    public interface Target {
+
+        /**
+         * Executes the operation.
+         *
+         * @param op the operation to execute
+         *
+         * @return the result of the operation
+         *
+         * @throws IOException if a communication error occurs
+         */
+        ModelNode execute(ModelNode op) throws IOException;
+    }
+
+    public enum Mode {
+        CLOSED_LOOP,
+        FIXED_RATE,
+    }
+
+    private final List<Target> targets;
+    private final List<ModelNode> operations;
+    private int threads = 1;
+    private Mode mode = Mode.CLOSED_LOOP;
+    private double rate = 100d;
+    private volatile boolean stopped;
+
+    private LoadGenerator(final List<Target> targets, final List<ModelNode> operations) {
+        this.targets = targets;
+        this.operations = operations;
+    }
+
+    /**
+     * Creates a new load generator. Each worker thread uses a single target, the targets are assigned to the workers
+     * in a round-robin fashion. The operations are executed in order by each worker.
+     *
+     * @param targets    the targets to execute the operations on
+     * @param operations the operations to execute
+     *
+     * @return the new load generator
+     */
+    public static LoadGenerator of(final List<Target> targets, final List<ModelNode> operations) {
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("At least one target is required");
+        }
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("At least one operation is required");
+        }
+        return new LoadGenerator(new ArrayList<>(targets), new ArrayList<>(operations));
+    }
+
+    /**
+     * Creates a target for a management client.
+     *
+     * @param client the client to execute the operations with
+     *
+     * @return the target
+     */
+    public static Target of(final ModelControllerClient client) {
+        return new Target() {
+            @Override
+            public ModelNode execute(final ModelNode op) throws IOException {
+                return client.execute(op);
+            }
+        };
+    }
+
+    public LoadGenerator setThreads(final int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be greater than 0: " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    public LoadGenerator setMode(final Mode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    /**
+     * Sets the total rate, in operations per second, across all worker threads. Only used in
+     * {@link Mode#FIXED_RATE fixed rate} mode.
+     *
+     * @param rate the total operations per second
+     *
+     * @return this generator
+     */
+    public LoadGenerator setRate(final double rate) {
+        if (rate <= 0d) {
+            throw new IllegalArgumentException("The rate must be greater than 0: " + rate);
+        }
+        this.rate = rate;
+        return this;
+    }
+
+    /**
+     * Stops a {@linkplain #run(long, long, TimeUnit) running} load before the duration has passed. Each worker finishes
+     * the operation it is executing. A stopped generator cannot be run again.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Runs the load.
+     *
+     * @param warmup   the time to run before results are recorded, must be greater than 0 in closed loop mode
+     * @param duration the time results are recorded for
+     * @param unit     the unit for the warm up and duration
+     *
+     * @return the result
+     *
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public Result run(final long warmup, final long duration, final TimeUnit unit) throws InterruptedException {
+        if (mode == Mode.CLOSED_LOOP && warmup <= 0L) {
+            throw new IllegalArgumentException("A warm up is required in closed loop mode to measure the expected interval: " + warmup);
+        }
+        final ExecutorService service = Executors.newFixedThreadPool(threads);
+        try {
+            final long intervalNanos = (mode == Mode.FIXED_RATE ? (long) (threads * TimeUnit.SECONDS.toNanos(1L) / rate) : 0L);
+            // Allow the workers a moment to be scheduled before the first intended start time
+            final long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50L);
+            final long measureStart = start + unit.toNanos(warmup);
+            final long end = measureStart + unit.toNanos(duration);
+            final List<Future<Result>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                // Stagger the workers so the fixed rate operations are spread across the interval
+                final long first = start + (intervalNanos * i / threads);
+                futures.add(service.submit(new Worker(targets.get(i % targets.size()), i, first, intervalNanos, measureStart, end)));
+            }
+            final List<Result> results = new ArrayList<>(threads);
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Load worker failed", e.getCause());
+                }
+            }
+            // The measured time rather than the duration, the load may have been stopped or the last operations late
+            final Result result = new Result(mode, threads, Math.max(1L, System.nanoTime() - measureStart));
+            for (Result workerResult : results) {
+                result.add(workerResult);
+            }
+            return result;
+        } finally {
+            service.shutdownNow();
+        }
+    }
+
+    private class Worker implements Callable<Result> {
+        private final Target target;
+        private final int index;
+        private final long first;
+        private final long intervalNanos;
+        private final long measureStart;
+        private final long end;
+
+        private Worker(final Target target, final int index, final long first, final long intervalNanos, final long measureStart, final long end) {
+            this.target = target;
+            this.index = index;
+            this.first = first;
+            this.intervalNanos = intervalNanos;
+            this.measureStart = measureStart;
+            this.end = end;
+        }
+
+        @Override
+        public Result call() throws Exception {
+            final Result result = new Result(mode, 1, end - measureStart);
+            long next = first;
+            long warmupCount = 0;
+            long warmupNanos = 0;
+            long expectedInterval = 0;
+            int opIndex = index;
+            while (true) {
+                final long intended;
+                if (mode == Mode.FIXED_RATE) {
+                    intended = next;
+                    next += intervalNanos;
+                    long now;
+                    while ((now = System.nanoTime()) < intended) {
+                        LockSupport.parkNanos(intended - now);
+                    }
+                } else {
+                    intended = System.nanoTime();
+                }
+                // A fixed rate worker which fell behind stops at the end rather than executing its backlog
+                if (intended >= end || System.nanoTime() >= end || stopped || Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                final ModelNode op = operations.get(opIndex++ % operations.size());
+                final long actualStart = System.nanoTime();
+                boolean success = false;
+                boolean exception = false;
+                try {
+                    success = Operations.isSuccessfulOutcome(target.execute(op));
+                } catch (IOException | RuntimeException e) {
+                    exception = true;
+                    LOGGER.tracef(e, "Failed to execute %s", op);
+                }
+                final long done = System.nanoTime();
+                // Operations of a worker which fell behind during the warm up are measured by when they executed
+                if (actualStart < measureStart) {
+                    warmupCount++;
+                    warmupNanos += (done - actualStart);
+                    continue;
+                }
+                if (mode == Mode.CLOSED_LOOP && expectedInterval == 0 && warmupCount > 0) {
+                    expectedInterval = TimeUnit.NANOSECONDS.toMicros(warmupNanos / warmupCount);
+                }
+                final long serviceMicros = TimeUnit.NANOSECONDS.toMicros(done - actualStart);
+                if (mode == Mode.FIXED_RATE) {
+                    result.corrected.recordValue(TimeUnit.NANOSECONDS.toMicros(done - intended));
+                } else {
+                    result.corrected.recordValueWithExpectedInterval(serviceMicros, expectedInterval);
+                }
+                result.uncorrected.recordValue(serviceMicros);
+                result.operations++;
+                if (exception) {
+                    result.exceptions++;
+                } else if (!success) {
+                    result.failures++;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The result of a load run. Latencies are recorded in microseconds.
+     */
+    public static class Result {
+        public final Mode mode;
+        public final int threads;
+        public final Histogram corrected = new Histogram();
+        public final Histogram uncorrected = new Histogram();
+        private final long durationNanos;
+        private long operations;
+        private long failures;
+        private long exceptions;
+
+        Result(final Mode mode, final int threads, final long durationNanos) {
+            this.mode = mode;
+            this.threads = threads;
+            this.durationNanos = durationNanos;
+        }
+
+        /**
+         * The number of operations executed after the warm up.
+         *
+         * @return the number of operations
+         */
+        public long getOperations() {
+            return operations;
+        }
+
+        /**
+         * The number of operations which returned a failed outcome.
+         *
+         * @return the number of failed operations
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * The number of operations which did not return a result, e.g. the connection was closed.
+         *
+         * @return the number of operations that failed with an exception
+         */
+        public long getExceptions() {
+            return exceptions;
+        }
+
+        /**
+         * The operations per second achieved after the warm up, over the time the load was actually measured.
+         *
+         * @return the throughput
+         */
+        public double getThroughput() {
+            return operations / (durationNanos / (double) TimeUnit.SECONDS.toNanos(1L));
+        }
+
+        void add(final Result other) {
+            corrected.add(other.corrected);
+            uncorrected.add(other.uncorrected);
+            operations += other.operations;
+            failures += other.failures;
+            exceptions += other.exceptions;
+        }
+    }
+}
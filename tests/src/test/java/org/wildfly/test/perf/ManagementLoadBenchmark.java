@@ -0,0 +1,138 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.junit.Test;
+import org.wildfly.test.scripts.ServerScriptRunner;
+import org.wildfly.test.scripts.ServerType;
+import org.wildfly.test.util.Environment;
+import org.wildfly.test.util.ServerHelper;
+
+/**
+ * Measures how the management interface behaves with concurrent clients issuing read operations.
+ * <p/>
+ * The following system properties can be used to configure the load:
+ * <ul>
+ * <li>{@code wildfly.perf.load.clients} the number of client connections to open, defaults to {@code 4}</li>
+ * <li>{@code wildfly.perf.load.threads} a comma delimited list of worker thread counts, defaults to
+ * {@code 1,2,4,8,16,32}</li>
+ * <li>{@code wildfly.perf.load.modes} a comma delimited list of {@code CLOSED_LOOP} and/or {@code FIXED_RATE}, defaults
+ * to both</li>
+ * <li>{@code wildfly.perf.load.rate} the total operations per second for the fixed rate mode, defaults to
+ * {@code 500}</li>
+ * <li>{@code wildfly.perf.load.warmup} the warm up time in seconds, defaults to {@code 5}</li>
+ * <li>{@code wildfly.perf.load.duration} the measured time in seconds, defaults to {@code 20}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ManagementLoadBenchmark {
+
+    private final int clientCount = Integer.getInteger("wildfly.perf.load.clients", 4);
+    private final int[] threadCounts = BenchmarkProperties.getIntegers("wildfly.perf.load.threads", "1,2,4,8,16,32");
+    private final List<String> modes = BenchmarkProperties.getStrings("wildfly.perf.load.modes", "CLOSED_LOOP,FIXED_RATE");
+    private final double rate = BenchmarkProperties.getDouble("wildfly.perf.load.rate", 500d);
+    private final long warmup = Long.getLong("wildfly.perf.load.warmup", 5L);
+    private final long duration = Long.getLong("wildfly.perf.load.duration", 20L);
+
+    @Test
+    public void testReadOperations() throws Exception {
+        try (final ServerScriptRunner runner = ServerScriptRunner.of(Environment.WILDFLY_HOME, ServerType.STANDALONE, "management-load")) {
+            Benchmarks.startAndWait(runner);
+            final List<ModelControllerClient> clients = new ArrayList<>(clientCount);
+            try {
+                final List<LoadGenerator.Target> targets = new ArrayList<>(clientCount);
+                for (int i = 0; i < clientCount; i++) {
+                    final ModelControllerClient client = ServerHelper.createClientConnection();
+                    clients.add(client);
+                    targets.add(LoadGenerator.of(client));
+                }
+                final Report report = Report.create("management-load", "mode", "threads", "clients", "operations",
+                        "failures", "exceptions", "ops-per-sec", "scaling", "p50-ms", "p90-ms", "p99-ms", "p99.9-ms",
+                        "max-ms", "uncorrected-p99-ms");
+                for (String m : modes) {
+                    final LoadGenerator.Mode mode = LoadGenerator.Mode.valueOf(m);
+                    double baseline = Double.NaN;
+                    for (int threads : threadCounts) {
+                        final LoadGenerator.Result result = LoadGenerator.of(targets, createOperations())
+                                .setMode(mode)
+                                .setThreads(threads)
+                                .setRate(rate)
+                                .run(warmup, duration, TimeUnit.SECONDS);
+                        if (Double.isNaN(baseline)) {
+                            baseline = result.getThroughput();
+                        }
+                        addRow(report, result, Math.min(threads, clientCount), result.getThroughput() / baseline);
+                    }
+                }
+                report.addNote(String.format("fixed-rate=%s ops/sec, warmup=%ds, duration=%ds", Report.format(rate), warmup, duration));
+                report.addNote("Scaling is the throughput relative to the first thread count of the same mode.");
+                report.write();
+            } finally {
+                for (ModelControllerClient client : clients) {
+                    try {
+                        client.close();
+                    } catch (IOException ignore) {
+                    }
+                }
+            }
+            runner.shutdown();
+        }
+    }
+
+    static void addRow(final Report report, final LoadGenerator.Result result, final int clients, final double scaling) {
+        report.addRow(result.mode, result.threads, clients, result.getOperations(), result.getFailures(), result.getExceptions(),
+                result.getThroughput(), scaling,
+                millis(result.corrected.getValueAtPercentile(50d)),
+                millis(result.corrected.getValueAtPercentile(90d)),
+                millis(result.corrected.getValueAtPercentile(99d)),
+                millis(result.corrected.getValueAtPercentile(99.9d)),
+                millis(result.corrected.getMaxValue()),
+                millis(result.uncorrected.getValueAtPercentile(99d)));
+    }
+
+    static List<ModelNode> createOperations() {
+        final List<ModelNode> result = new ArrayList<>();
+        result.add(Operations.createReadAttributeOperation(ServerHelper.EMPTY_ADDRESS, "server-state"));
+        result.add(Operations.createReadResourceOperation(ServerHelper.EMPTY_ADDRESS));
+        final ModelNode runtimeAddress = new ModelNode().setEmptyList();
+        runtimeAddress.add("core-service", "platform-mbean").add("type", "runtime");
+        final ModelNode op = Operations.createReadResourceOperation(runtimeAddress);
+        op.get("include-runtime").set(true);
+        result.add(op);
+        result.add(Operations.createReadAttributeOperation(ServerHelper.EMPTY_ADDRESS, "release-version"));
+        return result;
+    }
+
+    private static double millis(final long micros) {
+        return micros / 1000d;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.as.controller.client.helpers.domain.DomainClient;
+import org.jboss.as.controller.client.helpers.domain.ServerIdentity;
+import org.jboss.as.controller.client.helpers.domain.ServerStatus;
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.test.scripts.ServerScriptRunner;
+import org.wildfly.test.scripts.ServerType;
+import org.wildfly.test.util.ServerHelper;
+
+/**
+ * Records the heap, metaspace, garbage collection, thread and class loading footprint of a server just after boot and
+ * after it has been idle for a while. For a domain the first started server is sampled.
+ * <p/>
+ * The reports include the release version of the server and the {@code wildfly.core.version} system property, which
+ * the {@code perf} profile sets to {@code version.org.wildfly.core}, so reports from different versions can be
+ * compared.
+ * <p/>
+ * The following system properties can be used to configure the benchmark:
+ * <ul>
+ * <li>{@code wildfly.perf.memory.runs} the number of times the server is booted, defaults to {@code 3}</li>
+ * <li>{@code wildfly.perf.memory.duration} the number of seconds to sample after boot, defaults to {@code 60}</li>
+ * <li>{@code wildfly.perf.memory.interval} the interval between samples in milliseconds, defaults to {@code 1000}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class MemoryFootprintBenchmark {
+
+    private final int runs = Integer.getInteger("wildfly.perf.memory.runs", 3);
+    private final int duration = Integer.getInteger("wildfly.perf.memory.duration", 60);
+    private final long interval = Long.getLong("wildfly.perf.memory.interval", 1000L);
+
+    @Test
+    public void testStandaloneFootprint() throws Exception {
+        footprint(ServerType.STANDALONE);
+    }
+
+    @Test
+    public void testDomainFootprint() throws Exception {
+        footprint(ServerType.DOMAIN);
+    }
+
+    private void footprint(final ServerType serverType) throws Exception {
+        final Path wildflyHome = Benchmarks.copyWildFlyHome("memory-" + serverType.type);
+        final Report report = Report.create("memory-" + serverType.type, Benchmarks.prepend(MemorySampler.NAMES, "run", "phase"));
+        final Report samplesReport = Report.create("memory-" + serverType.type + "-samples", Benchmarks.prepend(MemorySampler.NAMES, "run", "elapsed-ms"));
+        String releaseVersion = null;
+        try {
+            for (int run = 0; run < runs; run++) {
+                try (
+                        final ServerScriptRunner runner = ServerScriptRunner.of(wildflyHome, serverType, "memory-" + serverType.type);
+                        final ModelControllerClient client = ServerHelper.createClientConnection()
+                ) {
+                    final Process process = Benchmarks.startAndWait(runner);
+                    final ModelNode serverAddress = (serverType == ServerType.DOMAIN ? findServerAddress(client) : ServerHelper.EMPTY_ADDRESS);
+                    try (final MemorySampler sampler = MemorySampler.start(client, serverAddress, interval)) {
+                        TimeUnit.SECONDS.sleep(duration);
+                        sampler.sample();
+                        sampler.close();
+                        report.addRow(prepend(sampler.getBootSample().getValues(), run, "boot"));
+                        report.addRow(prepend(sampler.getSteadyStateSample().getValues(), run, "steady"));
+                        final long start = sampler.getBootSample().timestamp;
+                        for (MemorySampler.Sample sample : sampler.getSamples()) {
+                            samplesReport.addRow(prepend(sample.getValues(), run, sample.timestamp - start));
+                        }
+                    }
+                    if (releaseVersion == null) {
+                        releaseVersion = readReleaseVersion(client);
+                    }
+                    Benchmarks.shutdown(runner, process);
+                }
+            }
+        } finally {
+            Benchmarks.deleteQuietly(wildflyHome);
+        }
+        final String note = String.format("release-version=%s, wildfly-core=%s, java=%s, runs=%d, duration=%ds, interval=%dms",
+                releaseVersion, System.getProperty("wildfly.core.version", "unknown"), System.getProperty("java.version"), runs, duration, interval);
+        report.addNote(note);
+        report.addNote("Boot is the first sample after the server is running, steady is the last sample. gc-time-ms is the accumulated collection time of all collectors.");
+        samplesReport.addNote(note);
+        report.write();
+        samplesReport.write();
+    }
+
+    private static ModelNode findServerAddress(final ModelControllerClient client) {
+        final DomainClient domainClient = DomainClient.Factory.create(client);
+        final Map<ServerIdentity, ServerStatus> statuses = domainClient.getServerStatuses();
+        for (Map.Entry<ServerIdentity, ServerStatus> entry : statuses.entrySet()) {
+            if (entry.getValue() == ServerStatus.STARTED) {
+                final ServerIdentity identity = entry.getKey();
+                final ModelNode address = new ModelNode().setEmptyList();
+                address.add("host", identity.getHostName()).add("server", identity.getServerName());
+                return address;
+            }
+        }
+        Assert.fail("No started servers found: " + statuses);
+        return null;
+    }
+
+    private static String readReleaseVersion(final ModelControllerClient client) throws IOException {
+        final ModelNode result = client.execute(Operations.createReadAttributeOperation(ServerHelper.EMPTY_ADDRESS, "release-version"));
+        if (Operations.isSuccessfulOutcome(result)) {
+            return Operations.readResult(result).asString();
+        }
+        return "unknown";
+    }
+
+    private static Object[] prepend(final double[] values, final Object... first) {
+        final Object[] result = new Object[first.length + values.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        for (int i = 0; i < values.length; i++) {
+            result[first.length + i] = values[i];
+        }
+        return result;
+    }
+}
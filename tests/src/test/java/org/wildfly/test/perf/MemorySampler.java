@@ -0,0 +1,274 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.helpers.ClientConstants;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.Property;
+import org.jboss.logging.Logger;
+
+/**
+ * Periodically samples the memory, garbage collection, thread and class loading data of a running server through
+ * the {@code core-service=platform-mbean} resources.
+ * <p/>
+ * The first sample is taken when the sampler is started and is considered the boot sample. The last sample taken is
+ * considered the steady state sample.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class MemorySampler implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(MemorySampler.class);
+
+    /**
+     * The names of the sampled values in the order of the values in a {@link Sample}.
+     */
+    public static final String[] NAMES = {
+            "heap-used-mb",
+            "heap-committed-mb",
+            "metaspace-used-mb",
+            "metaspace-committed-mb",
+            "gc-count",
+            "gc-time-ms",
+            "threads",
+            "peak-threads",
+            "loaded-classes",
+    };
+
+    private static final double MB = 1024d * 1024d;
+
+    private final ModelControllerClient client;
+    private final ModelNode operation;
+    private final ScheduledExecutorService service;
+    private final List<Sample> samples;
+
+    private MemorySampler(final ModelControllerClient client, final ModelNode serverAddress) {
+        this.client = client;
+        operation = createOperation(serverAddress);
+        service = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "memory-sampler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        samples = new ArrayList<>();
+    }
+
+    /**
+     * Starts sampling a server. The first sample is taken before this method returns.
+     *
+     * @param client        the client connected to the server
+     * @param serverAddress the address of the server, an empty address for a standalone server or the
+     *                      {@code host=*,server=*} address of a domain server
+     * @param interval      the interval between samples in milliseconds
+     *
+     * @return the sampler
+     *
+     * @throws IOException if the first sample could not be read
+     */
+    public static MemorySampler start(final ModelControllerClient client, final ModelNode serverAddress, final long interval) throws IOException {
+        final MemorySampler sampler = new MemorySampler(client, serverAddress);
+        sampler.add(sampler.read());
+        sampler.service.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sampler.add(sampler.read());
+                } catch (IOException | RuntimeException e) {
+                    // The server may be shutting down
+                    LOGGER.debug("Failed to sample the platform MBeans", e);
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        return sampler;
+    }
+
+    /**
+     * Takes a sample now, in addition to the scheduled samples.
+     *
+     * @return the sample
+     *
+     * @throws IOException if the sample could not be read
+     */
+    public Sample sample() throws IOException {
+        final Sample sample = read();
+        add(sample);
+        return sample;
+    }
+
+    public List<Sample> getSamples() {
+        synchronized (samples) {
+            return new ArrayList<>(samples);
+        }
+    }
+
+    /**
+     * The first sample taken, just after the server booted.
+     *
+     * @return the boot sample
+     */
+    public Sample getBootSample() {
+        synchronized (samples) {
+            return samples.get(0);
+        }
+    }
+
+    /**
+     * The last sample taken.
+     *
+     * @return the steady state sample
+     */
+    public Sample getSteadyStateSample() {
+        synchronized (samples) {
+            return samples.get(samples.size() - 1);
+        }
+    }
+
+    /**
+     * Stops sampling. The client is not closed.
+     */
+    @Override
+    public void close() {
+        service.shutdownNow();
+    }
+
+    private void add(final Sample sample) {
+        synchronized (samples) {
+            samples.add(sample);
+        }
+    }
+
+    private Sample read() throws IOException {
+        final ModelNode response = client.execute(operation);
+        if (!Operations.isSuccessfulOutcome(response)) {
+            throw new RuntimeException("Failed to read the platform MBeans: " + Operations.getFailureDescription(response));
+        }
+        final ModelNode result = Operations.readResult(response);
+        final ModelNode heap = stepResult(result, 1);
+        double metaspaceUsed = 0d;
+        double metaspaceCommitted = 0d;
+        for (Property pool : stepResult(result, 2).asPropertyList()) {
+            // The pool is named Metaspace on Java 8 and later, there is no equivalent on earlier versions
+            if (pool.getName().contains("Metaspace")) {
+                final ModelNode usage = pool.getValue().get("usage");
+                metaspaceUsed += usage.get("used").asLong(0L);
+                metaspaceCommitted += usage.get("committed").asLong(0L);
+            }
+        }
+        long gcCount = 0L;
+        long gcTime = 0L;
+        for (Property gc : stepResult(result, 3).asPropertyList()) {
+            gcCount += Math.max(0L, gc.getValue().get("collection-count").asLong(0L));
+            gcTime += Math.max(0L, gc.getValue().get("collection-time").asLong(0L));
+        }
+        return new Sample(System.currentTimeMillis(), new double[] {
+                heap.get("used").asLong() / MB,
+                heap.get("committed").asLong() / MB,
+                metaspaceUsed / MB,
+                metaspaceCommitted / MB,
+                gcCount,
+                gcTime,
+                stepResult(result, 4).asInt(),
+                stepResult(result, 5).asInt(),
+                stepResult(result, 6).asInt(),
+        });
+    }
+
+    private static ModelNode stepResult(final ModelNode result, final int step) {
+        return result.get("step-" + step, ClientConstants.RESULT);
+    }
+
+    private static ModelNode createOperation(final ModelNode serverAddress) {
+        final ModelNode composite = Operations.createCompositeOperation();
+        final ModelNode steps = composite.get(ClientConstants.STEPS);
+        steps.add(Operations.createReadAttributeOperation(platformMBean(serverAddress, "memory"), "heap-memory-usage"));
+        steps.add(createReadChildren(platformMBean(serverAddress, "memory-pool")));
+        steps.add(createReadChildren(platformMBean(serverAddress, "garbage-collector")));
+        steps.add(Operations.createReadAttributeOperation(platformMBean(serverAddress, "threading"), "thread-count"));
+        steps.add(Operations.createReadAttributeOperation(platformMBean(serverAddress, "threading"), "peak-thread-count"));
+        steps.add(Operations.createReadAttributeOperation(platformMBean(serverAddress, "class-loading"), "loaded-class-count"));
+        return composite;
+    }
+
+    private static ModelNode createReadChildren(final ModelNode address) {
+        final ModelNode op = Operations.createOperation("read-children-resources", address);
+        op.get(ClientConstants.CHILD_TYPE).set("name");
+        op.get(ClientConstants.INCLUDE_RUNTIME).set(true);
+        return op;
+    }
+
+    private static ModelNode platformMBean(final ModelNode serverAddress, final String type) {
+        final ModelNode address = serverAddress.clone();
+        address.add("core-service", "platform-mbean");
+        address.add("type", type);
+        return address;
+    }
+
+    /**
+     * A single sample. The values are in the order of the {@linkplain #NAMES names}.
+     */
+    public static class Sample {
+        /**
+         * The time the sample was taken in milliseconds since the epoch
+         */
+        public final long timestamp;
+        private final double[] values;
+
+        Sample(final long timestamp, final double[] values) {
+            this.timestamp = timestamp;
+            this.values = values;
+        }
+
+        public double[] getValues() {
+            return values.clone();
+        }
+
+        public double getHeapUsed() {
+            return values[0];
+        }
+
+        public double getMetaspaceUsed() {
+            return values[2];
+        }
+
+        public double getGcCount() {
+            return values[4];
+        }
+
+        public double getGcTime() {
+            return values[5];
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.nio.file.Path;
+
+import org.junit.Test;
+import org.wildfly.test.scripts.ServerScriptRunner;
+import org.wildfly.test.scripts.ServerType;
+import org.wildfly.test.util.Directories;
+import org.wildfly.test.util.Environment;
+import org.wildfly.test.util.MinimalDistribution;
+
+/**
+ * Compares the full distribution with a {@linkplain MinimalDistribution minimal distribution}. The size, the time to
+ * copy the distribution, as each path and argument variant does, and the boot time of the standalone and domain
+ * servers are reported for both. Booting the minimal distribution also verifies no required module was removed.
+ * <p/>
+ * The following system properties can be used to configure the benchmark:
+ * <ul>
+ * <li>{@code wildfly.perf.minimal.runs} the number of copies and boots of each distribution, defaults to {@code 5}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class MinimalDistributionBenchmark {
+
+    private final int runs = Integer.getInteger("wildfly.perf.minimal.runs", 5);
+
+    @Test
+    public void testMinimalDistribution() throws Exception {
+        final Path full = Benchmarks.copyWildFlyHome("minimal-full");
+        final Path minimal = MinimalDistribution.create(full, Environment.TMP_DIR.resolve("minimal-trimmed"));
+        final Report report = Report.create("minimal-distribution", "distribution", "modules", "bytes", "files",
+                "copy-ms", "standalone-boot-ms", "domain-boot-ms");
+        try {
+            addRow(report, "full", full);
+            addRow(report, "minimal", minimal);
+            report.addNote(String.format("Times are the median of %d runs", runs));
+            report.write();
+        } finally {
+            Benchmarks.deleteQuietly(full);
+            Benchmarks.deleteQuietly(minimal);
+        }
+    }
+
+    private void addRow(final Report report, final String name, final Path wildflyHome) throws Exception {
+        final double[] copyTimes = new double[runs];
+        final Path copy = Environment.TMP_DIR.resolve("minimal-copy");
+        try {
+            for (int i = 0; i < runs; i++) {
+                final long start = System.nanoTime();
+                Directories.replace(wildflyHome, copy);
+                copyTimes[i] = Benchmarks.elapsedMillis(start);
+            }
+        } finally {
+            Benchmarks.deleteQuietly(copy);
+        }
+        report.addRow(name, MinimalDistribution.countModules(wildflyHome),
+                Directories.size(wildflyHome), Directories.countFiles(wildflyHome), Statistics.median(copyTimes),
+                boot(wildflyHome, ServerType.STANDALONE), boot(wildflyHome, ServerType.DOMAIN));
+    }
+
+    private double boot(final Path wildflyHome, final ServerType serverType) throws Exception {
+        final double[] bootTimes = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            try (final ServerScriptRunner runner = ServerScriptRunner.of(wildflyHome, serverType, "minimal-" + serverType.type)) {
+                final long start = System.nanoTime();
+                final Process process = Benchmarks.startAndWait(runner);
+                bootTimes[i] = Benchmarks.elapsedMillis(start);
+                Benchmarks.shutdown(runner, process);
+            }
+        }
+        return Statistics.median(bootTimes);
+    }
+}
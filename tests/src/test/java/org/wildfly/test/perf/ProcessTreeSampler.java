@@ -0,0 +1,390 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+import org.wildfly.test.util.JvmProcesses;
+
+/**
+ * Periodically samples the combined resource usage of a process and all of its descendants from {@code /proc}. This
+ * includes the script, the process controller, the host controller and the servers of a domain.
+ * <p/>
+ * Each sample contains the number of processes, the CPU time, the resident set size, the number of threads and the
+ * number of open file descriptors of the tree. The CPU time is the total CPU time of each process seen while sampling,
+ * including processes which have since exited.
+ * <p/>
+ * Sampling is only {@linkplain #isSupported() supported} on Linux. On other platforms no samples are taken.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ProcessTreeSampler implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(ProcessTreeSampler.class);
+
+    private static final Path PROC = Paths.get("/proc");
+    private static final long CLOCK_TICKS = clockTicks();
+
+    private final long rootPid;
+    private final ScheduledExecutorService service;
+    private final List<Sample> samples;
+    // The last CPU time, in clock ticks, of each process seen
+    private final Map<Long, Long> cpuTicks;
+
+    private ProcessTreeSampler(final long rootPid) {
+        this.rootPid = rootPid;
+        service = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "process-tree-sampler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        samples = new ArrayList<>();
+        cpuTicks = new HashMap<>();
+    }
+
+    /**
+     * Indicates whether or not the process tree can be sampled on this platform.
+     *
+     * @return {@code true} if {@code /proc} is available
+     */
+    public static boolean isSupported() {
+        return Files.isReadable(PROC.resolve("self").resolve("stat"));
+    }
+
+    /**
+     * Starts sampling the process tree. The first sample is taken before this method returns.
+     *
+     * @param process  the root process, e.g. the process returned when starting a script
+     * @param interval the interval between samples in milliseconds
+     *
+     * @return the sampler
+     */
+    public static ProcessTreeSampler start(final Process process, final long interval) {
+        final long pid = (isSupported() ? pid(process) : -1L);
+        final ProcessTreeSampler sampler = new ProcessTreeSampler(pid);
+        if (pid > 0L) {
+            sampler.sample();
+            sampler.service.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    sampler.sample();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            LOGGER.debugf("Process tree sampling is not supported for %s", process);
+        }
+        return sampler;
+    }
+
+    /**
+     * Takes a sample now, in addition to the scheduled samples. Does nothing if sampling is not supported.
+     */
+    public void sample() {
+        if (rootPid <= 0L) {
+            return;
+        }
+        try {
+            final Sample sample = read();
+            synchronized (samples) {
+                samples.add(sample);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Processes may exit while being read
+            LOGGER.debug("Failed to sample the process tree", e);
+        }
+    }
+
+    /**
+     * Returns the samples collected so far.
+     *
+     * @return the samples
+     */
+    public List<Sample> getSamples() {
+        synchronized (samples) {
+            return new ArrayList<>(samples);
+        }
+    }
+
+    /**
+     * Summarizes the samples collected so far.
+     *
+     * @return the summary
+     */
+    public Summary getSummary() {
+        return new Summary(getSamples());
+    }
+
+    /**
+     * Stops sampling.
+     */
+    @Override
+    public void close() {
+        service.shutdownNow();
+    }
+
+    private synchronized Sample read() throws IOException {
+        // Map each process to its children
+        final Map<Long, List<Long>> children = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(PROC)) {
+            for (Path dir : stream) {
+                final long pid = parsePid(dir);
+                if (pid > 0L) {
+                    final String[] stat = readStat(pid);
+                    if (stat != null) {
+                        final long parent = Long.parseLong(stat[1]);
+                        List<Long> list = children.get(parent);
+                        if (list == null) {
+                            list = new ArrayList<>();
+                            children.put(parent, list);
+                        }
+                        list.add(pid);
+                    }
+                }
+            }
+        }
+        int processes = 0;
+        long rssKb = 0L;
+        long threads = 0L;
+        long fds = 0L;
+        final Deque<Long> queue = new ArrayDeque<>();
+        queue.add(rootPid);
+        while (!queue.isEmpty()) {
+            final long pid = queue.poll();
+            final String[] stat = readStat(pid);
+            if (stat == null) {
+                continue;
+            }
+            processes++;
+            // utime and stime, fields 14 and 15 of the stat file
+            cpuTicks.put(pid, Long.parseLong(stat[11]) + Long.parseLong(stat[12]));
+            // num_threads and rss in pages are fields 20 and 24, the status file is used for the RSS in kB
+            threads += Long.parseLong(stat[17]);
+            rssKb += readRssKb(pid);
+            fds += countFds(pid);
+            final List<Long> list = children.get(pid);
+            if (list != null) {
+                queue.addAll(list);
+            }
+        }
+        long ticks = 0L;
+        for (Long value : cpuTicks.values()) {
+            ticks += value;
+        }
+        return new Sample(System.currentTimeMillis(), processes, (ticks * 1000d) / CLOCK_TICKS, rssKb / 1024d, threads, fds);
+    }
+
+    /**
+     * Reads the fields of the stat file after the command name, which is in parentheses and may contain spaces. The
+     * first value is the state, the third field of the file.
+     */
+    private static String[] readStat(final long pid) {
+        try {
+            final String stat = new String(Files.readAllBytes(PROC.resolve(Long.toString(pid)).resolve("stat")), StandardCharsets.UTF_8);
+            final int index = stat.lastIndexOf(')');
+            return stat.substring(index + 2).trim().split(" ");
+        } catch (IOException e) {
+            // The process has exited
+            return null;
+        }
+    }
+
+    private static long readRssKb(final long pid) {
+        try {
+            for (String line : Files.readAllLines(PROC.resolve(Long.toString(pid)).resolve("status"), StandardCharsets.UTF_8)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring("VmRSS:".length()).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException ignore) {
+        }
+        return 0L;
+    }
+
+    private static long countFds(final long pid) {
+        long result = 0L;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(PROC.resolve(Long.toString(pid)).resolve("fd"))) {
+            for (Path ignore : stream) {
+                result++;
+            }
+        } catch (IOException ignore) {
+        }
+        return result;
+    }
+
+    private static long parsePid(final Path dir) {
+        final String name = dir.getFileName().toString();
+        for (int i = 0; i < name.length(); i++) {
+            if (!Character.isDigit(name.charAt(i))) {
+                return -1L;
+            }
+        }
+        return Long.parseLong(name);
+    }
+
+    /**
+     * Returns the process id. Java 9 added {@code Process.pid()}, on older versions the private {@code pid} field of
+     * the UNIX process implementation is read.
+     */
+    static long pid(final Process process) {
+        try {
+            final Method method = Process.class.getMethod("pid");
+            return ((Number) method.invoke(process)).longValue();
+        } catch (ReflectiveOperationException ignore) {
+        }
+        try {
+            final Field field = process.getClass().getDeclaredField("pid");
+            field.setAccessible(true);
+            return field.getLong(process);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOGGER.debugf(e, "Could not determine the pid of %s", process);
+        }
+        return -1L;
+    }
+
+    private static long clockTicks() {
+        if (isSupported()) {
+            try {
+                final List<String> output = JvmProcesses.execute(10L, TimeUnit.SECONDS, "getconf", "CLK_TCK");
+                if (!output.isEmpty()) {
+                    return Long.parseLong(output.get(0).trim());
+                }
+            } catch (IOException | NumberFormatException e) {
+                LOGGER.debug("Could not determine the clock ticks per second, using 100", e);
+            }
+        }
+        return 100L;
+    }
+
+    /**
+     * A sample of the process tree.
+     */
+    public static class Sample {
+        public final long time;
+        public final int processes;
+        public final double cpuMs;
+        public final double rssMb;
+        public final long threads;
+        public final long fds;
+
+        Sample(final long time, final int processes, final double cpuMs, final double rssMb, final long threads, final long fds) {
+            this.time = time;
+            this.processes = processes;
+            this.cpuMs = cpuMs;
+            this.rssMb = rssMb;
+            this.threads = threads;
+            this.fds = fds;
+        }
+    }
+
+    /**
+     * The peak and average values of the samples. The values are {@link Double#NaN} if there are no samples.
+     */
+    public static class Summary {
+        /**
+         * The names of the values in the order of {@link #toArray()}
+         */
+        public static final String[] NAMES = {
+                "tree-processes-peak",
+                "tree-cpu-ms",
+                "tree-rss-mb-peak",
+                "tree-rss-mb-avg",
+                "tree-threads-peak",
+                "tree-threads-avg",
+                "tree-fds-peak",
+                "tree-fds-avg",
+        };
+
+        public final int samples;
+        public final double processesPeak;
+        public final double cpuMs;
+        public final double rssMbPeak;
+        public final double rssMbAverage;
+        public final double threadsPeak;
+        public final double threadsAverage;
+        public final double fdsPeak;
+        public final double fdsAverage;
+
+        Summary(final List<Sample> samples) {
+            this.samples = samples.size();
+            final double[] processes = new double[samples.size()];
+            final double[] rss = new double[samples.size()];
+            final double[] threads = new double[samples.size()];
+            final double[] fds = new double[samples.size()];
+            for (int i = 0; i < processes.length; i++) {
+                final Sample sample = samples.get(i);
+                processes[i] = sample.processes;
+                rss[i] = sample.rssMb;
+                threads[i] = sample.threads;
+                fds[i] = sample.fds;
+            }
+            processesPeak = Statistics.max(processes);
+            // The CPU time is cumulative
+            cpuMs = (samples.isEmpty() ? Double.NaN : samples.get(samples.size() - 1).cpuMs);
+            rssMbPeak = Statistics.max(rss);
+            rssMbAverage = Statistics.mean(rss);
+            threadsPeak = Statistics.max(threads);
+            threadsAverage = Statistics.mean(threads);
+            fdsPeak = Statistics.max(fds);
+            fdsAverage = Statistics.mean(fds);
+        }
+
+        /**
+         * Returns the values in the order of the {@link #NAMES}.
+         *
+         * @return the values
+         */
+        public double[] toArray() {
+            return new double[] {
+                    processesPeak,
+                    cpuMs,
+                    rssMbPeak,
+                    rssMbAverage,
+                    threadsPeak,
+                    threadsAverage,
+                    fdsPeak,
+                    fdsAverage,
+            };
+        }
+    }
+}
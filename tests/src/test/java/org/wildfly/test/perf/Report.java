@@ -0,0 +1,211 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import static org.wildfly.test.util.Environment.NEW_LINE;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.jboss.logging.Logger;
+import org.wildfly.test.util.Environment;
+
+/**
+ * A simple tabular report for benchmark results. Reports are written as both an aligned text file and a CSV file to
+ * the directory specified by the {@code wildfly.perf.report.dir} system property.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class Report {
+    private static final Logger LOGGER = Logger.getLogger(Report.class);
+
+    private final String name;
+    private final List<String> columns;
+    private final List<List<String>> rows;
+    private final List<String> notes;
+
+    private Report(final String name, final List<String> columns) {
+        this.name = name;
+        this.columns = columns;
+        rows = new ArrayList<>();
+        notes = new ArrayList<>();
+    }
+
+    /**
+     * Creates a new report.
+     *
+     * @param name    the name of the report, used for the file names
+     * @param columns the column headers
+     *
+     * @return the new report
+     */
+    public static Report create(final String name, final String... columns) {
+        return new Report(name, Arrays.asList(columns));
+    }
+
+    /**
+     * The directory reports are written to.
+     *
+     * @return the report directory
+     */
+    public static Path reportDir() {
+        final String dir = System.getProperty("wildfly.perf.report.dir");
+        if (dir == null || dir.isEmpty()) {
+            return Environment.TMP_DIR.resolve("perf-reports");
+        }
+        return Paths.get(dir);
+    }
+
+    public static String format(final double value) {
+        if (Double.isNaN(value)) {
+            return "-";
+        }
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    public synchronized Report addRow(final Object... values) {
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException(String.format("Expected %d values but found %d", columns.size(), values.length));
+        }
+        final List<String> row = new ArrayList<>(values.length);
+        for (Object value : values) {
+            if (value instanceof Double || value instanceof Float) {
+                row.add(format(((Number) value).doubleValue()));
+            } else {
+                row.add(String.valueOf(value));
+            }
+        }
+        rows.add(row);
+        return this;
+    }
+
+    public synchronized Report addNote(final String note) {
+        notes.add(note);
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Writes the report and logs the text version of the report.
+     *
+     * @return the path to the text version of the report
+     *
+     * @throws IOException if an error occurs writing the report
+     */
+    public synchronized Path write() throws IOException {
+        final Path dir = reportDir();
+        if (Files.notExists(dir)) {
+            Files.createDirectories(dir);
+        }
+        final String text = toString();
+        final Path textFile = dir.resolve(name + ".txt");
+        try (final BufferedWriter writer = Files.newBufferedWriter(textFile, StandardCharsets.UTF_8)) {
+            writer.write(text);
+        }
+        try (final BufferedWriter writer = Files.newBufferedWriter(dir.resolve(name + ".csv"), StandardCharsets.UTF_8)) {
+            writeCsvLine(writer, columns);
+            for (List<String> row : rows) {
+                writeCsvLine(writer, row);
+            }
+        }
+        LOGGER.infof("Report %s written to %s%n%s", name, textFile, text);
+        return textFile;
+    }
+
+    @Override
+    public synchronized String toString() {
+        final int[] widths = new int[columns.size()];
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = columns.get(i).length();
+        }
+        for (List<String> row : rows) {
+            for (int i = 0; i < widths.length; i++) {
+                widths[i] = Math.max(widths[i], row.get(i).length());
+            }
+        }
+        final StringBuilder result = new StringBuilder();
+        appendRow(result, columns, widths);
+        for (int i = 0; i < widths.length; i++) {
+            if (i > 0) {
+                result.append("  ");
+            }
+            for (int j = 0; j < widths[i]; j++) {
+                result.append('-');
+            }
+        }
+        result.append(NEW_LINE);
+        for (List<String> row : rows) {
+            appendRow(result, row, widths);
+        }
+        for (String note : notes) {
+            result.append(NEW_LINE).append(note);
+        }
+        if (!notes.isEmpty()) {
+            result.append(NEW_LINE);
+        }
+        return result.toString();
+    }
+
+    private static void appendRow(final StringBuilder builder, final List<String> values, final int[] widths) {
+        for (int i = 0; i < widths.length; i++) {
+            if (i > 0) {
+                builder.append("  ");
+            }
+            final String value = values.get(i);
+            builder.append(value);
+            for (int j = value.length(); j < widths[i]; j++) {
+                builder.append(' ');
+            }
+        }
+        builder.append(NEW_LINE);
+    }
+
+    private static void writeCsvLine(final BufferedWriter writer, final List<String> values) throws IOException {
+        boolean first = true;
+        for (String value : values) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.newLine();
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.helpers.domain.DomainClient;
+import org.jboss.as.controller.client.helpers.domain.ServerIdentity;
+import org.jboss.as.controller.client.helpers.domain.ServerStatus;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.core.launcher.CommandBuilder;
+import org.wildfly.core.launcher.DomainCommandBuilder;
+import org.wildfly.core.launcher.Launcher;
+import org.wildfly.core.launcher.ProcessHelper;
+import org.wildfly.core.launcher.StandaloneCommandBuilder;
+import org.wildfly.test.scripts.ScriptRunner;
+import org.wildfly.test.scripts.ServerScriptRunner;
+import org.wildfly.test.scripts.ServerType;
+import org.wildfly.test.util.BootTimeline;
+import org.wildfly.test.util.Environment;
+import org.wildfly.test.util.ServerHelper;
+import org.wildfly.test.util.ShellTrace;
+
+/**
+ * Measures the overhead the {@code standalone.sh} and {@code domain.sh} scripts add to the boot of a server. Each path
+ * is booted in three modes:
+ * <ul>
+ * <li>{@code script} the script as is</li>
+ * <li>{@code script-traced} the script with {@linkplain ScriptRunner#setShellTrace(boolean) shell tracing}, which
+ * records when each command of the script ran and when the JVM was launched</li>
+ * <li>{@code launcher} the JVM launched directly with a {@link StandaloneCommandBuilder} or
+ * {@link DomainCommandBuilder} for the same configuration and the {@code JAVA_OPTS} of the {@code .conf} file</li>
+ * </ul>
+ * The modes are interleaved for each run so drift of the machine affects each mode equally. The difference in boot
+ * time between the {@code script} and {@code launcher} modes is the overhead of the script, the traced runs break the
+ * overhead down into categories and script lines. Note that tracing itself slows the script down.
+ * <p/>
+ * The {@code pre-jvm} time is the boot time measured by the benchmark minus the boot time reported by the server, which
+ * is measured from the start of the JVM. For a domain the host controller is used.
+ * <p/>
+ * Tracing requires bash 5.0 or higher and is not supported on Windows.
+ * <p/>
+ * The following system properties can be used to configure the benchmark:
+ * <ul>
+ * <li>{@code wildfly.perf.script.runs} the number of boots of each mode for each path, defaults to {@code 5}</li>
+ * <li>{@code wildfly.perf.script.paths} a comma delimited list of directory names the server is booted from, defaults
+ * to {@code wildfly,wildfly with spaces}</li>
+ * <li>{@code wildfly.perf.script.top} the number of script lines to report for each path, defaults to {@code 15}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ScriptOverheadBenchmark {
+
+    private static final String SCRIPT = "script";
+    private static final String TRACED = "script-traced";
+    private static final String LAUNCHER = "launcher";
+
+    private final int runs = Integer.getInteger("wildfly.perf.script.runs", 5);
+    private final List<String> paths = BenchmarkProperties.getStrings("wildfly.perf.script.paths", "wildfly,wildfly with spaces");
+    private final int top = Integer.getInteger("wildfly.perf.script.top", 15);
+
+    @Test
+    public void testStandaloneScriptOverhead() throws Exception {
+        overhead(ServerType.STANDALONE);
+    }
+
+    @Test
+    public void testDomainScriptOverhead() throws Exception {
+        overhead(ServerType.DOMAIN);
+    }
+
+    private void overhead(final ServerType serverType) throws Exception {
+        final String version = System.getProperty("wildfly.core.version", "unknown");
+        final String name = "script-overhead-" + serverType.type;
+        final Report report = Report.create(name, "wildfly-core", "path", "mode", "runs", "boot-p50-ms", "boot-min-ms",
+                "boot-max-ms", "pre-jvm-p50-ms", "jvm-exec-p50-ms", "subshells-p50");
+        final Report categoryReport = Report.create(name + "-categories", "wildfly-core", "path", "category", "p50-ms",
+                "max-ms");
+        final Report stepReport = Report.create(name + "-steps", "wildfly-core", "path", "location", "calls-per-run", "p50-ms",
+                "max-ms", "command");
+        for (String pathName : paths) {
+            final Map<String, Measurements> modes = new LinkedHashMap<>();
+            modes.put(SCRIPT, new Measurements());
+            modes.put(TRACED, new Measurements());
+            modes.put(LAUNCHER, new Measurements());
+            final Path wildflyHome = Benchmarks.copyWildFlyHome(name + "/" + pathName);
+            try {
+                final String javaOpts = ServerScriptRunner.readJavaOpts(wildflyHome, serverType);
+                final List<String> javaOptions = (javaOpts.isEmpty() ? Collections.<String>emptyList()
+                        : Arrays.asList(javaOpts.split("\\s+")));
+                for (int i = 0; i < runs; i++) {
+                    bootScript(wildflyHome, serverType, false, modes.get(SCRIPT));
+                    bootScript(wildflyHome, serverType, true, modes.get(TRACED));
+                    bootLauncher(wildflyHome, serverType, javaOptions, modes.get(LAUNCHER));
+                }
+            } finally {
+                Benchmarks.deleteQuietly(wildflyHome);
+            }
+            for (Map.Entry<String, Measurements> entry : modes.entrySet()) {
+                final Measurements measurements = entry.getValue();
+                final double[] boot = Statistics.toArray(measurements.boot);
+                report.addRow(version, pathName, entry.getKey(), boot.length, Statistics.median(boot), Statistics.min(boot),
+                        Statistics.max(boot), median(measurements.preJvm), median(measurements.jvmExec),
+                        median(measurements.subshells));
+            }
+            final Measurements traced = modes.get(TRACED);
+            for (Map.Entry<String, List<Double>> entry : traced.categories.entrySet()) {
+                final double[] values = Statistics.toArray(entry.getValue());
+                categoryReport.addRow(version, pathName, entry.getKey(), Statistics.median(values), Statistics.max(values));
+            }
+            // Report the script lines with the highest median time
+            final List<Map.Entry<String, List<Double>>> steps = new ArrayList<>(traced.steps.entrySet());
+            Collections.sort(steps, new Comparator<Map.Entry<String, List<Double>>>() {
+                @Override
+                public int compare(final Map.Entry<String, List<Double>> o1, final Map.Entry<String, List<Double>> o2) {
+                    return Double.compare(Statistics.median(Statistics.toArray(o2.getValue())),
+                            Statistics.median(Statistics.toArray(o1.getValue())));
+                }
+            });
+            for (Map.Entry<String, List<Double>> entry : steps.subList(0, Math.min(top, steps.size()))) {
+                final String location = entry.getKey();
+                stepReport.addRow(version, pathName, location, (double) traced.calls.get(location) / runs, median(entry.getValue()),
+                        Statistics.max(Statistics.toArray(entry.getValue())), traced.commands.get(location));
+            }
+        }
+        report.addNote("The script overhead is the boot time of the script minus the boot time of the launcher.");
+        report.addNote("jvm-exec is the time from starting the script until the JVM was launched, only traced runs record it.");
+        report.addNote("pre-jvm is the measured boot time minus the boot time reported by the server and includes the polling delay.");
+        report.addNote("The launcher uses the JAVA_OPTS of the .conf file, for a domain for both the process controller and host controller.");
+        report.write();
+        categoryReport.addNote("Times of the traced runs, tracing adds overhead to each command.");
+        categoryReport.write();
+        stepReport.addNote("The time of a line includes the commands it runs, e.g. a pipeline or a sourced file.");
+        stepReport.write();
+    }
+
+    private void bootScript(final Path wildflyHome, final ServerType serverType, final boolean traced,
+                            final Measurements measurements) throws Exception {
+        try (final ServerScriptRunner runner = ServerScriptRunner.of(wildflyHome, serverType, "script-overhead-" + serverType.type)) {
+            runner.setShellTrace(traced);
+            final long startMillis = System.currentTimeMillis();
+            final long start = System.nanoTime();
+            final Process process = Benchmarks.startAndWait(runner);
+            final double bootMs = Benchmarks.elapsedMillis(start);
+            Benchmarks.shutdown(runner, process);
+            measurements.addBoot(bootMs, runner.readBootTimelines(), serverType);
+            if (traced) {
+                final ShellTrace trace = runner.readShellTrace();
+                Assert.assertTrue("The launch of the JVM was not found in the trace of the script. Tracing requires bash 5.0 or higher.",
+                        trace.isComplete());
+                measurements.addTrace(trace, startMillis);
+            }
+        }
+    }
+
+    private void bootLauncher(final Path wildflyHome, final ServerType serverType, final List<String> javaOptions,
+                              final Measurements measurements) throws Exception {
+        final Path consoleDir = Environment.TMP_DIR.resolve("console-output");
+        Files.createDirectories(consoleDir);
+        final Path console = Files.createTempFile(consoleDir, "script-overhead-launcher-" + serverType.type, ".log");
+        final CommandBuilder commandBuilder;
+        if (serverType == ServerType.STANDALONE) {
+            commandBuilder = StandaloneCommandBuilder.of(wildflyHome)
+                    .setJavaOptions(javaOptions);
+        } else {
+            commandBuilder = DomainCommandBuilder.of(wildflyHome)
+                    .setProcessControllerJavaOptions(javaOptions)
+                    .setHostControllerJavaOptions(javaOptions);
+        }
+        Process process = null;
+        try (final ModelControllerClient client = ServerHelper.createClientConnection()) {
+            final long start = System.nanoTime();
+            process = Launcher.of(commandBuilder)
+                    .setRedirectErrorStream(true)
+                    .setDirectory(wildflyHome)
+                    .redirectOutput(console)
+                    .addEnvironmentVariables(Environment.ENV)
+                    .launch();
+            final double bootMs;
+            if (serverType == ServerType.STANDALONE) {
+                ServerHelper.waitForStandalone(process, client);
+                bootMs = Benchmarks.elapsedMillis(start);
+                assertRunning(process, console);
+                ServerHelper.shutdownStandalone(client);
+            } else {
+                final DomainClient domainClient = DomainClient.Factory.create(client);
+                final Map<ServerIdentity, ServerStatus> servers = ServerHelper.waitForDomain(process, domainClient);
+                bootMs = Benchmarks.elapsedMillis(start);
+                assertRunning(process, console);
+                ServerHelper.shutdownDomain(domainClient, servers);
+            }
+            if (!ServerHelper.waitForProcessExit(process, 60L, TimeUnit.SECONDS)) {
+                Assert.fail(String.format("%s launched directly did not exit within 60 seconds of shutdown", serverType.name));
+            }
+            measurements.addBoot(bootMs, BootTimeline.parse(ScriptRunner.readConsoleLines(console)), serverType);
+        } finally {
+            ProcessHelper.destroyProcess(process);
+        }
+    }
+
+    private static void assertRunning(final Process process, final Path console) throws IOException {
+        if (ProcessHelper.processHasDied(process)) {
+            final StringBuilder msg = new StringBuilder("Server failed to start:").append(Environment.NEW_LINE);
+            for (String line : ScriptRunner.readConsoleLines(console)) {
+                msg.append(line).append(Environment.NEW_LINE);
+            }
+            Assert.fail(msg.toString());
+        }
+    }
+
+    private static String median(final List<Double> values) {
+        return (values.isEmpty() ? "-" : Report.format(Statistics.median(Statistics.toArray(values))));
+    }
+
+    /**
+     * The measurements of a mode for a path.
+     */
+    private static class Measurements {
+        final List<Double> boot = new ArrayList<>();
+        final List<Double> preJvm = new ArrayList<>();
+        final List<Double> jvmExec = new ArrayList<>();
+        final List<Double> subshells = new ArrayList<>();
+        final Map<String, List<Double>> categories = new LinkedHashMap<>();
+        // The total time of each script line for each run
+        final Map<String, List<Double>> steps = new LinkedHashMap<>();
+        final Map<String, Integer> calls = new LinkedHashMap<>();
+        final Map<String, String> commands = new LinkedHashMap<>();
+
+        void addBoot(final double bootMs, final Map<String, BootTimeline> timelines, final ServerType serverType) {
+            boot.add(bootMs);
+            final BootTimeline timeline = timelines.get(serverType == ServerType.STANDALONE ? BootTimeline.DEFAULT_PROCESS : "Host Controller");
+            if (timeline != null && timeline.isStarted()) {
+                preJvm.add(bootMs - timeline.getReportedBootMillis());
+            }
+        }
+
+        void addTrace(final ShellTrace trace, final long startMillis) {
+            jvmExec.add(trace.getExecMicros() / 1000d - startMillis);
+            subshells.add((double) trace.getSubshellCommands());
+            for (Map.Entry<String, Double> entry : trace.getCategoryMillis().entrySet()) {
+                add(categories, entry.getKey(), entry.getValue());
+            }
+            final Map<String, Double> lineMillis = new LinkedHashMap<>();
+            for (ShellTrace.Step step : trace.getSteps()) {
+                final Double current = lineMillis.get(step.location);
+                lineMillis.put(step.location, (current == null ? 0d : current) + step.getMillis());
+                final Integer count = calls.get(step.location);
+                calls.put(step.location, (count == null ? 1 : count + 1));
+                if (!commands.containsKey(step.location)) {
+                    commands.put(step.location, abbreviate(step.command));
+                }
+            }
+            for (Map.Entry<String, Double> entry : lineMillis.entrySet()) {
+                add(steps, entry.getKey(), entry.getValue());
+            }
+        }
+
+        private static void add(final Map<String, List<Double>> values, final String key, final double value) {
+            List<Double> list = values.get(key);
+            if (list == null) {
+                list = new ArrayList<>();
+                values.put(key, list);
+            }
+            list.add(value);
+        }
+
+        private static String abbreviate(final String command) {
+            return (command.length() > 80 ? command.substring(0, 77) + "..." : command);
+        }
+    }
+}
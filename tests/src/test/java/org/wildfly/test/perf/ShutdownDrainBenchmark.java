@@ -0,0 +1,458 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.as.controller.client.helpers.domain.DomainClient;
+import org.jboss.as.controller.client.helpers.domain.ServerIdentity;
+import org.jboss.as.controller.client.helpers.domain.ServerStatus;
+import org.jboss.dmr.ModelNode;
+import org.jboss.logging.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.test.scripts.ServerScriptRunner;
+import org.wildfly.test.scripts.ServerType;
+import org.wildfly.test.util.Environment;
+import org.wildfly.test.util.ServerHelper;
+
+/**
+ * Measures how long a server takes to shut down while management clients are executing operations against it and
+ * what the clients see while the server drains.
+ * <p/>
+ * For a standalone server a new server is booted for each run. Once the load has run for the warm up the server is
+ * shut down with a {@code shutdown} operation and the time until the process exits is measured. For a domain the
+ * servers are stopped with a {@code stop-servers} operation while the load targets the servers through the domain
+ * controller. The time until no server is running is measured and the servers are started again for the next run.
+ * <p/>
+ * Each operation is classified by when it was executed relative to the shutdown operation:
+ * <ul>
+ * <li>{@code in-flight} the operation started before and completed after the shutdown operation was issued</li>
+ * <li>{@code after} the operation started after the shutdown operation was issued</li>
+ * </ul>
+ * The {@code serving} time is the time from the shutdown operation until the last operation which completed
+ * successfully. Note that management operations are not rejected by a suspended server, so a server suspended with a
+ * timeout keeps serving management operations until it stops.
+ * <p/>
+ * Each timeout is used for a shutdown, or {@code stop-servers}, operation with a {@code timeout} parameter and for a
+ * {@code suspend} operation with the timeout followed by a shutdown. A negative timeout shuts down without the
+ * {@code timeout} parameter.
+ * <p/>
+ * The following system properties can be used to configure the benchmark:
+ * <ul>
+ * <li>{@code wildfly.perf.drain.timeouts} a comma delimited list of graceful shutdown timeouts in seconds, defaults to
+ * {@code -1,0,5}</li>
+ * <li>{@code wildfly.perf.drain.runs} the number of shutdowns for each variant, defaults to {@code 3}</li>
+ * <li>{@code wildfly.perf.drain.clients} the number of client connections to open, defaults to {@code 4}</li>
+ * <li>{@code wildfly.perf.drain.threads} the number of worker threads, defaults to {@code 8}</li>
+ * <li>{@code wildfly.perf.drain.rate} the total operations per second, defaults to {@code 200}</li>
+ * <li>{@code wildfly.perf.drain.warmup} the time in seconds the load runs before the shutdown, defaults to
+ * {@code 5}</li>
+ * <li>{@code wildfly.perf.drain.tail} the time in seconds the load keeps running after the server stopped, defaults to
+ * {@code 2}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ShutdownDrainBenchmark {
+
+    private static final Logger LOGGER = Logger.getLogger(ShutdownDrainBenchmark.class);
+
+    private static final long STOP_TIMEOUT_SECONDS = 120L;
+
+    private final int[] timeouts = BenchmarkProperties.getIntegers("wildfly.perf.drain.timeouts", "-1,0,5");
+    private final int runs = Integer.getInteger("wildfly.perf.drain.runs", 3);
+    private final int clientCount = Integer.getInteger("wildfly.perf.drain.clients", 4);
+    private final int threads = Integer.getInteger("wildfly.perf.drain.threads", 8);
+    private final double rate = BenchmarkProperties.getDouble("wildfly.perf.drain.rate", 200d);
+    private final long warmup = Long.getLong("wildfly.perf.drain.warmup", 5L);
+    private final long tail = Long.getLong("wildfly.perf.drain.tail", 2L);
+
+    @Test
+    public void testStandaloneShutdown() throws Exception {
+        final Report report = createReport("shutdown-drain-standalone", "exit-ms");
+        for (Variant variant : variants()) {
+            final List<Drain> drains = new ArrayList<>();
+            for (int i = 0; i < runs; i++) {
+                try (final ServerScriptRunner runner = ServerScriptRunner.of(Environment.WILDFLY_HOME, ServerType.STANDALONE, "shutdown-drain")) {
+                    final Process process = Benchmarks.startAndWait(runner);
+                    drains.add(drain(createTargets(null), new Stopper() {
+                        @Override
+                        public void stop(final ModelControllerClient client, final Variant variant, final Outcomes outcomes) throws Exception {
+                            if (variant.suspend) {
+                                execute(client, variant.createOperation("suspend", ServerHelper.EMPTY_ADDRESS));
+                            }
+                            outcomes.shutdownIssued();
+                            execute(client, variant.createOperation("shutdown", ServerHelper.EMPTY_ADDRESS));
+                            if (!ServerHelper.waitForProcessExit(process, STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                                Assert.fail(String.format("The server did not exit within %d seconds of %s", STOP_TIMEOUT_SECONDS, variant));
+                            }
+                        }
+                    }, variant));
+                }
+            }
+            addRow(report, variant, drains);
+        }
+        report.write();
+    }
+
+    @Test
+    public void testDomainStopServers() throws Exception {
+        final Report report = createReport("shutdown-drain-domain", "stopped-ms");
+        try (
+                final ServerScriptRunner runner = ServerScriptRunner.of(Environment.WILDFLY_HOME, ServerType.DOMAIN, "shutdown-drain");
+                final DomainClient domainClient = DomainClient.Factory.create(ServerHelper.createClientConnection())
+        ) {
+            final Process process = Benchmarks.startAndWait(runner);
+            for (Variant variant : variants()) {
+                final List<Drain> drains = new ArrayList<>();
+                for (int i = 0; i < runs; i++) {
+                    final Map<ServerIdentity, ServerStatus> servers = ServerHelper.waitForDomain(process, domainClient);
+                    Assert.assertFalse("No servers are running in the domain", servers.isEmpty());
+                    drains.add(drain(createTargets(servers.keySet()), new Stopper() {
+                        @Override
+                        public void stop(final ModelControllerClient client, final Variant variant, final Outcomes outcomes) throws Exception {
+                            if (variant.suspend) {
+                                execute(client, variant.createOperation("suspend-servers", ServerHelper.EMPTY_ADDRESS));
+                            }
+                            outcomes.shutdownIssued();
+                            execute(client, variant.createOperation("stop-servers", ServerHelper.EMPTY_ADDRESS));
+                            waitForStoppedServers(domainClient, variant);
+                        }
+                    }, variant));
+                    // Start the servers for the next run
+                    execute(domainClient, Operations.createOperation("start-servers"));
+                }
+                addRow(report, variant, drains);
+            }
+            ServerHelper.waitForDomain(process, domainClient);
+            runner.shutdown();
+        }
+        report.write();
+    }
+
+    /**
+     * Runs the load, stops the server and keeps the load running for the tail so the errors the clients see once the
+     * server has stopped are recorded.
+     */
+    private Drain drain(final Targets targets, final Stopper stopper, final Variant variant) throws Exception {
+        final Outcomes outcomes = new Outcomes();
+        final List<LoadGenerator.Target> recordingTargets = new ArrayList<>();
+        for (LoadGenerator.Target target : targets.targets) {
+            recordingTargets.add(new RecordingTarget(target, outcomes));
+        }
+        final LoadGenerator generator = LoadGenerator.of(recordingTargets, targets.operations)
+                .setMode(LoadGenerator.Mode.FIXED_RATE)
+                .setThreads(threads)
+                .setRate(rate);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (final ModelControllerClient client = ServerHelper.createClientConnection()) {
+            final Future<LoadGenerator.Result> load = executor.submit(new Callable<LoadGenerator.Result>() {
+                @Override
+                public LoadGenerator.Result call() throws Exception {
+                    return generator.run(0L, TimeUnit.HOURS.toSeconds(1L), TimeUnit.SECONDS);
+                }
+            });
+            TimeUnit.SECONDS.sleep(warmup);
+            final long start = System.nanoTime();
+            stopper.stop(client, variant, outcomes);
+            final double stopMs = Benchmarks.elapsedMillis(start);
+            TimeUnit.SECONDS.sleep(tail);
+            generator.stop();
+            try {
+                load.get(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                LOGGER.debugf(e, "The load failed during %s", variant);
+            }
+            return new Drain(stopMs, outcomes);
+        } finally {
+            executor.shutdownNow();
+            targets.close();
+        }
+    }
+
+    private List<Variant> variants() {
+        final List<Variant> result = new ArrayList<>();
+        for (int timeout : timeouts) {
+            result.add(new Variant(timeout, false));
+            if (timeout >= 0) {
+                result.add(new Variant(timeout, true));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates the targets and operations. If the servers are {@code null} the operations target a standalone server,
+     * otherwise the servers of the domain.
+     */
+    private Targets createTargets(final Iterable<ServerIdentity> servers) throws IOException {
+        final List<ModelNode> operations;
+        if (servers == null) {
+            operations = ManagementLoadBenchmark.createOperations();
+        } else {
+            operations = new ArrayList<>();
+            for (ServerIdentity server : servers) {
+                final ModelNode address = new ModelNode().setEmptyList()
+                        .add("host", server.getHostName())
+                        .add("server", server.getServerName());
+                operations.add(Operations.createReadAttributeOperation(address, "server-state"));
+                final ModelNode runtimeAddress = address.clone().add("core-service", "platform-mbean").add("type", "runtime");
+                final ModelNode op = Operations.createReadResourceOperation(runtimeAddress);
+                op.get("include-runtime").set(true);
+                operations.add(op);
+            }
+        }
+        final Targets result = new Targets(operations);
+        for (int i = 0; i < clientCount; i++) {
+            final ModelControllerClient client = ServerHelper.createClientConnection();
+            result.clients.add(client);
+            result.targets.add(LoadGenerator.of(client));
+        }
+        return result;
+    }
+
+    private static void waitForStoppedServers(final DomainClient client, final Variant variant) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(STOP_TIMEOUT_SECONDS);
+        while (System.nanoTime() - deadline < 0) {
+            boolean running = false;
+            for (ServerStatus status : client.getServerStatuses().values()) {
+                if (status == ServerStatus.STARTED || status == ServerStatus.STARTING || status == ServerStatus.STOPPING) {
+                    running = true;
+                    break;
+                }
+            }
+            if (!running) {
+                return;
+            }
+            TimeUnit.MILLISECONDS.sleep(20L);
+        }
+        Assert.fail(String.format("The servers did not stop within %d seconds of %s", STOP_TIMEOUT_SECONDS, variant));
+    }
+
+    /**
+     * Executes the operation. The connection may be closed before a shutdown operation completes, failures are only
+     * logged.
+     */
+    private static void execute(final ModelControllerClient client, final ModelNode op) {
+        try {
+            final ModelNode response = client.execute(op);
+            if (!Operations.isSuccessfulOutcome(response)) {
+                LOGGER.warnf("Failed to execute %s: %s", op, Operations.getFailureDescription(response));
+            }
+        } catch (IOException e) {
+            LOGGER.debugf(e, "Failed to execute %s", op);
+        }
+    }
+
+    private Report createReport(final String name, final String stopColumn) {
+        final Report report = Report.create(name, "variant", "runs", stopColumn + "-p50", stopColumn + "-max",
+                "serving-ms-p50", "in-flight", "in-flight-failures", "in-flight-exceptions", "after", "after-successes",
+                "after-failures", "after-exceptions", "after-error-rate");
+        report.addNote(String.format("threads=%d, clients=%d, rate=%s ops/sec, warmup=%ds, tail=%ds", threads, clientCount,
+                Report.format(rate), warmup, tail));
+        report.addNote("Operation counts are the totals of all runs, after-error-rate is the failed share of the operations started after the shutdown.");
+        return report;
+    }
+
+    private static void addRow(final Report report, final Variant variant, final List<Drain> drains) {
+        final List<Double> stopTimes = new ArrayList<>();
+        final List<Double> servingTimes = new ArrayList<>();
+        final long[] totals = new long[Outcomes.COUNTERS];
+        for (Drain drain : drains) {
+            stopTimes.add(drain.stopMs);
+            servingTimes.add(drain.outcomes.getServingMillis());
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += drain.outcomes.counters.get(i);
+            }
+        }
+        final double[] stop = Statistics.toArray(stopTimes);
+        final long inFlightFailures = totals[Outcomes.IN_FLIGHT + Outcomes.FAILURE];
+        final long inFlightExceptions = totals[Outcomes.IN_FLIGHT + Outcomes.EXCEPTION];
+        final long inFlight = totals[Outcomes.IN_FLIGHT + Outcomes.SUCCESS] + inFlightFailures + inFlightExceptions;
+        final long afterSuccesses = totals[Outcomes.AFTER + Outcomes.SUCCESS];
+        final long afterFailures = totals[Outcomes.AFTER + Outcomes.FAILURE];
+        final long afterExceptions = totals[Outcomes.AFTER + Outcomes.EXCEPTION];
+        final long after = afterSuccesses + afterFailures + afterExceptions;
+        report.addRow(variant, drains.size(), Statistics.median(stop), Statistics.max(stop),
+                Statistics.median(Statistics.toArray(servingTimes)), inFlight, inFlightFailures, inFlightExceptions,
+                after, afterSuccesses, afterFailures, afterExceptions,
+                (after == 0L ? 0d : (afterFailures + afterExceptions) * 100d / after));
+    }
+
+    /**
+     * Stops the server or servers.
+     */
+    private interface Stopper {
+
+        /**
+         * Stops the server, {@linkplain Outcomes#shutdownIssued() recording} when the shutdown is issued, and waits for
+         * it to be stopped.
+         */
+        void stop(ModelControllerClient client, Variant variant, Outcomes outcomes) throws Exception;
+    }
+
+    private static class Variant {
+        final int timeout;
+        final boolean suspend;
+
+        private Variant(final int timeout, final boolean suspend) {
+            this.timeout = timeout;
+            this.suspend = suspend;
+        }
+
+        ModelNode createOperation(final String name, final ModelNode address) {
+            final ModelNode op = Operations.createOperation(name, address);
+            if (timeout >= 0) {
+                op.get("timeout").set(timeout);
+            }
+            return op;
+        }
+
+        @Override
+        public String toString() {
+            final String params = (timeout >= 0 ? "(timeout=" + timeout + ")" : "");
+            return (suspend ? "suspend" + params + "+shutdown" + params : "shutdown" + params);
+        }
+    }
+
+    private static class Targets {
+        final List<ModelNode> operations;
+        final List<ModelControllerClient> clients = new ArrayList<>();
+        final List<LoadGenerator.Target> targets = new ArrayList<>();
+
+        private Targets(final List<ModelNode> operations) {
+            this.operations = operations;
+        }
+
+        void close() {
+            for (ModelControllerClient client : clients) {
+                try {
+                    client.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+    }
+
+    private static class Drain {
+        final double stopMs;
+        final Outcomes outcomes;
+
+        private Drain(final double stopMs, final Outcomes outcomes) {
+            this.stopMs = stopMs;
+            this.outcomes = outcomes;
+        }
+    }
+
+    /**
+     * The outcomes of the operations relative to the time the shutdown was issued. Each period, before, in-flight and
+     * after, has a counter for successful, failed and exceptional operations.
+     */
+    private static class Outcomes {
+        static final int SUCCESS = 0;
+        static final int FAILURE = 1;
+        static final int EXCEPTION = 2;
+
+        static final int BEFORE = 0;
+        static final int IN_FLIGHT = 3;
+        static final int AFTER = 6;
+        static final int COUNTERS = 9;
+
+        final AtomicLongArray counters = new AtomicLongArray(COUNTERS);
+        private final AtomicLong lastSuccess = new AtomicLong(Long.MIN_VALUE);
+        private volatile long shutdownNanos = Long.MAX_VALUE;
+
+        void shutdownIssued() {
+            shutdownNanos = System.nanoTime();
+        }
+
+        void record(final long start, final long end, final int outcome) {
+            final long shutdown = shutdownNanos;
+            final int period;
+            if (start - shutdown >= 0) {
+                period = AFTER;
+            } else if (end - shutdown >= 0) {
+                period = IN_FLIGHT;
+            } else {
+                period = BEFORE;
+            }
+            counters.incrementAndGet(period + outcome);
+            if (outcome == SUCCESS && period != BEFORE) {
+                long current;
+                while ((current = lastSuccess.get()) == Long.MIN_VALUE || current - end < 0) {
+                    if (lastSuccess.compareAndSet(current, end)) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * The time from the shutdown until the last successful operation completed.
+         */
+        double getServingMillis() {
+            final long last = lastSuccess.get();
+            return (last == Long.MIN_VALUE ? 0d : (last - shutdownNanos) / 1000000d);
+        }
+    }
+
+    /**
+     * Records the outcome of each operation executed by the delegate.
+     */
+    private static class RecordingTarget implements LoadGenerator.Target {
+        private final LoadGenerator.Target delegate;
+        private final Outcomes outcomes;
+
+        private RecordingTarget(final LoadGenerator.Target delegate, final Outcomes outcomes) {
+            this.delegate = delegate;
+            this.outcomes = outcomes;
+        }
+
+        @Override
+        public ModelNode execute(final ModelNode op) throws IOException {
+            final long start = System.nanoTime();
+            try {
+                final ModelNode result = delegate.execute(op);
+                outcomes.record(start, System.nanoTime(), (Operations.isSuccessfulOutcome(result) ? Outcomes.SUCCESS : Outcomes.FAILURE));
+                return result;
+            } catch (IOException | RuntimeException e) {
+                outcomes.record(start, System.nanoTime(), Outcomes.EXCEPTION);
+                throw e;
+            }
+        }
+    }
+}
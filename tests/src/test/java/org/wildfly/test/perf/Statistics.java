@@ -0,0 +1,249 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Simple statistics used to summarize and compare benchmark samples.
+ * <p/>
+ * The significance tests use the normal approximation which is only reasonable for larger sample sizes. Most of the
+ * benchmarks collect at least 20 samples which is enough for the approximation to be useful.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class Statistics {
+
+    private Statistics() {
+    }
+
+    public static double[] toArray(final Collection<? extends Number> values) {
+        final double[] result = new double[values.size()];
+        int i = 0;
+        for (Number value : values) {
+            result[i++] = value.doubleValue();
+        }
+        return result;
+    }
+
+    public static double mean(final double[] values) {
+        if (values.length == 0) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    public static double stddev(final double[] values) {
+        if (values.length < 2) {
+            return 0d;
+        }
+        final double mean = mean(values);
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(sum / (values.length - 1));
+    }
+
+    public static double min(final double[] values) {
+        double result = Double.NaN;
+        for (double value : values) {
+            if (Double.isNaN(result) || value < result) {
+                result = value;
+            }
+        }
+        return result;
+    }
+
+    public static double max(final double[] values) {
+        double result = Double.NaN;
+        for (double value : values) {
+            if (Double.isNaN(result) || value > result) {
+                result = value;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the percentile using linear interpolation between the closest ranks.
+     *
+     * @param values     the values
+     * @param percentile the percentile, between 0 and 100
+     *
+     * @return the percentile value or {@link Double#NaN} if there are no values
+     */
+    public static double percentile(final double[] values, final double percentile) {
+        if (values.length == 0) {
+            return Double.NaN;
+        }
+        final double[] sorted = Arrays.copyOf(values, values.length);
+        Arrays.sort(sorted);
+        final double rank = (percentile / 100d) * (sorted.length - 1);
+        final int lower = (int) Math.floor(rank);
+        final int upper = (int) Math.ceil(rank);
+        if (lower == upper) {
+            return sorted[lower];
+        }
+        return sorted[lower] + (rank - lower) * (sorted[upper] - sorted[lower]);
+    }
+
+    public static double median(final double[] values) {
+        return percentile(values, 50d);
+    }
+
+    /**
+     * Fits a least squares line to the values using the index as the x value and tests if the slope differs from
+     * zero.
+     *
+     * @param values the values in the order they were collected
+     *
+     * @return the trend
+     */
+    public static Trend trend(final double[] values) {
+        final int n = values.length;
+        if (n < 3) {
+            return new Trend(0d, 1d);
+        }
+        final double meanX = (n - 1) / 2d;
+        final double meanY = mean(values);
+        double sxx = 0;
+        double sxy = 0;
+        for (int i = 0; i < n; i++) {
+            sxx += (i - meanX) * (i - meanX);
+            sxy += (i - meanX) * (values[i] - meanY);
+        }
+        final double slope = sxy / sxx;
+        final double intercept = meanY - slope * meanX;
+        double sse = 0;
+        for (int i = 0; i < n; i++) {
+            final double residual = values[i] - (intercept + slope * i);
+            sse += residual * residual;
+        }
+        final double standardError = Math.sqrt(sse / (n - 2)) / Math.sqrt(sxx);
+        if (standardError == 0d) {
+            // A perfect fit, any slope is significant
+            return new Trend(slope, slope == 0d ? 1d : 0d);
+        }
+        return new Trend(slope, twoSidedPValue(slope / standardError));
+    }
+
+    /**
+     * Performs a Mann-Whitney U test to determine if the samples in {@code b} tend to be larger than the samples in
+     * {@code a}.
+     *
+     * @param a the baseline samples
+     * @param b the samples to compare to the baseline
+     *
+     * @return the one-sided p-value
+     */
+    public static double mannWhitneyGreater(final double[] a, final double[] b) {
+        final int n1 = a.length;
+        final int n2 = b.length;
+        if (n1 == 0 || n2 == 0) {
+            return 1d;
+        }
+        // Rank the combined samples, averaging ties
+        final double[][] combined = new double[n1 + n2][];
+        for (int i = 0; i < n1; i++) {
+            combined[i] = new double[] {a[i], 0};
+        }
+        for (int i = 0; i < n2; i++) {
+            combined[n1 + i] = new double[] {b[i], 1};
+        }
+        Arrays.sort(combined, new Comparator<double[]>() {
+            @Override
+            public int compare(final double[] o1, final double[] o2) {
+                return Double.compare(o1[0], o2[0]);
+            }
+        });
+        final int n = combined.length;
+        double rankSumB = 0;
+        double tieCorrection = 0;
+        int i = 0;
+        while (i < n) {
+            int j = i;
+            while (j + 1 < n && combined[j + 1][0] == combined[i][0]) {
+                j++;
+            }
+            final double rank = (i + j + 2) / 2d;
+            final int ties = j - i + 1;
+            tieCorrection += (Math.pow(ties, 3) - ties);
+            for (int k = i; k <= j; k++) {
+                if (combined[k][1] == 1) {
+                    rankSumB += rank;
+                }
+            }
+            i = j + 1;
+        }
+        final double u = rankSumB - (n2 * (n2 + 1) / 2d);
+        final double meanU = n1 * n2 / 2d;
+        final double sigma = Math.sqrt((n1 * n2 / 12d) * ((n + 1) - tieCorrection / (n * (n - 1d))));
+        if (sigma == 0d) {
+            return 1d;
+        }
+        // Continuity correction
+        final double z = (u - meanU - 0.5d) / sigma;
+        return 1d - normalCdf(z);
+    }
+
+    public static double twoSidedPValue(final double z) {
+        return 2d * (1d - normalCdf(Math.abs(z)));
+    }
+
+    public static double normalCdf(final double z) {
+        return 0.5d * (1d + erf(z / Math.sqrt(2d)));
+    }
+
+    private static double erf(final double x) {
+        // Abramowitz and Stegun 7.1.26, maximum error 1.5e-7
+        final double t = 1d / (1d + 0.3275911d * Math.abs(x));
+        final double y = 1d - (((((1.061405429d * t - 1.453152027d) * t) + 1.421413741d) * t - 0.284496736d) * t + 0.254829592d) * t * Math.exp(-x * x);
+        return x >= 0 ? y : -y;
+    }
+
+    /**
+     * The result of a linear trend test.
+     */
+    public static class Trend {
+        /**
+         * The change per sample
+         */
+        public final double slope;
+        /**
+         * The two-sided p-value for the slope being different from zero
+         */
+        public final double pValue;
+
+        Trend(final double slope, final double pValue) {
+            this.slope = slope;
+            this.pValue = pValue;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link Statistics#mannWhitneyGreater(double[], double[]) Mann-Whitney U test} against p-values computed
+ * with the normal approximation, continuity and tie correction and an exact normal distribution. No server is
+ * required.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class StatisticsTestCase {
+
+    // The error of the approximation of the normal distribution is at most 1.5e-7
+    private static final double DELTA = 0.000001d;
+
+    @Test
+    public void testMannWhitneyGreater() {
+        // U = 25, every sample of b is larger
+        Assert.assertEquals(0.0060929d, Statistics.mannWhitneyGreater(new double[] {1, 2, 3, 4, 5},
+                new double[] {6, 7, 8, 9, 10}), DELTA);
+        // U = 0, every sample of b is smaller
+        Assert.assertEquals(0.9966923d, Statistics.mannWhitneyGreater(new double[] {6, 7, 8, 9, 10},
+                new double[] {1, 2, 3, 4, 5}), DELTA);
+        // U = 31, overlapping samples
+        Assert.assertEquals(0.0226638d, Statistics.mannWhitneyGreater(new double[] {10.2, 11.1, 9.8, 10.5, 10.9, 10.0},
+                new double[] {10.4, 11.6, 12.0, 11.3, 10.8, 11.9}), DELTA);
+    }
+
+    @Test
+    public void testMannWhitneyGreaterTies() {
+        // U = 20.5 with tied ranks
+        Assert.assertEquals(0.0552460d, Statistics.mannWhitneyGreater(new double[] {1, 2, 2, 3, 4},
+                new double[] {2, 3, 5, 5, 6}), DELTA);
+        // All samples tied, there is no evidence either way
+        Assert.assertEquals(1d, Statistics.mannWhitneyGreater(new double[] {5, 5, 5}, new double[] {5, 5}), 0d);
+    }
+
+    @Test
+    public void testMannWhitneyGreaterEmpty() {
+        Assert.assertEquals(1d, Statistics.mannWhitneyGreater(new double[0], new double[] {1, 2}), 0d);
+        Assert.assertEquals(1d, Statistics.mannWhitneyGreater(new double[] {1, 2}, new double[0]), 0d);
+    }
+}
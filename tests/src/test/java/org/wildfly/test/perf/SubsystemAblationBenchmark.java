@@ -0,0 +1,293 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.perf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.jboss.logging.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.wildfly.test.scripts.ServerScriptRunner;
+import org.wildfly.test.util.BootTimeline;
+import org.wildfly.test.util.ServerHelper;
+
+/**
+ * Attributes the boot time and memory of a standalone server to its subsystems. For each subsystem in the
+ * {@code standalone.xml} a configuration without the subsystem, and without its extension when the extension can be
+ * found, is created. Each configuration is booted a number of times and the cost of a subsystem is the
+ * difference between the full configuration and the configuration without the subsystem.
+ * <p/>
+ * The extension of a subsystem is found by matching the subsystem name of the namespace, e.g. {@code jmx} in
+ * {@code urn:jboss:domain:jmx:1.3}, with the last segment of the extension module, e.g. {@code org.jboss.as.jmx}.
+ * Configurations which fail to boot, e.g. because another subsystem requires the removed subsystem, are reported as
+ * failed.
+ * <p/>
+ * Memory is read after a garbage collection once the server has booted.
+ * <p/>
+ * The following system properties can be used to configure the benchmark:
+ * <ul>
+ * <li>{@code wildfly.perf.ablation.runs} the number of boots of each configuration, defaults to {@code 5}</li>
+ * <li>{@code wildfly.perf.ablation.subsystems} a comma delimited list of the subsystems to remove, defaults to all
+ * subsystems</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class SubsystemAblationBenchmark {
+
+    private static final Logger LOGGER = Logger.getLogger(SubsystemAblationBenchmark.class);
+
+    private static final String FULL = "full";
+
+    private static final String[] METRICS = {
+            "boot-ms",
+            "services",
+            "heap-used-mb",
+            "metaspace-used-mb",
+            "threads",
+            "loaded-classes",
+            "tree-rss-mb",
+    };
+
+    private final int runs = Integer.getInteger("wildfly.perf.ablation.runs", 5);
+    private final List<String> subsystemFilter = BenchmarkProperties.getStrings("wildfly.perf.ablation.subsystems", "");
+
+    @Test
+    public void testSubsystemAblation() throws Exception {
+        final Path wildflyHome = Benchmarks.copyWildFlyHome("subsystem-ablation");
+        final Path configDir = wildflyHome.resolve("standalone").resolve("configuration");
+        final Document config = parse(configDir.resolve("standalone.xml"));
+
+        // Create a configuration for each removed subsystem
+        final Map<String, String> configs = new LinkedHashMap<>();
+        final Map<String, String> removedExtensions = new LinkedHashMap<>();
+        configs.put(FULL, "standalone.xml");
+        for (String subsystem : subsystemNames(config)) {
+            if (!subsystemFilter.isEmpty() && !subsystemFilter.contains(subsystem)) {
+                continue;
+            }
+            final Document variant = (Document) config.cloneNode(true);
+            removeSubsystem(variant, subsystem);
+            final String extension = removeExtension(variant, subsystem);
+            removedExtensions.put(subsystem, (extension == null ? "-" : extension));
+            final String fileName = "standalone-without-" + subsystem + ".xml";
+            write(variant, configDir.resolve(fileName));
+            configs.put(subsystem, fileName);
+        }
+
+        final Report report = Report.create("subsystem-ablation", "removed-subsystem", "removed-extension", "booted",
+                "boot-ms", "boot-ms-cost", "services-cost", "heap-mb-cost", "metaspace-mb-cost", "threads-cost",
+                "classes-cost", "rss-mb-cost");
+        try {
+            final Map<String, double[]> medians = new LinkedHashMap<>();
+            for (Map.Entry<String, String> entry : configs.entrySet()) {
+                medians.put(entry.getKey(), measure(wildflyHome, entry.getValue()));
+            }
+            final double[] full = medians.get(FULL);
+            Assert.assertNotNull("The full configuration failed to boot", full);
+            report.addRow(FULL, "-", true, full[0], 0d, 0d, 0d, 0d, 0d, 0d, 0d);
+            for (Map.Entry<String, double[]> entry : medians.entrySet()) {
+                if (FULL.equals(entry.getKey())) {
+                    continue;
+                }
+                final double[] values = entry.getValue();
+                final String extension = removedExtensions.get(entry.getKey());
+                if (values == null) {
+                    report.addRow(entry.getKey(), extension, false, "-", "-", "-", "-", "-", "-", "-", "-");
+                } else {
+                    report.addRow(entry.getKey(), extension, true, values[0], full[0] - values[0], full[1] - values[1],
+                            full[2] - values[2], full[3] - values[3], full[4] - values[4], full[5] - values[5],
+                            full[6] - values[6]);
+                }
+            }
+            report.addNote(String.format("Values are the median of %d boots, a cost is the full configuration minus the configuration without the subsystem.", runs));
+            report.addNote("Heap is noisy even after a garbage collection, compare heap costs only when they exceed the run to run variance.");
+            report.addNote("The RSS of the process tree is the peak sampled during boot, only available on Linux.");
+            report.write();
+        } finally {
+            Benchmarks.deleteQuietly(wildflyHome);
+        }
+    }
+
+    /**
+     * Boots the configuration and returns the median of each metric or {@code null} if the configuration failed to
+     * boot.
+     */
+    private double[] measure(final Path wildflyHome, final String config) throws Exception {
+        final List<List<Double>> values = new ArrayList<>();
+        for (String ignore : METRICS) {
+            values.add(new ArrayList<Double>(runs));
+        }
+        for (int i = 0; i < runs; i++) {
+            try (
+                    final ServerScriptRunner runner = ServerScriptRunner.createStandalone(wildflyHome, "subsystem-ablation");
+                    final ModelControllerClient client = ServerHelper.createClientConnection()
+            ) {
+                final long start = System.nanoTime();
+                final Process process = runner.start("-c", config);
+                final double bootMs;
+                final ProcessTreeSampler.Summary tree;
+                // Sample from the start of the script so the peak RSS of the boot is included
+                try (final ProcessTreeSampler sampler = ProcessTreeSampler.start(process, 250L)) {
+                    try {
+                        runner.waitForStart(process);
+                    } catch (RuntimeException e) {
+                        LOGGER.warnf(e, "Failed to boot %s", config);
+                        return null;
+                    }
+                    bootMs = Benchmarks.elapsedMillis(start);
+                    sampler.sample();
+                    tree = sampler.getSummary();
+                }
+                final BootTimeline timeline = runner.readBootTimelines().get(BootTimeline.DEFAULT_PROCESS);
+                if (!ServerHelper.isStandaloneRunning(client) || timeline == null || bootFailed(runner)) {
+                    LOGGER.warnf("Configuration %s did not boot without errors", config);
+                    runner.shutdown();
+                    ServerHelper.waitForProcessExit(process, 60L, TimeUnit.SECONDS);
+                    return null;
+                }
+                final MemorySampler.Sample memory = sampleAfterGc(client);
+                final double[] memoryValues = memory.getValues();
+                values.get(0).add(bootMs);
+                values.get(1).add((double) timeline.getServicesTotal());
+                values.get(2).add(memoryValues[0]);
+                values.get(3).add(memoryValues[2]);
+                values.get(4).add(memoryValues[6]);
+                values.get(5).add(memoryValues[8]);
+                values.get(6).add(tree.rssMbPeak);
+                Benchmarks.shutdown(runner, process);
+            }
+        }
+        final double[] result = new double[METRICS.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Statistics.median(Statistics.toArray(values.get(i)));
+        }
+        return result;
+    }
+
+    private static boolean bootFailed(final ServerScriptRunner runner) throws IOException {
+        for (String line : runner.readConsoleLines()) {
+            if (line.contains("started (with errors)")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static MemorySampler.Sample sampleAfterGc(final ModelControllerClient client) throws IOException {
+        final ModelNode address = new ModelNode().add("core-service", "platform-mbean").add("type", "memory");
+        final ModelNode response = client.execute(Operations.createOperation("gc", address));
+        if (!Operations.isSuccessfulOutcome(response)) {
+            LOGGER.debugf("Failed to execute a garbage collection: %s", Operations.getFailureDescription(response));
+        }
+        try (final MemorySampler sampler = MemorySampler.start(client, ServerHelper.EMPTY_ADDRESS, TimeUnit.HOURS.toMillis(1L))) {
+            return sampler.getBootSample();
+        }
+    }
+
+    private static List<String> subsystemNames(final Document config) {
+        final List<String> result = new ArrayList<>();
+        final NodeList subsystems = config.getElementsByTagNameNS("*", "subsystem");
+        for (int i = 0; i < subsystems.getLength(); i++) {
+            final String name = subsystemName((Element) subsystems.item(i));
+            if (name != null && !result.contains(name)) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the subsystem name from the namespace, e.g. {@code jmx} for {@code urn:jboss:domain:jmx:1.3}.
+     */
+    private static String subsystemName(final Element subsystem) {
+        final String namespace = subsystem.getNamespaceURI();
+        if (namespace == null) {
+            return null;
+        }
+        final String[] parts = namespace.split(":");
+        return (parts.length >= 2 ? parts[parts.length - 2] : null);
+    }
+
+    private static void removeSubsystem(final Document config, final String name) {
+        final NodeList subsystems = config.getElementsByTagNameNS("*", "subsystem");
+        for (int i = subsystems.getLength() - 1; i >= 0; i--) {
+            final Element subsystem = (Element) subsystems.item(i);
+            if (name.equals(subsystemName(subsystem))) {
+                subsystem.getParentNode().removeChild(subsystem);
+            }
+        }
+    }
+
+    /**
+     * Removes the extension whose module name ends with the subsystem name. Extensions providing several subsystems, e.g.
+     * {@code org.jboss.as.connector}, do not match and are left in the configuration.
+     *
+     * @return the module of the removed extension or {@code null} if no extension was removed
+     */
+    private static String removeExtension(final Document config, final String subsystem) {
+        final NodeList extensions = config.getElementsByTagNameNS("*", "extension");
+        for (int i = extensions.getLength() - 1; i >= 0; i--) {
+            final Element extension = (Element) extensions.item(i);
+            final String module = extension.getAttribute("module");
+            if (module.endsWith("." + subsystem)) {
+                extension.getParentNode().removeChild(extension);
+                return module;
+            }
+        }
+        return null;
+    }
+
+    private static Document parse(final Path file) throws Exception {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        try (InputStream in = Files.newInputStream(file)) {
+            return factory.newDocumentBuilder().parse(in);
+        }
+    }
+
+    private static void write(final Document document, final Path file) throws Exception {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            TransformerFactory.newInstance().newTransformer().transform(new DOMSource(document), new StreamResult(out));
+        }
+    }
+}
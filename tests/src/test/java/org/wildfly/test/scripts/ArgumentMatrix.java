@@ -0,0 +1,153 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.scripts;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Builds combinations of values where each combination contains one value from each dimension.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class ArgumentMatrix<T> {
+    private final List<List<T>> dimensions = new ArrayList<>();
+
+    /**
+     * Adds a dimension.
+     *
+     * @param values the possible values for the dimension, at least one value is required
+     *
+     * @return this matrix
+     */
+    ArgumentMatrix<T> addDimension(final List<T> values) {
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("A dimension requires at least one value");
+        }
+        dimensions.add(new ArrayList<>(values));
+        return this;
+    }
+
+    /**
+     * Creates every possible combination of the values.
+     *
+     * @return the combinations
+     */
+    List<List<T>> full() {
+        List<List<T>> result = new ArrayList<>();
+        result.add(Collections.<T>emptyList());
+        for (List<T> dimension : dimensions) {
+            final List<List<T>> next = new ArrayList<>(result.size() * dimension.size());
+            for (List<T> combination : result) {
+                for (T value : dimension) {
+                    final List<T> c = new ArrayList<>(combination);
+                    c.add(value);
+                    next.add(c);
+                }
+            }
+            result = next;
+        }
+        return result;
+    }
+
+    /**
+     * Creates combinations such that every pair of values from two different dimensions appears in at least one
+     * combination. This is usually far fewer combinations than {@linkplain #full() all the combinations}.
+     * <p/>
+     * The combinations are built greedily. Each combination starts with a pair not yet covered and each remaining
+     * dimension uses the value which covers the most uncovered pairs.
+     *
+     * @return the combinations
+     */
+    List<List<T>> pairwise() {
+        final int size = dimensions.size();
+        if (size < 2) {
+            return full();
+        }
+        // Each pair is encoded as dimension and value indexes
+        final Set<List<Integer>> uncovered = new LinkedHashSet<>();
+        for (int d1 = 0; d1 < size; d1++) {
+            for (int d2 = d1 + 1; d2 < size; d2++) {
+                for (int v1 = 0; v1 < dimensions.get(d1).size(); v1++) {
+                    for (int v2 = 0; v2 < dimensions.get(d2).size(); v2++) {
+                        uncovered.add(pair(d1, v1, d2, v2));
+                    }
+                }
+            }
+        }
+        final List<List<T>> result = new ArrayList<>();
+        while (!uncovered.isEmpty()) {
+            final List<Integer> seed = uncovered.iterator().next();
+            final int[] chosen = new int[size];
+            for (int i = 0; i < size; i++) {
+                chosen[i] = -1;
+            }
+            chosen[seed.get(0)] = seed.get(1);
+            chosen[seed.get(2)] = seed.get(3);
+            for (int d = 0; d < size; d++) {
+                if (chosen[d] >= 0) {
+                    continue;
+                }
+                int best = 0;
+                int bestCount = -1;
+                for (int v = 0; v < dimensions.get(d).size(); v++) {
+                    int count = 0;
+                    for (int other = 0; other < size; other++) {
+                        if (other != d && chosen[other] >= 0) {
+                            final List<Integer> pair = (other < d ? pair(other, chosen[other], d, v) : pair(d, v, other, chosen[other]));
+                            if (uncovered.contains(pair)) {
+                                count++;
+                            }
+                        }
+                    }
+                    if (count > bestCount) {
+                        best = v;
+                        bestCount = count;
+                    }
+                }
+                chosen[d] = best;
+            }
+            final List<T> combination = new ArrayList<>(size);
+            for (int d1 = 0; d1 < size; d1++) {
+                combination.add(dimensions.get(d1).get(chosen[d1]));
+                for (int d2 = d1 + 1; d2 < size; d2++) {
+                    uncovered.remove(pair(d1, chosen[d1], d2, chosen[d2]));
+                }
+            }
+            result.add(combination);
+        }
+        return result;
+    }
+
+    private static List<Integer> pair(final int d1, final int v1, final int d2, final int v2) {
+        final List<Integer> result = new ArrayList<>(4);
+        result.add(d1);
+        result.add(v1);
+        result.add(d2);
+        result.add(v2);
+        return result;
+    }
+}
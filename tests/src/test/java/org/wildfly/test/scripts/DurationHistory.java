@@ -0,0 +1,126 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.scripts;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Persisted durations of previous test runs. The durations are smoothed with an exponentially weighted moving average
+ * so a single slow run does not change the estimate too much.
+ * <p/>
+ * The history is stored in {@code durations.properties} in the {@linkplain ResultsCache#dataDir() data directory}, so
+ * it is only kept outside of the build directory if the {@link ResultsCache} is enabled.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class DurationHistory {
+    private static final Logger LOGGER = Logger.getLogger(DurationHistory.class);
+
+    // The weight of the most recent duration
+    private static final double WEIGHT = 0.5d;
+
+    private final Path file;
+    private final Properties durations;
+
+    private DurationHistory(final Path file, final Properties durations) {
+        this.file = file;
+        this.durations = durations;
+    }
+
+    /**
+     * Loads the history. If the history cannot be read an empty history is returned.
+     *
+     * @return the history
+     */
+    static DurationHistory load() {
+        final Path file = ResultsCache.dataDir().resolve("durations.properties");
+        final Properties durations = new Properties();
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                durations.load(in);
+            } catch (IOException e) {
+                LOGGER.warnf(e, "Could not read the duration history %s", file);
+                durations.clear();
+            }
+        }
+        return new DurationHistory(file, durations);
+    }
+
+    /**
+     * Returns the estimated duration for a job.
+     *
+     * @param key             the key for the job
+     * @param defaultDuration the duration to use if the job has not been run before
+     *
+     * @return the estimated duration in milliseconds
+     */
+    synchronized long estimate(final String key, final long defaultDuration) {
+        final String value = durations.getProperty(key);
+        if (value != null) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        return defaultDuration;
+    }
+
+    /**
+     * Records the duration of a job.
+     *
+     * @param key      the key for the job
+     * @param duration the duration in milliseconds
+     */
+    synchronized void record(final String key, final long duration) {
+        final String value = durations.getProperty(key);
+        long result = duration;
+        if (value != null) {
+            try {
+                result = Math.round(WEIGHT * duration + (1d - WEIGHT) * Long.parseLong(value));
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        durations.setProperty(key, Long.toString(result));
+    }
+
+    /**
+     * Writes the history.
+     */
+    synchronized void store() {
+        try {
+            Files.createDirectories(file.getParent());
+            try (OutputStream out = Files.newOutputStream(file)) {
+                durations.store(out, "Test durations in milliseconds");
+            }
+        } catch (IOException e) {
+            LOGGER.warnf(e, "Could not write the duration history %s", file);
+        }
+    }
+}
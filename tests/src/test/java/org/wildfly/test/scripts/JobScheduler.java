@@ -0,0 +1,229 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.scripts;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Runs jobs in parallel, longest estimated duration first (LPT), without exceeding the available resources.
+ * <p/>
+ * Each job has a weight, roughly the number of JVMs it starts. The total weight of the running jobs never exceeds the
+ * capacity, except when a single job is heavier than the capacity in which case it runs alone. A job which needs the
+ * default ports runs exclusively of other jobs needing the default ports. A job which needs a slot is given a slot
+ * number, starting at {@code 1}, which can be used to calculate a port offset.
+ * <p/>
+ * When the longest job does not fit, shorter jobs which do fit are started so the resources stay in use.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+class JobScheduler {
+    private static final Logger LOGGER = Logger.getLogger(JobScheduler.class);
+
+    private final int capacity;
+    private final DurationHistory history;
+    private final Deque<Integer> freeSlots;
+    private final List<Job> jobs;
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param capacity the total weight of jobs which can run at the same time
+     * @param slots    the number of slots, must be at least {@code 1}
+     * @param history  the duration history used to estimate and record the job durations
+     */
+    JobScheduler(final int capacity, final int slots, final DurationHistory history) {
+        if (slots < 1) {
+            // A job needing a slot would never be started
+            throw new IllegalArgumentException("The number of slots must be at least 1: " + slots);
+        }
+        this.capacity = Math.max(1, capacity);
+        this.history = history;
+        freeSlots = new ArrayDeque<>();
+        for (int i = 1; i <= slots; i++) {
+            freeSlots.add(i);
+        }
+        jobs = new ArrayList<>();
+    }
+
+    void add(final Job job) {
+        jobs.add(job);
+    }
+
+    /**
+     * Runs all the jobs and waits for them to complete.
+     *
+     * @return the failure messages of the jobs which failed
+     *
+     * @throws InterruptedException if interrupted while waiting for the jobs
+     */
+    List<String> run() throws InterruptedException {
+        final List<Job> pending = new ArrayList<>(jobs);
+        for (Job job : pending) {
+            job.estimate = history.estimate(job.key, job.defaultDuration);
+        }
+        Collections.sort(pending, new Comparator<Job>() {
+            @Override
+            public int compare(final Job o1, final Job o2) {
+                return Long.compare(o2.estimate, o1.estimate);
+            }
+        });
+        final List<String> failures = new ArrayList<>();
+        final ExecutorService service = Executors.newCachedThreadPool();
+        final CompletionService<String> completionService = new ExecutorCompletionService<>(service);
+        try {
+            int submitted = 0;
+            final long start = System.currentTimeMillis();
+            while (!pending.isEmpty() || submitted > 0) {
+                // Start every pending job which fits, in LPT order
+                synchronized (this) {
+                    int freeCapacity = capacity;
+                    boolean defaultPortsInUse = false;
+                    for (Job job : jobs) {
+                        if (job.running) {
+                            freeCapacity -= job.weight;
+                            defaultPortsInUse = defaultPortsInUse || job.defaultPorts;
+                        }
+                    }
+                    final Iterator<Job> iter = pending.iterator();
+                    while (iter.hasNext()) {
+                        final Job job = iter.next();
+                        final boolean fits = job.weight <= freeCapacity || freeCapacity == capacity;
+                        if (fits && !(job.defaultPorts && defaultPortsInUse) && !(job.needsSlot && freeSlots.isEmpty())) {
+                            iter.remove();
+                            freeCapacity -= job.weight;
+                            defaultPortsInUse = defaultPortsInUse || job.defaultPorts;
+                            job.slot = (job.needsSlot ? freeSlots.poll() : 0);
+                            job.running = true;
+                            submitted++;
+                            LOGGER.debugf("Starting %s (estimated %sms, weight %s, slot %s)", job, job.estimate, job.weight, job.slot);
+                            completionService.submit(new Runner(job));
+                        }
+                    }
+                }
+                // Wait for a job to complete, its resources are released when it completes
+                final Future<String> future = completionService.take();
+                submitted--;
+                try {
+                    final String failure = future.get();
+                    if (failure != null) {
+                        failures.add(failure);
+                    }
+                } catch (ExecutionException e) {
+                    LOGGER.debug("Job failed", e.getCause());
+                    failures.add(String.valueOf(e.getCause()));
+                }
+            }
+            LOGGER.infof("Ran %d jobs in %dms", jobs.size(), System.currentTimeMillis() - start);
+        } finally {
+            service.shutdownNow();
+        }
+        return failures;
+    }
+
+    private class Runner implements Callable<String> {
+        private final Job job;
+
+        Runner(final Job job) {
+            this.job = job;
+        }
+
+        @Override
+        public String call() throws Exception {
+            final long start = System.currentTimeMillis();
+            try {
+                final String result = job.execute(job.slot);
+                history.record(job.key, System.currentTimeMillis() - start);
+                return result;
+            } finally {
+                synchronized (JobScheduler.this) {
+                    if (job.needsSlot) {
+                        freeSlots.add(job.slot);
+                    }
+                    job.running = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * A job to be scheduled.
+     */
+    abstract static class Job {
+        final String key;
+        final long defaultDuration;
+        final int weight;
+        final boolean defaultPorts;
+        final boolean needsSlot;
+        long estimate;
+        int slot;
+        boolean running;
+
+        /**
+         * Creates a new job.
+         *
+         * @param key             the key used for the duration history
+         * @param defaultDuration the estimated duration in milliseconds if the job has no history
+         * @param weight          the weight of the job
+         * @param defaultPorts    {@code true} if the job uses the default ports
+         * @param needsSlot       {@code true} if the job needs a slot
+         */
+        Job(final String key, final long defaultDuration, final int weight, final boolean defaultPorts, final boolean needsSlot) {
+            this.key = key;
+            this.defaultDuration = defaultDuration;
+            this.weight = weight;
+            this.defaultPorts = defaultPorts;
+            this.needsSlot = needsSlot;
+        }
+
+        /**
+         * Executes the job.
+         *
+         * @param slot the slot for the job or {@code 0} if the job does not need a slot
+         *
+         * @return {@code null} if the job passed, otherwise a failure message
+         *
+         * @throws Exception if an error occurs
+         */
+        abstract String execute(int slot) throws Exception;
+
+        @Override
+        public String toString() {
+            return key;
+        }
+    }
+}
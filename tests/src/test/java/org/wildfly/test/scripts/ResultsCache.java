@@ -0,0 +1,270 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.scripts;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.jboss.logging.Logger;
+import org.wildfly.test.util.Environment;
+
+/**
+ * A persisted cache of passed test variants. A variant is keyed by a hash of the launch scripts and configuration
+ * files for the server type, the JVM running the server and the parameters of the variant. If the key of a variant
+ * matches the key of the last passed run the variant does not need to be executed again.
+ * <p/>
+ * Only passed variants are cached, failed variants are always executed again.
+ * <p/>
+ * The cache is persisted outside of the build directory, so it is opt-in. Enable it where runs are repeated with
+ * unchanged scripts, e.g. a nightly CI job, not on a developer machine where a skipped variant would hide a failure.
+ * <p/>
+ * The following system properties can be used to configure the cache:
+ * <ul>
+ * <li>{@code wildfly.test.cache} whether or not the cache is used, defaults to {@code false}</li>
+ * <li>{@code wildfly.test.cache.dir} the directory the cache is stored in, defaults to
+ * {@code ${user.home}/.extended-wildfly-tests}</li>
+ * <li>{@code wildfly.test.cache.force} a comma delimited list of server types, e.g. {@code domain,standalone}, which
+ * ignore cached results. The results of the run are still cached. Use {@code all} for every server type.</li>
+ * <li>{@code wildfly.test.cache.invalidate} a comma delimited list of server types whose cached results are deleted
+ * before the run. Use {@code all} for every server type.</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ResultsCache {
+    private static final Logger LOGGER = Logger.getLogger(ResultsCache.class);
+
+    private static final boolean ENABLED = Boolean.getBoolean("wildfly.test.cache");
+    private static final Path CACHE_DIR;
+    private static final Set<ServerType> FORCED = parseServerTypes(System.getProperty("wildfly.test.cache.force"));
+    private static final Set<ServerType> INVALIDATED = parseServerTypes(System.getProperty("wildfly.test.cache.invalidate"));
+    private static final Map<ServerType, ResultsCache> CACHES = new EnumMap<>(ServerType.class);
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    static {
+        final String dir = System.getProperty("wildfly.test.cache.dir");
+        if (dir == null || dir.isEmpty()) {
+            CACHE_DIR = Paths.get(System.getProperty("user.home"), ".extended-wildfly-tests");
+        } else {
+            CACHE_DIR = Paths.get(dir);
+        }
+    }
+
+    private final ServerType serverType;
+    private final Path file;
+    private final Properties results;
+
+    private ResultsCache(final ServerType serverType, final Path file, final Properties results) {
+        this.serverType = serverType;
+        this.file = file;
+        this.results = results;
+    }
+
+    /**
+     * Returns the cache for the server type. The cache is loaded the first time it is requested.
+     *
+     * @param serverType the server type
+     *
+     * @return the cache
+     */
+    public static synchronized ResultsCache of(final ServerType serverType) {
+        ResultsCache result = CACHES.get(serverType);
+        if (result == null) {
+            final Path file = CACHE_DIR.resolve(serverType.type + "-results.properties");
+            final Properties results = new Properties();
+            if (INVALIDATED.contains(serverType)) {
+                LOGGER.infof("Invalidating the cached %s results in %s", serverType.name, file);
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    LOGGER.warnf(e, "Could not delete the cache file %s", file);
+                }
+            } else if (ENABLED && Files.exists(file)) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    results.load(in);
+                } catch (IOException e) {
+                    LOGGER.warnf(e, "Could not read the cache file %s, all variants will be executed", file);
+                    results.clear();
+                }
+            }
+            result = new ResultsCache(serverType, file, results);
+            CACHES.put(serverType, result);
+        }
+        return result;
+    }
+
+    /**
+     * The directory other test data, which should be kept between runs, is stored in. If the cache is not enabled
+     * this is the {@linkplain Environment#TMP_DIR temporary directory}, which is in the build directory, rather than
+     * the cache directory.
+     *
+     * @return the directory for the test data
+     */
+    static Path dataDir() {
+        return (ENABLED ? CACHE_DIR : Environment.TMP_DIR);
+    }
+
+    /**
+     * Creates a key for a variant. The key includes the launch scripts and configuration files for the script names,
+     * the JVM, whether the distribution is {@linkplain Environment#MINIMAL_DIST minimal} and the parameters.
+     *
+     * @param wildflyHome the WildFly home directory
+     * @param scripts     the names of the scripts without a suffix, e.g. {@code standalone}
+     * @param parameters  the parameters which make up the variant
+     *
+     * @return the key
+     */
+    public static String createKey(final Path wildflyHome, final Iterable<String> scripts, final String... parameters) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        final Path binDir = wildflyHome.resolve("bin");
+        try {
+            for (String script : scripts) {
+                for (String suffix : Arrays.asList(".sh", ".bat", ".ps1", ".conf", ".conf.bat", ".conf.ps1", ".xml")) {
+                    final Path path = binDir.resolve(script + suffix);
+                    if (Files.exists(path)) {
+                        update(digest, path.getFileName().toString());
+                        digest.update(Files.readAllBytes(path));
+                    }
+                }
+            }
+            // Common scripts which may be sourced by any of the launch scripts
+            for (String name : Arrays.asList("common.sh", "common.bat", "common.ps1")) {
+                final Path path = binDir.resolve(name);
+                if (Files.exists(path)) {
+                    update(digest, name);
+                    digest.update(Files.readAllBytes(path));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read the scripts in " + binDir, e);
+        }
+        for (String key : Arrays.asList("java.vendor", "java.version", "java.vm.version", "os.name", "os.version")) {
+            update(digest, key + '=' + System.getProperty(key));
+        }
+        // A trimmed distribution may be missing modules a variant needs
+        update(digest, "minimal.dist=" + Environment.MINIMAL_DIST);
+        if (Environment.MINIMAL_DIST) {
+            update(digest, "minimal.modules=" + System.getProperty("wildfly.test.minimal.modules", ""));
+        }
+        for (String parameter : parameters) {
+            update(digest, parameter);
+        }
+        final byte[] bytes = digest.digest();
+        final char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[i * 2] = HEX[(bytes[i] >> 4) & 0x0f];
+            result[i * 2 + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(result);
+    }
+
+    /**
+     * Checks whether the variant has passed with the same key. If so the variant can be skipped.
+     *
+     * @param variant the name of the variant
+     * @param key     the key for the variant
+     *
+     * @return {@code true} if the variant passed with the same key, otherwise {@code false}
+     */
+    public synchronized boolean hasPassed(final String variant, final String key) {
+        if (!ENABLED || FORCED.contains(serverType)) {
+            return false;
+        }
+        if (key.equals(results.getProperty(variant))) {
+            LOGGER.infof("Skipping %s %s, passed on a previous run with the same scripts and JVM", serverType.name, variant);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records the result of a variant and writes the cache.
+     *
+     * @param variant the name of the variant
+     * @param key     the key for the variant
+     * @param passed  {@code true} if the variant passed
+     */
+    public synchronized void record(final String variant, final String key, final boolean passed) {
+        if (!ENABLED) {
+            return;
+        }
+        if (passed) {
+            results.setProperty(variant, key);
+        } else {
+            results.remove(variant);
+        }
+        try {
+            Files.createDirectories(CACHE_DIR);
+            try (OutputStream out = Files.newOutputStream(file)) {
+                results.store(out, serverType.name + " results");
+            }
+        } catch (IOException e) {
+            LOGGER.warnf(e, "Could not write the cache file %s", file);
+        }
+    }
+
+    private static void update(final MessageDigest digest, final String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        // Separate the values so different splits of the same characters create different keys
+        digest.update((byte) 0);
+    }
+
+    private static Set<ServerType> parseServerTypes(final String value) {
+        final Set<ServerType> result = EnumSet.noneOf(ServerType.class);
+        if (value == null || value.trim().isEmpty()) {
+            return result;
+        }
+        for (String name : value.split(",")) {
+            final String n = name.trim().toLowerCase(Locale.ENGLISH);
+            if ("all".equals(n) || "true".equals(n)) {
+                return EnumSet.allOf(ServerType.class);
+            }
+            for (ServerType serverType : ServerType.values()) {
+                if (serverType.type.equals(n)) {
+                    result.add(serverType);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,580 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.scripts;
+
+import static org.wildfly.test.util.Environment.NEW_LINE;
+import static org.wildfly.test.util.Environment.WILDFLY_HOME;
+import static org.wildfly.test.util.Environment.isWindows;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+import org.jboss.logging.Logger;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.wildfly.core.launcher.ProcessHelper;
+import org.wildfly.test.util.Directories;
+import org.wildfly.test.util.Environment;
+import org.wildfly.test.util.ServerHelper;
+
+/**
+ * Tests combinations of the standalone script arguments. Each combination is started in parallel on a bounded pool of
+ * slots. Each slot uses its own copy of the {@code standalone} directory and its own port offset so servers do not
+ * interfere with each other.
+ * <p/>
+ * Arguments which never boot a server, e.g. {@code --help}, are run on a separate fast lane as they only need to wait
+ * for the script to exit.
+ * <p/>
+ * The following system properties can be used to configure the matrix:
+ * <ul>
+ * <li>{@code wildfly.test.matrix.mode} either {@code pairwise} or {@code full}, defaults to {@code pairwise}</li>
+ * <li>{@code wildfly.test.matrix.pool} the number of servers started in parallel, defaults to half the available
+ * processors</li>
+ * <li>{@code wildfly.test.matrix.bind.address} the address used for the {@code -b} and {@code -bmanagement} options,
+ * defaults to {@code 127.0.0.2}. The address must differ from the default bind address, {@code 127.0.0.1}, so the
+ * options are verified. If the address cannot be bound, e.g. on macOS where only {@code 127.0.0.1} is assigned to the
+ * loopback interface, the options are not tested and a warning is logged</li>
+ * </ul>
+ * If the {@link ResultsCache} is enabled, combinations which passed with the same scripts and JVM are skipped.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ScriptArgumentMatrixTestCase {
+
+    private static final Logger LOGGER = Logger.getLogger(ScriptArgumentMatrixTestCase.class);
+
+    private static final String MODE = System.getProperty("wildfly.test.matrix.mode", "pairwise");
+    private static final int POOL_SIZE = Integer.getInteger("wildfly.test.matrix.pool", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int PORT_OFFSET_STEP = 100;
+    private static final String BIND_ADDRESS = System.getProperty("wildfly.test.matrix.bind.address", "127.0.0.2");
+    private static final String MATRIX_CONFIG = "standalone-matrix.xml";
+    private static final String MATRIX_PROPERTY = "wildfly.test.matrix.property";
+    private static final String FILE_PROPERTY = "wildfly.test.matrix.file.property";
+
+    private static final Pattern INVALID_OPTION_PATTERN = Pattern.compile("'.+'.+--help");
+
+    private static final Path MATRIX_DIR = Environment.TMP_DIR.resolve("argument matrix");
+
+    private static final ExecutorService SERVER_POOL = Executors.newFixedThreadPool(POOL_SIZE);
+    private static final ExecutorService FAST_LANE = Executors.newCachedThreadPool();
+    private static final BlockingQueue<Slot> SLOTS = new LinkedBlockingQueue<>();
+
+    @BeforeClass
+    public static void createSlots() throws IOException {
+        if (Files.exists(MATRIX_DIR)) {
+            Directories.recursiveDelete(MATRIX_DIR);
+        }
+        for (int i = 1; i <= POOL_SIZE; i++) {
+            SLOTS.add(Slot.create(i));
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws IOException {
+        FAST_LANE.shutdownNow();
+        SERVER_POOL.shutdownNow();
+        if (Files.exists(MATRIX_DIR)) {
+            Directories.recursiveDelete(MATRIX_DIR);
+        }
+    }
+
+    @Test
+    public void testArgumentMatrix() throws Exception {
+        final long start = System.nanoTime();
+        // Start the fast lane first so it runs while the servers boot
+        final List<Future<String>> fastLane = new ArrayList<>();
+        for (ServerType serverType : ServerType.values()) {
+            fastLane.add(FAST_LANE.submit(new FastLaneTask(serverType, "--help", true)));
+            fastLane.add(FAST_LANE.submit(new FastLaneTask(serverType, "-h", true)));
+            fastLane.add(FAST_LANE.submit(new FastLaneTask(serverType, "--version", true)));
+            fastLane.add(FAST_LANE.submit(new FastLaneTask(serverType, "--not-a-valid-option", false)));
+        }
+
+        final ArgumentMatrix<Option> matrix = new ArgumentMatrix<>();
+        if (isBindable(BIND_ADDRESS)) {
+            matrix.addDimension(bindOptions("-b", "public"))
+                    .addDimension(bindOptions("-bmanagement", "management"));
+        } else {
+            LOGGER.warnf("The address %s cannot be bound, the -b and -bmanagement options are not tested. Set the " +
+                    "wildfly.test.matrix.bind.address system property to a local address other than 127.0.0.1.", BIND_ADDRESS);
+        }
+        matrix.addDimension(configOptions())
+                .addDimension(systemPropertyOptions())
+                .addDimension(adminOnlyOptions())
+                .addDimension(propertiesFileOptions())
+                .addDimension(logDirOptions());
+        final List<List<Option>> combinations = ("full".equalsIgnoreCase(MODE) ? matrix.full() : matrix.pairwise());
+        LOGGER.debugf("Running %d %s combinations with a pool of %d servers", Integer.valueOf(combinations.size()), MODE, Integer.valueOf(POOL_SIZE));
+        final List<Future<String>> results = new ArrayList<>(combinations.size());
+        for (List<Option> combination : combinations) {
+            results.add(SERVER_POOL.submit(new CombinationTask(combination)));
+        }
+
+        final StringBuilder failures = new StringBuilder();
+        for (Future<String> future : fastLane) {
+            appendFailure(failures, future);
+        }
+        for (Future<String> future : results) {
+            appendFailure(failures, future);
+        }
+        LOGGER.debugf("Ran %d combinations and %d fast lane arguments in %d seconds", combinations.size(), fastLane.size(),
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+        if (failures.length() > 0) {
+            Assert.fail(failures.toString());
+        }
+    }
+
+    private static void appendFailure(final StringBuilder failures, final Future<String> future) throws InterruptedException {
+        try {
+            final String failure = future.get();
+            if (failure != null) {
+                failures.append(failure).append(NEW_LINE);
+            }
+        } catch (ExecutionException e) {
+            LOGGER.debug("Matrix task failed", e.getCause());
+            failures.append(e.getCause()).append(NEW_LINE);
+        }
+    }
+
+    private static boolean isBindable(final String address) {
+        try (ServerSocket socket = new ServerSocket()) {
+            socket.bind(new InetSocketAddress(address, 0));
+            return true;
+        } catch (IOException e) {
+            LOGGER.debugf(e, "Failed to bind to %s", address);
+            return false;
+        }
+    }
+
+    private static List<Option> bindOptions(final String arg, final String interfaceName) {
+        final String address = BIND_ADDRESS;
+        final List<Option> result = new ArrayList<>();
+        result.add(Option.NONE);
+        result.add(new InterfaceOption(arg + " " + address, interfaceName, address, arg, address));
+        result.add(new InterfaceOption(arg + "=" + address, interfaceName, address, arg + "=" + address));
+        return result;
+    }
+
+    private static List<Option> configOptions() {
+        return Arrays.asList(Option.NONE,
+                new ConfigOption("-c " + MATRIX_CONFIG, "-c", MATRIX_CONFIG),
+                new ConfigOption("--server-config=" + MATRIX_CONFIG, "--server-config=" + MATRIX_CONFIG));
+    }
+
+    private static List<Option> systemPropertyOptions() {
+        return Arrays.asList(Option.NONE,
+                new SystemPropertyOption("-D without spaces", MATRIX_PROPERTY, "value"),
+                new SystemPropertyOption("-D with spaces", MATRIX_PROPERTY, "value with spaces"));
+    }
+
+    private static List<Option> adminOnlyOptions() {
+        return Arrays.asList(Option.NONE, new Option("--admin-only") {
+            @Override
+            List<String> args(final Slot slot) {
+                return Collections.singletonList("--admin-only");
+            }
+
+            @Override
+            String verify(final ModelControllerClient client, final Slot slot) throws IOException {
+                return compare(client, ServerHelper.EMPTY_ADDRESS, "running-mode", "ADMIN_ONLY");
+            }
+        });
+    }
+
+    private static List<Option> propertiesFileOptions() {
+        return Arrays.asList(Option.NONE,
+                new PropertiesFileOption("-P", false),
+                new PropertiesFileOption("--properties=", true));
+    }
+
+    private static List<Option> logDirOptions() {
+        return Arrays.asList(Option.NONE, new Option("jboss.server.log.dir with spaces") {
+            @Override
+            List<String> args(final Slot slot) {
+                return Collections.singletonList(ScriptArgumentsTestCase.createDirProperty("jboss.server.log.dir", slot.logDir));
+            }
+
+            @Override
+            String verify(final ModelControllerClient client, final Slot slot) {
+                if (Files.notExists(slot.logDir.resolve("server.log"))) {
+                    return "server.log does not exist in the " + slot.logDir + " directory";
+                }
+                return null;
+            }
+        });
+    }
+
+    private static String compare(final ModelControllerClient client, final ModelNode address, final String attributeName, final String expected) throws IOException {
+        final ModelNode op = Operations.createReadAttributeOperation(address, attributeName);
+        op.get("include-runtime").set(true);
+        final ModelNode result = client.execute(op);
+        if (!Operations.isSuccessfulOutcome(result)) {
+            return String.format("Failed to read %s on %s: %s", attributeName, address, Operations.getFailureDescription(result));
+        }
+        final String value = Operations.readResult(result).asString();
+        if (!expected.equals(value)) {
+            return String.format("Expected %s on %s to be '%s' but was '%s'", attributeName, address, expected, value);
+        }
+        return null;
+    }
+
+    private static String quote(final String value) {
+        if (isWindows() && value.contains(" ")) {
+            return '"' + value + '"';
+        }
+        return value;
+    }
+
+    /**
+     * An isolated server location. Each slot has its own base directory and port offset.
+     */
+    private static class Slot {
+        final int offset;
+        final Path baseDir;
+        final Path logDir;
+        final Path propertiesFile;
+
+        private Slot(final int index, final Path baseDir, final Path logDir, final Path propertiesFile) {
+            this.offset = index * PORT_OFFSET_STEP;
+            this.baseDir = baseDir;
+            this.logDir = logDir;
+            this.propertiesFile = propertiesFile;
+        }
+
+        static Slot create(final int index) throws IOException {
+            final Path slotDir = MATRIX_DIR.resolve("slot " + index);
+            final Path baseDir = slotDir.resolve("standalone");
+            Files.createDirectories(baseDir);
+            Directories.copy(WILDFLY_HOME.resolve("standalone"), baseDir);
+            final Path configDir = baseDir.resolve("configuration");
+            Files.copy(configDir.resolve("standalone.xml"), configDir.resolve(MATRIX_CONFIG));
+            final Path propertiesFile = slotDir.resolve("matrix properties.properties");
+            try (BufferedWriter writer = Files.newBufferedWriter(propertiesFile, StandardCharsets.UTF_8)) {
+                writer.write(FILE_PROPERTY + "=" + index);
+                writer.newLine();
+            }
+            return new Slot(index, baseDir, slotDir.resolve("log dir"), propertiesFile);
+        }
+
+        List<String> args() {
+            return Arrays.asList(ScriptArgumentsTestCase.createDirProperty("jboss.server.base.dir", baseDir),
+                    "-Djboss.socket.binding.port-offset=" + offset);
+        }
+
+        int managementPort() {
+            return Environment.PORT + offset;
+        }
+
+        void reset() throws IOException {
+            // Remove anything the previous combination may have written
+            final List<Path> dirs = Arrays.asList(logDir, baseDir.resolve("data"), baseDir.resolve("log"), baseDir.resolve("tmp"));
+            for (Path dir : dirs) {
+                if (Files.exists(dir)) {
+                    Directories.recursiveDelete(dir);
+                }
+            }
+        }
+    }
+
+    /**
+     * A script option which adds arguments to the command line and verifies the arguments took effect.
+     */
+    private abstract static class Option {
+        static final Option NONE = new Option("default") {
+            @Override
+            List<String> args(final Slot slot) {
+                return Collections.emptyList();
+            }
+
+            @Override
+            String verify(final ModelControllerClient client, final Slot slot) {
+                return null;
+            }
+        };
+
+        final String description;
+
+        Option(final String description) {
+            this.description = description;
+        }
+
+        abstract List<String> args(Slot slot);
+
+        /**
+         * Verifies the option on the running server.
+         *
+         * @return {@code null} if the option was applied, otherwise a failure description
+         */
+        abstract String verify(ModelControllerClient client, Slot slot) throws IOException;
+
+        /**
+         * Returns the address the option binds the management interface to.
+         *
+         * @return the management address or {@code null} if the option does not change it
+         */
+        String getManagementAddress() {
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    private static class InterfaceOption extends Option {
+        private final String interfaceName;
+        private final String address;
+        private final List<String> args;
+
+        InterfaceOption(final String description, final String interfaceName, final String address, final String... args) {
+            super(description);
+            this.interfaceName = interfaceName;
+            this.address = address;
+            this.args = Arrays.asList(args);
+        }
+
+        @Override
+        List<String> args(final Slot slot) {
+            return args;
+        }
+
+        @Override
+        String verify(final ModelControllerClient client, final Slot slot) throws IOException {
+            return compare(client, new ModelNode().add("interface", interfaceName), "resolved-address", address);
+        }
+
+        @Override
+        String getManagementAddress() {
+            return ("management".equals(interfaceName) ? address : null);
+        }
+    }
+
+    private static class ConfigOption extends Option {
+        private final List<String> args;
+
+        ConfigOption(final String description, final String... args) {
+            super(description);
+            this.args = Arrays.asList(args);
+        }
+
+        @Override
+        List<String> args(final Slot slot) {
+            return args;
+        }
+
+        @Override
+        String verify(final ModelControllerClient client, final Slot slot) throws IOException {
+            final Path expected = slot.baseDir.resolve("configuration").resolve(MATRIX_CONFIG);
+            return compare(client, new ModelNode().add("core-service", "server-environment"), "config-file", expected.toString());
+        }
+    }
+
+    private static class SystemPropertyOption extends Option {
+        private final String key;
+        private final String value;
+
+        SystemPropertyOption(final String description, final String key, final String value) {
+            super(description);
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        List<String> args(final Slot slot) {
+            return Collections.singletonList("-D" + key + "=" + quote(value));
+        }
+
+        @Override
+        String verify(final ModelControllerClient client, final Slot slot) throws IOException {
+            return compareSystemProperty(client, key, value);
+        }
+    }
+
+    private static class PropertiesFileOption extends Option {
+        private final String arg;
+        private final boolean inline;
+
+        PropertiesFileOption(final String arg, final boolean inline) {
+            super(arg + (inline ? "" : " ") + "<file with spaces>");
+            this.arg = arg;
+            this.inline = inline;
+        }
+
+        @Override
+        List<String> args(final Slot slot) {
+            final String file = quote(slot.propertiesFile.toString());
+            if (inline) {
+                return Collections.singletonList(arg + file);
+            }
+            return Arrays.asList(arg, file);
+        }
+
+        @Override
+        String verify(final ModelControllerClient client, final Slot slot) throws IOException {
+            return compareSystemProperty(client, FILE_PROPERTY, Integer.toString(slot.offset / PORT_OFFSET_STEP));
+        }
+    }
+
+    private static String compareSystemProperty(final ModelControllerClient client, final String key, final String expected) throws IOException {
+        final ModelNode address = new ModelNode().add("core-service", "platform-mbean").add("type", "runtime");
+        final ModelNode result = client.execute(Operations.createReadAttributeOperation(address, "system-properties"));
+        if (!Operations.isSuccessfulOutcome(result)) {
+            return "Failed to read the system properties: " + Operations.getFailureDescription(result);
+        }
+        final ModelNode properties = Operations.readResult(result);
+        final String value = (properties.hasDefined(key) ? properties.get(key).asString() : null);
+        if (!expected.equals(value)) {
+            return String.format("Expected system property %s to be '%s' but was '%s'", key, expected, value);
+        }
+        return null;
+    }
+
+    /**
+     * Starts a standalone server with a combination of options on the next available slot.
+     */
+    private static class CombinationTask implements Callable<String> {
+        private final List<Option> combination;
+
+        CombinationTask(final List<Option> combination) {
+            this.combination = combination;
+        }
+
+        @Override
+        public String call() throws Exception {
+            final ResultsCache cache = ResultsCache.of(ServerType.STANDALONE);
+            final String variant = "matrix " + combination;
+            final String key = ResultsCache.createKey(WILDFLY_HOME, Collections.singletonList(ServerType.STANDALONE.type), variant);
+            if (cache.hasPassed(variant, key)) {
+                return null;
+            }
+            final Slot slot = SLOTS.take();
+            try {
+                slot.reset();
+                final List<String> args = new ArrayList<>(slot.args());
+                for (Option option : combination) {
+                    args.addAll(option.args(slot));
+                }
+                final String consoleName = "matrix-" + (slot.offset / PORT_OFFSET_STEP);
+                // The management interface may be bound to another address with -bmanagement
+                String managementHost = Environment.HOSTNAME;
+                for (Option option : combination) {
+                    if (option.getManagementAddress() != null) {
+                        managementHost = option.getManagementAddress();
+                    }
+                }
+                try (
+                        final ServerScriptRunner runner = ServerScriptRunner.createStandalone(WILDFLY_HOME, consoleName, managementHost, slot.managementPort());
+                        final ModelControllerClient client = ServerHelper.createClientConnection(managementHost, slot.managementPort())
+                ) {
+                    final Process process = runner.startAndWait(args);
+                    final StringBuilder msg = new StringBuilder();
+                    if (ProcessHelper.processHasDied(process)) {
+                        msg.append("Server startup failed").append(NEW_LINE);
+                        for (String line : runner.readConsoleLines()) {
+                            msg.append(line).append(NEW_LINE);
+                        }
+                    } else {
+                        for (Option option : combination) {
+                            final String failure = option.verify(client, slot);
+                            if (failure != null) {
+                                msg.append(failure).append(NEW_LINE);
+                            }
+                        }
+                        runner.shutdown();
+                        ServerHelper.waitForProcessExit(process, 30L, TimeUnit.SECONDS);
+                    }
+                    cache.record(variant, key, msg.length() == 0);
+                    if (msg.length() > 0) {
+                        return "Combination " + combination + " " + args + " failed:" + NEW_LINE + msg;
+                    }
+                }
+                return null;
+            } finally {
+                SLOTS.add(slot);
+            }
+        }
+    }
+
+    /**
+     * Runs a script with an argument that should exit without booting a server.
+     */
+    private static class FastLaneTask implements Callable<String> {
+        private final ServerType serverType;
+        private final String arg;
+        private final boolean valid;
+
+        FastLaneTask(final ServerType serverType, final String arg, final boolean valid) {
+            this.serverType = serverType;
+            this.arg = arg;
+            this.valid = valid;
+        }
+
+        @Override
+        public String call() throws Exception {
+            try (final ScriptRunner runner = ScriptRunner.of(WILDFLY_HOME, Scripts.scriptName(serverType.type))) {
+                final Process process = runner.start(arg);
+                final boolean exited = ServerHelper.waitForProcessExit(process, 10L, TimeUnit.SECONDS);
+                boolean invalidOptionFound = false;
+                final StringBuilder output = new StringBuilder();
+                for (String line : runner.readConsoleLines()) {
+                    if (INVALID_OPTION_PATTERN.matcher(line).find()) {
+                        invalidOptionFound = true;
+                    }
+                    output.append(line).append(NEW_LINE);
+                }
+                LOGGER.tracef("%s %s output:%n%s", serverType.name, arg, output);
+                if (!exited) {
+                    return String.format("%s %s did not exit:%n%s", serverType.name, arg, output);
+                }
+                if (valid == invalidOptionFound) {
+                    return String.format("%s %s expected %s option:%n%s", serverType.name, arg, (valid ? "a valid" : "an invalid"), output);
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -29,6 +29,7 @@ import static org.wildfly.test.util.Environment.isWindows;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -82,6 +83,12 @@ public class ScriptArgumentsTestCase {
     }
 
     private void testLogDirOverride(final Path logDir) throws Exception {
+        final ResultsCache cache = ResultsCache.of(ServerType.STANDALONE);
+        final String variant = "log dir " + logDir.getFileName();
+        final String key = ResultsCache.createKey(WILDFLY_HOME, Collections.singletonList(ServerType.STANDALONE.type), variant);
+        if (cache.hasPassed(variant, key)) {
+            return;
+        }
         try (final ServerScriptRunner runner = ServerScriptRunner.of(WILDFLY_HOME, ServerType.STANDALONE)) {
             Process process = runner.startAndWait(createDirProperty("jboss.server.log.dir", logDir));
             // Assert the process is still alive
@@ -99,9 +106,15 @@ public class ScriptArgumentsTestCase {
             Assert.assertTrue("server.log does not exist in the " + logDir + " directory", Files.exists(logDir.resolve("server.log")));
             runner.shutdown();
         }
+        cache.record(variant, key, true);
     }
 
     private void testHelp(ServerType serverType) throws Exception {
+        final ResultsCache cache = ResultsCache.of(serverType);
+        final String key = ResultsCache.createKey(WILDFLY_HOME, Collections.singletonList(serverType.type), "--help");
+        if (cache.hasPassed("--help", key)) {
+            return;
+        }
         try (final ServerScriptRunner runner = ServerScriptRunner.of(WILDFLY_HOME, serverType)) {
 
             Process process = runner.start("--help");
@@ -141,6 +154,7 @@ public class ScriptArgumentsTestCase {
             Assert.assertTrue(msg.toString(), found);
             Assert.assertFalse(msg.toString(), invalidOptionFound);
         }
+        cache.record("--help", key, true);
     }
 
     static String createDirProperty(final String key, final Path dir) {
@@ -0,0 +1,404 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.scripts;
+
+import static org.wildfly.test.util.Environment.NEW_LINE;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.logging.Logger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.core.launcher.Launcher;
+import org.wildfly.core.launcher.ProcessHelper;
+import org.wildfly.core.launcher.StandaloneCommandBuilder;
+import org.wildfly.test.util.BootTimeline;
+import org.wildfly.test.util.Directories;
+import org.wildfly.test.util.Environment;
+import org.wildfly.test.util.ServerHelper;
+import org.wildfly.test.util.VariantWorkspace;
+
+/**
+ * Tests the domain, standalone and CLI scripts from directories with special characters in the path.
+ * <p/>
+ * Each path is a job run by a {@link JobScheduler}. The longest jobs, based on previous runs, are started first and
+ * jobs are run in parallel as long as the resources allow. The following system properties can be used to configure
+ * the run:
+ * <ul>
+ * <li>{@code wildfly.test.paths} a list of path names separated by the path separator to test instead of the
+ * defaults</li>
+ * <li>{@code wildfly.test.paths.kinds} a comma delimited list of {@code domain}, {@code standalone} and {@code cli},
+ * defaults to all</li>
+ * <li>{@code wildfly.test.paths.capacity} the total weight of the jobs which run at the same time, a standalone server
+ * has a weight of 1, the CLI 2 and a domain 4. Defaults to the number of available processors</li>
+ * <li>{@code wildfly.test.paths.slots} the maximum number of standalone servers, each with its own port offset, which
+ * can run at the same time, between 1 and 50. Defaults to the capacity</li>
+ * <li>{@code wildfly.test.paths.rename} if {@code true} the working copies of a {@link VariantWorkspace} are renamed to
+ * each path rather than copying the WildFly home directory for each path. Defaults to {@code false}</li>
+ * </ul>
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ScriptPathsTestCase {
+
+    private static final Logger LOGGER = Logger.getLogger(ScriptPathsTestCase.class);
+
+    private static final String SUCCESS = "\"outcome\" => \"success\"";
+    private static final String CLI = "cli";
+
+    // Standalone servers are offset far enough to not conflict with the ports of the default domain servers
+    private static final int PORT_OFFSET_STEP = 1000;
+    // A domain starts a process controller, a host controller and two servers
+    private static final int DOMAIN_WEIGHT = 4;
+
+    private static final List<String> KINDS = Arrays.asList(System.getProperty("wildfly.test.paths.kinds", "domain,standalone,cli").split("\\s*,\\s*"));
+    private static final int CAPACITY = Integer.getInteger("wildfly.test.paths.capacity", Runtime.getRuntime().availableProcessors());
+    private static final int SLOTS = Math.max(1, Math.min(50, Integer.getInteger("wildfly.test.paths.slots", CAPACITY)));
+    private static final boolean RENAME = Boolean.getBoolean("wildfly.test.paths.rename");
+
+    // The workspace of each kind when the working copies are renamed
+    private static final Map<String, VariantWorkspace> WORKSPACES = new ConcurrentHashMap<>();
+
+    private final List<String> defaultPathNames = Arrays.asList(
+            "wildfly spaced",
+            "wildfly double  spaced",
+            "bi\u00dfchen-dir",
+            "ni\u00f1o-dir",
+            "wildfly%home",
+            "wildfly#home",
+            "wildfly$home",
+            "wildfly@home",
+            "wildfly(home)",
+            "wildfly!home",
+            "wildfly^home",
+            "wildfly=home",
+            "wildfly'home",
+            "wildfly- (home)"
+    );
+
+    /*
+     * Invalid Windows path characters per http://msdn.microsoft.com/en-us/library/windows/desktop/aa365247(v=vs.85).aspx#Naming_Conventions
+     * The following reserved characters:
+     *  < (less than)
+     *  > (greater than)
+     *  : (colon)
+     *  " (double quote)
+     *  / (forward slash)
+     *  \ (backslash)
+     *  | (vertical bar or pipe)
+     *  ? (question mark)
+     *  * (asterisk)
+     */
+
+    // "wildfly-home" is a known failure on Linux, but a valid path character and will not be tested at this point
+
+    private final List<String> linuxPathNames = Arrays.asList(
+            "wildfly?home",
+            "wildfly\\home",
+            "wildfly<home",
+            "wildfly>home",
+            // Known to fail on Windows due to encoding issues so only test on Linux
+            "wildfly-\u017dlut\u00fdK\u016f\u0148",
+            "wildfly|path"
+    );
+
+    @Test
+    public void testPaths() throws Exception {
+        final Collection<String> pathNames = getPathNames();
+        final Path wildflyHome = Environment.WILDFLY_HOME;
+        final DurationHistory history = DurationHistory.load();
+        final JobScheduler scheduler = new JobScheduler(CAPACITY, SLOTS, history);
+        for (String kind : KINDS) {
+            // The CLI is tested against a standalone server
+            final ServerType serverType = (CLI.equals(kind) ? ServerType.STANDALONE : ServerType.valueOf(kind.toUpperCase(Locale.ENGLISH)));
+            final ResultsCache cache = ResultsCache.of(serverType);
+            final List<String> scripts = Collections.singletonList(CLI.equals(kind) ? "jboss-cli" : serverType.type);
+            for (String pathName : pathNames) {
+                final String variant = (CLI.equals(kind) ? "cli path " : "path ") + pathName;
+                final String key = ResultsCache.createKey(wildflyHome, scripts, variant);
+                if (cache.hasPassed(variant, key)) {
+                    continue;
+                }
+                if (CLI.equals(kind)) {
+                    scheduler.add(new CliPathJob(pathName, cache, variant, key));
+                } else {
+                    scheduler.add(new ServerPathJob(serverType, pathName, cache, variant, key));
+                }
+            }
+        }
+        final List<String> failures;
+        try {
+            failures = scheduler.run();
+        } finally {
+            for (VariantWorkspace workspace : WORKSPACES.values()) {
+                LOGGER.infof("Created %d copies of the WildFly home directory for %d renamed paths", workspace.getCopies(), workspace.getMoves());
+                workspace.close();
+            }
+            WORKSPACES.clear();
+        }
+        history.store();
+        if (!failures.isEmpty()) {
+            final StringBuilder msg = new StringBuilder();
+            for (String failure : failures) {
+                msg.append(failure).append(NEW_LINE);
+            }
+            Assert.fail(msg.toString());
+        }
+    }
+
+    private Collection<String> getPathNames() {
+        // Create the path names to test
+        final Collection<String> pathNames = new ArrayList<>();
+
+        // Check for the system property
+        final String testPathsValue = System.getProperty("wildfly.test.paths");
+        if (testPathsValue != null && !testPathsValue.isEmpty()) {
+            pathNames.addAll(Arrays.asList(testPathsValue.split(Pattern.quote(File.pathSeparator))));
+        } else {
+            // Load the default paths
+            pathNames.addAll(defaultPathNames);
+            if (!Environment.isWindows()) {
+                pathNames.addAll(linuxPathNames);
+            }
+        }
+        return pathNames;
+    }
+
+    /**
+     * Copies the WildFly home directory to a directory with the path name. Each kind of test has its own parent
+     * directory so the same path name can be tested concurrently. In rename mode an idle working copy of the kind is
+     * renamed to the path name instead.
+     */
+    private static Path copyWildFlyHome(final String kind, final String pathName) throws IOException {
+        final Path parent = Environment.TMP_DIR.resolve(kind + "-paths");
+        if (RENAME) {
+            return getWorkspace(kind, parent).acquire(pathName);
+        }
+        return Directories.replace(Environment.WILDFLY_HOME, parent.resolve(pathName).normalize());
+    }
+
+    private static synchronized VariantWorkspace getWorkspace(final String kind, final Path parent) throws IOException {
+        VariantWorkspace workspace = WORKSPACES.get(kind);
+        if (workspace == null) {
+            workspace = VariantWorkspace.create(Environment.WILDFLY_HOME, parent);
+            WORKSPACES.put(kind, workspace);
+        }
+        return workspace;
+    }
+
+    /**
+     * Deletes the copy of the WildFly home directory or, in rename mode, releases the working copy for the next path.
+     */
+    private static void releaseWildFlyHome(final String kind, final Path path) {
+        if (RENAME) {
+            final VariantWorkspace workspace = WORKSPACES.get(kind);
+            if (workspace != null) {
+                workspace.release(path);
+            }
+        } else {
+            deleteQuietly(path);
+        }
+    }
+
+    private static void deleteQuietly(final Path path) {
+        if (path != null) {
+            try {
+                Directories.recursiveDelete(path);
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    private static void checkCliOutput(final StringBuilder failureMessage, final CliSession session, final String command, final String expected) {
+        try {
+            final List<String> lines = session.execute(command);
+            for (String line : lines) {
+                if (line.contains(expected)) {
+                    return;
+                }
+            }
+            failureMessage.append("Failed to find '").append(expected).append("' in the output of ").append(command).append(':').append(NEW_LINE);
+            for (String line : lines) {
+                failureMessage.append('\t').append(line).append(NEW_LINE);
+            }
+        } catch (IOException | InterruptedException e) {
+            LOGGER.debugf(e, "Failed to execute %s", command);
+            failureMessage.append(e.getMessage()).append(NEW_LINE);
+        }
+    }
+
+    /**
+     * Starts a domain or standalone server from a copy of the WildFly home directory. A domain uses the default ports
+     * while a standalone server uses a port offset based on its slot.
+     */
+    private static class ServerPathJob extends JobScheduler.Job {
+        private final ServerType serverType;
+        private final String pathName;
+        private final ResultsCache cache;
+        private final String variant;
+        private final String cacheKey;
+
+        ServerPathJob(final ServerType serverType, final String pathName, final ResultsCache cache, final String variant, final String cacheKey) {
+            super(serverType.type + ":" + pathName, (serverType == ServerType.DOMAIN ? 30000L : 10000L),
+                    (serverType == ServerType.DOMAIN ? DOMAIN_WEIGHT : 1), serverType == ServerType.DOMAIN, serverType == ServerType.STANDALONE);
+            this.serverType = serverType;
+            this.pathName = pathName;
+            this.cache = cache;
+            this.variant = variant;
+            this.cacheKey = cacheKey;
+        }
+
+        @Override
+        String execute(final int slot) throws Exception {
+            LOGGER.infof("Running %s %s", serverType, pathName);
+            final StringBuilder failureMessage = new StringBuilder();
+            Path path = null;
+            try {
+                // Copy or rename the WildFly home directory to the path
+                path = copyWildFlyHome(serverType.type, pathName);
+                final String consoleName = serverType.type + "-" + pathName;
+                final List<String> args = new ArrayList<>();
+                final ServerScriptRunner runner;
+                if (serverType == ServerType.STANDALONE) {
+                    final int offset = slot * PORT_OFFSET_STEP;
+                    runner = ServerScriptRunner.createStandalone(path, consoleName, Environment.PORT + offset);
+                    args.add("-Djboss.socket.binding.port-offset=" + offset);
+                } else {
+                    runner = ServerScriptRunner.of(path, serverType, consoleName);
+                }
+                Process p = null;
+                try (final ServerScriptRunner scriptRunner = runner) {
+                    p = scriptRunner.startAndWait(args);
+                    // If the process has died, the start failed
+                    if (ProcessHelper.processHasDied(p)) {
+                        failureMessage.append("Process has died: ")
+                                .append(p.exitValue())
+                                .append(NEW_LINE)
+                                .append("Attempted Path: ")
+                                .append(pathName)
+                                .append(NEW_LINE);
+                        for (String line : scriptRunner.readConsoleLines()) {
+                            failureMessage.append(line).append(NEW_LINE);
+                        }
+                    } else {
+                        // Boot phases of each path variant can be compared in the log
+                        for (BootTimeline timeline : scriptRunner.readBootTimelines().values()) {
+                            LOGGER.infof("Boot phases of %s %s: %s", serverType, pathName, timeline);
+                        }
+                    }
+                    scriptRunner.shutdown();
+                    // Ensure everything shuts down before the directory is deleted and the ports are reused
+                    ServerHelper.waitForProcessExit(p, 30L, TimeUnit.SECONDS);
+                } finally {
+                    ProcessHelper.destroyProcess(p);
+                }
+                cache.record(variant, cacheKey, failureMessage.length() == 0);
+            } finally {
+                releaseWildFlyHome(serverType.type, path);
+            }
+            return (failureMessage.length() == 0 ? null : failureMessage.toString());
+        }
+    }
+
+    /**
+     * Starts a standalone server, with a port offset based on its slot, from a copy of the WildFly home directory and
+     * executes commands with the CLI from the same directory.
+     */
+    private static class CliPathJob extends JobScheduler.Job {
+        private final String pathName;
+        private final ResultsCache cache;
+        private final String variant;
+        private final String cacheKey;
+
+        CliPathJob(final String pathName, final ResultsCache cache, final String variant, final String cacheKey) {
+            // The weight includes the server and the CLI process
+            super(CLI + ":" + pathName, 12000L, 2, false, true);
+            this.pathName = pathName;
+            this.cache = cache;
+            this.variant = variant;
+            this.cacheKey = cacheKey;
+        }
+
+        @Override
+        String execute(final int slot) throws Exception {
+            LOGGER.infof("Running CLI %s", pathName);
+            final int port = Environment.PORT + (slot * PORT_OFFSET_STEP);
+            final StringBuilder failureMessage = new StringBuilder();
+            Path path = null;
+            try {
+                // Copy or rename the WildFly home directory to the path
+                path = copyWildFlyHome(CLI, pathName);
+                final Path consoleDir = Environment.TMP_DIR.resolve("console-output");
+                Files.createDirectories(consoleDir);
+                Process serverProcess = null;
+                try (final ModelControllerClient client = ServerHelper.createClientConnection(port)) {
+                    // Start a standalone instance
+                    final StandaloneCommandBuilder commandBuilder = StandaloneCommandBuilder.of(path)
+                            .addJavaOption("-Djboss.socket.binding.port-offset=" + (slot * PORT_OFFSET_STEP));
+                    serverProcess = Launcher.of(commandBuilder)
+                            .setRedirectErrorStream(true)
+                            .setDirectory(path.normalize())
+                            .redirectOutput(consoleDir.resolve("standalone-output-" + pathName + ".log"))
+                            .addEnvironmentVariables(Environment.ENV)
+                            .launch();
+                    ServerHelper.waitForStandalone(serverProcess, client);
+                    // A single CLI process executes each of the commands
+                    try (final CliSession session = CliSession.start(path, "-c", "--controller=" + Environment.HOSTNAME + ":" + port)) {
+                        checkCliOutput(failureMessage, session, ":read-attribute(name=server-state)", "\"result\" => \"running\"");
+                        checkCliOutput(failureMessage, session, ":shutdown", SUCCESS);
+                    }
+                    // Ensure the server has been shutdown
+                    if (!ServerHelper.waitForProcessExit(serverProcess, 30L, TimeUnit.SECONDS)) {
+                        ServerHelper.shutdownStandalone(client);
+                        LOGGER.errorf("The server was not shut down via the cli :shutdown command for path '%s'", path);
+                    }
+                } finally {
+                    ProcessHelper.destroyProcess(serverProcess);
+                }
+                if (failureMessage.length() > 0) {
+                    failureMessage.insert(0, "CLI failures for path '" + path + "':" + NEW_LINE);
+                } else {
+                    LOGGER.infof("Success %s", pathName);
+                }
+                cache.record(variant, cacheKey, failureMessage.length() == 0);
+            } finally {
+                releaseWildFlyHome(CLI, path);
+            }
+            return (failureMessage.length() == 0 ? null : failureMessage.toString());
+        }
+    }
+}
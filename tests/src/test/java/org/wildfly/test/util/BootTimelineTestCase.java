@@ -0,0 +1,170 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests parsing a {@link BootTimeline} from captured log output. No server is required.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class BootTimelineTestCase {
+
+    private static final List<String> STANDALONE_CONSOLE = Arrays.asList(
+            "=========================================================================",
+            "",
+            "  JBoss Bootstrap Environment",
+            "",
+            "  JBOSS_HOME: /opt/wildfly",
+            "",
+            "=========================================================================",
+            "",
+            "\u001B[0m10:15:30,100 INFO  [org.jboss.modules] (main) JBoss Modules version 1.4.3.Final",
+            "\u001B[0m10:15:30,400 INFO  [org.jboss.msc] (main) JBoss MSC version 1.2.6.Final",
+            "\u001B[0m10:15:30,500 INFO  [org.jboss.as] (MSC service thread 1-6) WFLYSRV0049: WildFly Core 1.0.0.Final \"Kenny\" starting",
+            "\u001B[0m10:15:31,200 INFO  [org.jboss.as.server] (Controller Boot Thread) WFLYSRV0039: Creating http management service using socket-binding (management-http)",
+            "\u001B[0m10:15:31,300 INFO  [org.jboss.as.security] (ServerService Thread Pool -- 20) WFLYSEC0002: Activating Security Subsystem",
+            "\u001B[0m10:15:31,450 INFO  [org.jboss.as.naming] (ServerService Thread Pool -- 25) WFLYNAM0001: Activating Naming Subsystem",
+            "\u001B[0m10:15:32,000 INFO  [org.jboss.as] (Controller Boot Thread) WFLYSRV0025: WildFly Core 1.0.0.Final \"Kenny\" started in 2100ms - Started 120 of 150 services (40 services are lazy, passive or on-demand)"
+    );
+
+    private static final List<String> DOMAIN_CONSOLE = Arrays.asList(
+            "[Process Controller] 10:20:00,050 INFO  [org.jboss.modules] (main) JBoss Modules version 1.4.3.Final",
+            "[Process Controller] 10:20:00,200 INFO  [org.jboss.as.process.Host Controller.status] (main) WFLYPC0018: Starting process 'Host Controller'",
+            "[Host Controller] 10:20:00,600 INFO  [org.jboss.modules] (main) JBoss Modules version 1.4.3.Final",
+            "[Host Controller] 10:20:00,900 INFO  [org.jboss.as] (MSC service thread 1-2) WFLYSRV0049: WildFly Core 1.0.0.Final \"Kenny\" starting",
+            "[Host Controller] 10:20:02,000 INFO  [org.jboss.as] (Controller Boot Thread) WFLYSRV0025: WildFly Core 1.0.0.Final (Host Controller) started in 1800ms - Started 50 of 52 services (13 services are lazy, passive or on-demand)",
+            "[Server:server-one] 10:20:02,500 INFO  [org.jboss.modules] (main) JBoss Modules version 1.4.3.Final",
+            "[Server:server-one] 10:20:02,800 INFO  [org.jboss.as] (MSC service thread 1-3) WFLYSRV0049: WildFly Core 1.0.0.Final \"Kenny\" starting",
+            "[Server:server-one] 10:20:03,100 INFO  [org.jboss.as.security] (ServerService Thread Pool -- 10) WFLYSEC0002: Activating Security Subsystem",
+            "[Server:server-one] 10:20:03,900 INFO  [org.jboss.as] (Controller Boot Thread) WFLYSRV0025: WildFly Core 1.0.0.Final \"Kenny\" started in 1500ms - Started 100 of 120 services (30 services are lazy, passive or on-demand)"
+    );
+
+    // Two boots, the second boot crosses midnight and uses the JBAS message ids
+    private static final List<String> SERVER_LOG = Arrays.asList(
+            "2015-06-01 23:00:00,100 INFO  [org.jboss.modules] (main) JBoss Modules version 1.4.3.Final",
+            "2015-06-01 23:00:00,500 INFO  [org.jboss.as] (MSC service thread 1-6) WFLYSRV0049: WildFly Core 1.0.0.Final \"Kenny\" starting",
+            "2015-06-01 23:00:01,000 INFO  [org.jboss.as] (Controller Boot Thread) WFLYSRV0025: WildFly Core 1.0.0.Final \"Kenny\" started in 1100ms - Started 100 of 110 services (10 services are lazy, passive or on-demand)",
+            "2015-06-01 23:30:00,000 INFO  [org.jboss.as] (MSC service thread 1-3) WFLYSRV0050: WildFly Core 1.0.0.Final \"Kenny\" stopped in 10ms",
+            "2015-06-01 23:59:59,800 INFO  [org.jboss.modules] (main) JBoss Modules version 1.3.3.Final",
+            "2015-06-02 00:00:00,100 INFO  [org.jboss.as] (MSC service thread 1-6) JBAS015899: WildFly 8.2.0.Final \"Tweek\" starting",
+            "2015-06-02 00:00:00,600 INFO  [org.jboss.as.naming] (ServerService Thread Pool -- 20) JBAS011800: Activating Naming Subsystem",
+            "2015-06-02 00:00:01,500 INFO  [org.jboss.as] (Controller Boot Thread) JBAS015874: WildFly 8.2.0.Final \"Tweek\" started in 1900ms - Started 180 of 240 services (60 services are lazy, passive or on-demand)"
+    );
+
+    @Rule
+    public TemporaryFolder tempDir = new TemporaryFolder();
+
+    @Test
+    public void testStandaloneConsole() {
+        final Map<String, BootTimeline> timelines = BootTimeline.parse(STANDALONE_CONSOLE);
+        Assert.assertEquals(Arrays.asList(BootTimeline.DEFAULT_PROCESS), new ArrayList<>(timelines.keySet()));
+        final BootTimeline timeline = timelines.get(BootTimeline.DEFAULT_PROCESS);
+        assertStarted(timeline, 2100L, 120, 150, 40);
+        assertPhases(timeline, BootTimeline.JVM, 200L, BootTimeline.MODULES, 400L, BootTimeline.CONTROLLER, 800L,
+                BootTimeline.SUBSYSTEMS, 150L, BootTimeline.SERVICES, 550L);
+        final List<BootTimeline.Event> events = timeline.getEvents();
+        Assert.assertEquals(5, events.size());
+        Assert.assertEquals(BootTimeline.MODULES, events.get(0).phase);
+        Assert.assertEquals(200L, events.get(0).getOffset());
+        Assert.assertEquals("Security (org.jboss.as.security)", events.get(2).description);
+        Assert.assertEquals("Naming (org.jboss.as.naming)", events.get(3).description);
+        Assert.assertEquals(2100L, events.get(4).getOffset());
+    }
+
+    @Test
+    public void testDomainConsole() {
+        final Map<String, BootTimeline> timelines = BootTimeline.parse(DOMAIN_CONSOLE);
+        Assert.assertEquals(Arrays.asList("Process Controller", "Host Controller", "Server:server-one"),
+                new ArrayList<>(timelines.keySet()));
+
+        // The process controller does not report a boot time
+        final BootTimeline processController = timelines.get("Process Controller");
+        Assert.assertFalse(processController.isStarted());
+        Assert.assertEquals(-1L, processController.getReportedBootMillis());
+        Assert.assertEquals(-1, processController.getServicesStarted());
+        Assert.assertTrue(processController.getPhases().isEmpty());
+
+        // No subsystems are activated on the host controller, the services phase starts with the controller boot
+        final BootTimeline hostController = timelines.get("Host Controller");
+        assertStarted(hostController, 1800L, 50, 52, 13);
+        assertPhases(hostController, BootTimeline.JVM, 400L, BootTimeline.MODULES, 300L, BootTimeline.SERVICES, 1100L);
+
+        final BootTimeline server = timelines.get("Server:server-one");
+        assertStarted(server, 1500L, 100, 120, 30);
+        assertPhases(server, BootTimeline.JVM, 100L, BootTimeline.MODULES, 300L, BootTimeline.CONTROLLER, 300L,
+                BootTimeline.SUBSYSTEMS, 0L, BootTimeline.SERVICES, 800L);
+    }
+
+    @Test
+    public void testServerLogLastBoot() throws IOException {
+        final Path logFile = tempDir.newFile("server.log").toPath();
+        Files.write(logFile, SERVER_LOG, StandardCharsets.UTF_8);
+        final BootTimeline timeline = BootTimeline.read(logFile);
+        assertStarted(timeline, 1900L, 180, 240, 60);
+        assertPhases(timeline, BootTimeline.JVM, 200L, BootTimeline.MODULES, 300L, BootTimeline.CONTROLLER, 500L,
+                BootTimeline.SUBSYSTEMS, 0L, BootTimeline.SERVICES, 900L);
+        Assert.assertEquals("Naming (org.jboss.as.naming)", timeline.getEvents().get(2).description);
+    }
+
+    @Test
+    public void testNotStarted() {
+        final BootTimeline timeline = BootTimeline.parse(SERVER_LOG.subList(0, 2)).get(BootTimeline.DEFAULT_PROCESS);
+        Assert.assertFalse(timeline.isStarted());
+        Assert.assertEquals(TimeUnit.HOURS.toMillis(23L) + 100L, timeline.getStart());
+        assertPhases(timeline, BootTimeline.MODULES, 400L);
+    }
+
+    private static void assertStarted(final BootTimeline timeline, final long reportedBootMillis, final int servicesStarted,
+                                      final int servicesTotal, final int servicesPassive) {
+        Assert.assertTrue(timeline.getProcess() + " did not start", timeline.isStarted());
+        Assert.assertEquals(reportedBootMillis, timeline.getReportedBootMillis());
+        Assert.assertEquals(servicesStarted, timeline.getServicesStarted());
+        Assert.assertEquals(servicesTotal, timeline.getServicesTotal());
+        Assert.assertEquals(servicesPassive, timeline.getServicesPassive());
+    }
+
+    private static void assertPhases(final BootTimeline timeline, final Object... phases) {
+        final Map<String, Long> expected = new LinkedHashMap<>();
+        for (int i = 0; i < phases.length; i += 2) {
+            expected.put((String) phases[i], (Long) phases[i + 1]);
+        }
+        // Compare the entries so the order of the phases is checked as well
+        Assert.assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(timeline.getPhases().entrySet()));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2014, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.wildfly.test.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests parsing a {@link ShellTrace} from a captured {@code bash -x} trace of a script. No server is required.
+ *
+ * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
+ */
+public class ShellTraceTestCase {
+
+    private static final double DELTA = 0.0001d;
+
+    private static final List<String> TRACE = Arrays.asList(
+            "+|trace|1700000000.000000|:1| . /opt/wildfly/bin/standalone.sh",
+            "++|trace|1700000000.001000|standalone.sh:5| dirname /opt/wildfly/bin/standalone.sh",
+            "+|trace|1700000000.003000|standalone.sh:5| DIRNAME=/opt/wildfly/bin",
+            "+|trace|1700000000.004000|standalone.sh:20| . /opt/wildfly/bin/standalone.conf",
+            "++|trace|1700000000.004500|standalone.conf:48| '[' x = x ']'",
+            // Bash uses the decimal separator of the locale for EPOCHREALTIME
+            "++|trace|1700000000,006500|standalone.conf:51| JAVA_OPTS='-Xms64m -Xmx512m'",
+            "++|trace|1700000000.007000|standalone.sh:30| /usr/bin/java -version",
+            "+|trace|1700000000.017000|standalone.sh:30| JAVA_VERSION='openjdk version \"17.0.8\"'",
+            "+|trace|1700000000.018000|standalone.sh:40| JAVA_OPTS='-Xms64m -Xmx512m -server'",
+            "+|trace|1700000000.020000|standalone.sh:45| echo =========================================================================",
+            "=========================================================================",
+            "+|trace|1700000000.021000|standalone.sh:50| eval '\"/usr/bin/java\"' '-D\"[Standalone]\"' -Xms64m -Xmx512m -server '-jar \"/opt/wildfly/jboss-modules.jar\"' -mp '\"/opt/wildfly/modules\"' org.jboss.as.standalone",
+            "+|trace|1700000000.030000|standalone.sh:51| JBOSS_PID=4242"
+    );
+
+    @Test
+    public void testTrace() {
+        final ShellTrace trace = ShellTrace.parse(TRACE);
+        Assert.assertTrue(trace.isComplete());
+        Assert.assertEquals(1700000000000000L, trace.getStartMicros());
+        Assert.assertEquals(1700000000021000L, trace.getExecMicros());
+        Assert.assertEquals(21d, trace.getScriptMillis(), DELTA);
+
+        // The commands of the wrapper and the commands after the JVM launch are not steps
+        final List<ShellTrace.Step> steps = trace.getSteps();
+        final List<String> locations = new ArrayList<>();
+        for (ShellTrace.Step step : steps) {
+            locations.add(step.location);
+        }
+        Assert.assertEquals(Arrays.asList("standalone.sh:5", "standalone.sh:5", "standalone.sh:20", "standalone.conf:48",
+                "standalone.conf:51", "standalone.sh:30", "standalone.sh:30", "standalone.sh:40", "standalone.sh:45"),
+                locations);
+        Assert.assertEquals("standalone.conf", steps.get(3).getFile());
+        Assert.assertEquals(2d, steps.get(0).getMillis(), DELTA);
+        Assert.assertEquals(10d, steps.get(5).getMillis(), DELTA);
+        Assert.assertEquals(1d, steps.get(8).getMillis(), DELTA);
+    }
+
+    @Test
+    public void testCategories() {
+        final ShellTrace trace = ShellTrace.parse(TRACE);
+        // All commands of a line have the category of the line
+        final List<ShellTrace.Step> steps = trace.getSteps();
+        Assert.assertEquals(ShellTrace.HOME, steps.get(1).getCategory());
+        Assert.assertEquals(ShellTrace.JAVA_VERSION, steps.get(6).getCategory());
+
+        final Map<String, Double> categories = trace.getCategoryMillis();
+        Assert.assertEquals(Arrays.asList(ShellTrace.HOME, ShellTrace.CONF, ShellTrace.JAVA_VERSION, ShellTrace.JAVA_OPTS,
+                ShellTrace.OTHER), new ArrayList<>(categories.keySet()));
+        Assert.assertEquals(3d, categories.get(ShellTrace.HOME), DELTA);
+        Assert.assertEquals(2.5d, categories.get(ShellTrace.CONF), DELTA);
+        Assert.assertEquals(11d, categories.get(ShellTrace.JAVA_VERSION), DELTA);
+        Assert.assertEquals(2d, categories.get(ShellTrace.JAVA_OPTS), DELTA);
+        Assert.assertEquals(1.5d, categories.get(ShellTrace.OTHER), DELTA);
+    }
+
+    @Test
+    public void testSubshells() {
+        final ShellTrace trace = ShellTrace.parse(TRACE);
+        // Commands of a sourced file are one level deeper but not in a subshell
+        final List<ShellTrace.Step> steps = trace.getSteps();
+        Assert.assertTrue(steps.get(0).isSubshell());
+        Assert.assertFalse(steps.get(1).isSubshell());
+        Assert.assertFalse(steps.get(3).isSubshell());
+        Assert.assertTrue(steps.get(5).isSubshell());
+        Assert.assertEquals(2, trace.getSubshellCommands());
+    }
+
+    @Test
+    public void testIncompleteTrace() {
+        // Bash before 5.0 does not set EPOCHREALTIME which leaves the time stamp empty
+        final ShellTrace oldBash = ShellTrace.parse(Arrays.asList(
+                "+|trace||standalone.sh:5| DIRNAME=/opt/wildfly/bin",
+                "+|trace||standalone.sh:50| eval '\"/usr/bin/java\"' '-jar \"/opt/wildfly/jboss-modules.jar\"'"
+        ));
+        Assert.assertFalse(oldBash.isComplete());
+        Assert.assertTrue(oldBash.getSteps().isEmpty());
+        Assert.assertEquals(-1L, oldBash.getStartMicros());
+
+        final ShellTrace noLaunch = ShellTrace.parse(TRACE.subList(0, 4));
+        Assert.assertFalse(noLaunch.isComplete());
+        Assert.assertEquals(-1d, noLaunch.getScriptMillis(), DELTA);
+        Assert.assertEquals(3, noLaunch.getSteps().size());
+    }
+}